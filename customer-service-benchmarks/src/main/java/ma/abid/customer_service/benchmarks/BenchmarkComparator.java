@@ -0,0 +1,66 @@
+package ma.abid.customer_service.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and exits with status 1 when any benchmark present in both
+ * got worse by more than the threshold (default 10%).
+ *
+ * <pre>java -cp ... BenchmarkComparator baseline.json target/jmh-result.json [thresholdPercent]</pre>
+ */
+public final class BenchmarkComparator {
+
+    private BenchmarkComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkComparator <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) continue;
+            double change = changePercent(before, entry.getValue());
+            boolean regressed = change < -threshold;
+            if (regressed) regressions++;
+            System.out.printf("%-90s %8.2f%% %s%n", entry.getKey(), change, regressed ? "REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Positive means better: throughput going up, or time per operation going down.
+     */
+    static double changePercent(JsonNode before, JsonNode after) {
+        double oldScore = before.path("primaryMetric").path("score").asDouble();
+        double newScore = after.path("primaryMetric").path("score").asDouble();
+        double change = (newScore - oldScore) / oldScore * 100.0;
+        return "thrpt".equals(after.path("mode").asText()) ? change : -change;
+    }
+
+    static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(p -> params.put(p.getKey(), p.getValue().asText()));
+            results.put(result.path("benchmark").asText() + ":" + result.path("mode").asText() + params, result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,56 @@
+package ma.abid.customer_service.benchmarks;
+
+import ma.abid.customer_service.CustomerServiceApplication;
+import ma.abid.customer_service.entities.Customer;
+import ma.abid.customer_service.repository.CustomerRepository;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the real customer-service application against a private in-memory H2 database.
+ */
+final class BenchmarkContexts {
+    private static final int SEED_BATCH = 1000;
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID(),
+                "--spring.docker.compose.enabled=false",
+                "--server.port=0",
+                "--customer.grpc.port=0",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(CustomerServiceApplication.class)
+                .web(webApplicationType)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Inserts {@code rows} customers named {@code First<n> Last<n>} and returns their ids in insertion order.
+     */
+    static long[] seed(ConfigurableApplicationContext context, int rows) {
+        CustomerRepository customerRepository = context.getBean(CustomerRepository.class);
+        long[] ids = new long[rows];
+        List<Customer> batch = new ArrayList<>(SEED_BATCH);
+        int next = 0;
+        for (int i = 0; i < rows; i++) {
+            batch.add(Customer.builder().firstName("First" + i).lastName("Last" + i).email("seed" + i + "@abid.com").build());
+            if (batch.size() == SEED_BATCH || i == rows - 1) {
+                for (Customer saved : customerRepository.saveAll(batch)) ids[next++] = saved.getId();
+                batch.clear();
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,27 @@
+package ma.abid.customer_service.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for {@code mvn exec:exec}. Accepts the usual JMH command line and, unless told
+ * otherwise, writes JSON results to {@value #DEFAULT_RESULT} so that {@link BenchmarkComparator}
+ * can diff two builds.
+ */
+public final class BenchmarkRunner {
+    static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+        if (!commandLineOptions.getResult().hasValue()) options.result(DEFAULT_RESULT);
+        if (!commandLineOptions.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,104 @@
+package ma.abid.customer_service.benchmarks;
+
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import ma.abid.customer_service.grpc.CustomerGrpcServer;
+import ma.abid.customer_service.grpc.v1.Customer;
+import ma.abid.customer_service.grpc.v1.CustomerIdRequest;
+import ma.abid.customer_service.grpc.v1.CustomerServiceGrpc;
+import ma.abid.customer_service.grpc.v1.SearchCustomersRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of the same reads over REST and gRPC against one running application, both over loopback with a
+ * kept-alive connection, so the difference is the protocol stack and the encoding rather than the service layer.
+ * REST goes through the JDK HTTP/1.1 client and returns the raw JSON; gRPC through a blocking stub on HTTP/2:
+ * <pre>mvn -pl customer-service-benchmarks exec:exec -Djmh.args="CustomerGrpc -prof gc"</pre>
+ * Run with more threads ({@code -t 8}) to compare the two under concurrency, where gRPC multiplexes the calls on
+ * a single connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerGrpcBenchmark {
+    @Param("1000")
+    int rows;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private ManagedChannel channel;
+    private CustomerServiceGrpc.CustomerServiceBlockingStub stub;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET);
+        ids = BenchmarkContexts.seed(context, rows);
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/customers";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        channel = NettyChannelBuilder.forAddress("localhost", context.getBean(CustomerGrpcServer.class).getPort()).usePlaintext().build();
+        stub = CustomerServiceGrpc.newBlockingStub(channel);
+        // warm the customers cache so both sides measure the same cache hits
+        for (long id : ids) {
+            rest("/" + id);
+            stub.getCustomer(CustomerIdRequest.newBuilder().setId(id).build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] restGetCustomerById() throws Exception {
+        return rest("/" + randomId());
+    }
+
+    @Benchmark
+    public Customer grpcGetCustomerById() {
+        return stub.getCustomer(CustomerIdRequest.newBuilder().setId(randomId()).build());
+    }
+
+    @Benchmark
+    public byte[] restSearch() throws Exception {
+        return rest("/search?keyword=First1&limit=20");
+    }
+
+    @Benchmark
+    public List<Customer> grpcSearch() {
+        List<Customer> customers = new ArrayList<>(20);
+        stub.searchCustomers(SearchCustomersRequest.newBuilder().setKeyword("First1").setLimit(20).build()).forEachRemaining(customers::add);
+        return customers;
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private byte[] rest(String path) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        return response.body();
+    }
+}
@@ -0,0 +1,52 @@
+package ma.abid.customer_service.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.abid.customer_service.dto.CustomerDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding/decoding of {@code List<CustomerDTO>} with the ObjectMapper configuration Spring MVC uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerJsonBenchmark {
+    private static final TypeReference<List<CustomerDTO>> CUSTOMER_LIST = new TypeReference<>() {
+    };
+
+    @Param({"1", "100", "10000"})
+    int listSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<CustomerDTO> customers;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        customers = new ArrayList<>(listSize);
+        for (long i = 1; i <= listSize; i++) {
+            customers.add(CustomerDTO.builder().id(i).firstName("First" + i).lastName("Last" + i).email("customer" + i + "@abid.com").build());
+        }
+        json = objectMapper.writeValueAsBytes(customers);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(customers);
+    }
+
+    @Benchmark
+    public List<CustomerDTO> deserialize() throws IOException {
+        return objectMapper.readValue(json, CUSTOMER_LIST);
+    }
+}
@@ -0,0 +1,171 @@
+package ma.abid.customer_service.benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load test that boots the service once with platform threads and once with
+ * {@code spring.threads.virtual.enabled=true}, then reports throughput and latency percentiles for each mode.
+ * Every request is a keyset page read ({@code /api/customers/page}), so it always reaches the database.
+ * <p>
+ * With a base URL as fourth argument it drives that server instead, e.g. {@code customer-service-reactive}
+ * started with {@code java -jar}, so the WebFlux/R2DBC stack is measured with the same client and workload.
+ * Only the three seed customers exist there, so pages are short and pool/pinning columns are not reported.
+ *
+ * <pre>mvn -pl customer-service-benchmarks exec:exec@load-test -Dload.args="[clients] [seconds] [rows] [baseUrl]"</pre>
+ */
+public final class CustomerLoadTest {
+    private static final int PAGE_SIZE = 20;
+
+    private CustomerLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        System.out.printf("%d clients, %ds per mode, %d rows%n", clients, seconds, rows);
+        System.out.printf("%-9s %10s %9s %9s %9s %7s %13s %10s%n",
+                "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "pool wait ms", "pinned");
+        if (args.length > 3) {
+            runExternal(args[3], clients, seconds);
+            return;
+        }
+        for (boolean virtual : new boolean[]{false, true}) {
+            run(virtual, clients, seconds, rows);
+        }
+    }
+
+    private static void runExternal(String baseUrl, int clients, int seconds) throws Exception {
+        long[] ids = {0L, 1L, 2L};
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+            String base = baseUrl + "/api/customers/page";
+            drive(client, executor, base, ids, clients, Math.max(1, seconds / 4));
+            report("external", drive(client, executor, base, ids, clients, seconds), seconds, null, null);
+        }
+    }
+
+    private static void run(boolean virtual, int clients, int seconds, int rows) throws Exception {
+        try (ConfigurableApplicationContext context = BenchmarkContexts.start(WebApplicationType.SERVLET,
+                "--spring.threads.virtual.enabled=" + virtual)) {
+            long[] ids = BenchmarkContexts.seed(context, rows);
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/customers/page";
+            // the client side always uses virtual threads so it is never the bottleneck
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+                drive(client, executor, base, ids, clients, Math.max(1, seconds / 4));
+                MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+                TimerReading acquireBefore = TimerReading.of(meterRegistry, "hikaricp.connections.acquire");
+                TimerReading pinnedBefore = TimerReading.of(meterRegistry, "jvm.threads.virtual.pinned");
+                Result result = drive(client, executor, base, ids, clients, seconds);
+                TimerReading acquire = TimerReading.of(meterRegistry, "hikaricp.connections.acquire").minus(acquireBefore);
+                TimerReading pinned = TimerReading.of(meterRegistry, "jvm.threads.virtual.pinned").minus(pinnedBefore);
+                report(virtual ? "virtual" : "platform", result, seconds, acquire, pinned);
+            }
+        }
+    }
+
+    private static Result drive(HttpClient client, ExecutorService executor, String base, long[] ids,
+                                int clients, int seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Result>> futures = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            futures.add(executor.submit(() -> {
+                Result result = new Result();
+                while (System.nanoTime() < deadline) {
+                    long afterId = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + "?size=" + PAGE_SIZE + "&cursor=" + cursor(afterId)))
+                            .timeout(Duration.ofSeconds(30)).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) result.record(System.nanoTime() - start);
+                        else result.errors++;
+                    } catch (Exception e) {
+                        result.errors++;
+                    }
+                }
+                return result;
+            }));
+        }
+        Result total = new Result();
+        for (Future<Result> future : futures) total.merge(future.get());
+        return total;
+    }
+
+    private static void report(String mode, Result result, int seconds, TimerReading acquire, TimerReading pinned) {
+        long[] latencies = Arrays.copyOf(result.latencies, result.count);
+        Arrays.sort(latencies);
+        System.out.printf("%-9s %10.0f %9.2f %9.2f %9.2f %7d %13s %10s%n",
+                mode,
+                result.count / (double) seconds,
+                millis(percentile(latencies, 0.50)),
+                millis(percentile(latencies, 0.99)),
+                millis(latencies.length == 0 ? 0 : latencies[latencies.length - 1]),
+                result.errors,
+                acquire == null ? "-" : String.format("%.3f", acquire.count == 0 ? 0.0 : millis((long) (acquire.totalNanos / acquire.count))),
+                pinned == null ? "-" : String.valueOf(pinned.count));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** Same encoding as the service's keyset cursor. */
+    private static String cursor(long afterId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(afterId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Cumulative count and total time of a timer, so a run can be measured as the difference of two readings. */
+    private record TimerReading(long count, double totalNanos) {
+        static TimerReading of(MeterRegistry meterRegistry, String name) {
+            Timer timer = meterRegistry.find(name).timer();
+            return timer == null ? new TimerReading(0, 0) : new TimerReading(timer.count(), timer.totalTime(TimeUnit.NANOSECONDS));
+        }
+
+        TimerReading minus(TimerReading before) {
+            return new TimerReading(count - before.count, totalNanos - before.totalNanos);
+        }
+    }
+
+    private static final class Result {
+        long[] latencies = new long[1024];
+        int count;
+        long errors;
+
+        void record(long nanos) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = nanos;
+        }
+
+        void merge(Result other) {
+            for (int i = 0; i < other.count; i++) record(other.latencies[i]);
+            errors += other.errors;
+        }
+    }
+}
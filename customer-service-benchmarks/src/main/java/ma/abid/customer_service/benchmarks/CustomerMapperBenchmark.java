@@ -0,0 +1,60 @@
+package ma.abid.customer_service.benchmarks;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.entities.Customer;
+import ma.abid.customer_service.mapper.CustomerMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares {@link CustomerMapper} with the ModelMapper path it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerMapperBenchmark {
+    @Param({"1", "1000"})
+    int listSize;
+
+    private final CustomerMapper customerMapper = new CustomerMapper();
+    private final ModelMapper modelMapper = new ModelMapper();
+    private Customer customer;
+    private List<Customer> customers;
+
+    @Setup
+    public void setUp() {
+        customers = new ArrayList<>(listSize);
+        for (long i = 1; i <= listSize; i++) {
+            customers.add(Customer.builder().id(i).firstName("First" + i).lastName("Last" + i).email("customer" + i + "@abid.com").build());
+        }
+        customer = customers.get(0);
+    }
+
+    @Benchmark
+    public CustomerDTO fromCustomer() {
+        return customerMapper.fromCustomer(customer);
+    }
+
+    @Benchmark
+    public CustomerDTO fromCustomerModelMapper() {
+        return modelMapper.map(customer, CustomerDTO.class);
+    }
+
+    @Benchmark
+    public List<CustomerDTO> customerDTOList() {
+        return customerMapper.customerDTOList(customers);
+    }
+
+    @Benchmark
+    public List<CustomerDTO> customerDTOListModelMapper() {
+        return customers.stream().map(c -> modelMapper.map(c, CustomerDTO.class)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,74 @@
+package ma.abid.customer_service.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full request round-trips through the DispatcherServlet: argument resolution, validation,
+ * service, JSON serialization. No socket I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerMockMvcBenchmark {
+    @Param("10000")
+    int rows;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET);
+        ids = BenchmarkContexts.seed(context, rows);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] getCustomerById() throws Exception {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", id))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] getCustomersPage() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/page?size=50"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] searchCustomers() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/search?keyword=irst99"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] saveNewCustomer() throws Exception {
+        long n = sequence.incrementAndGet();
+        return mockMvc.perform(MockMvcRequestBuilders.post("/api/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Bench\",\"lastName\":\"Mark\",\"email\":\"bench" + n + "@abid.com\"}"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+package ma.abid.customer_service.benchmarks;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.entities.Customer;
+import ma.abid.customer_service.mapper.CustomerMapper;
+import ma.abid.customer_service.repository.CustomerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the entity read path (load managed {@link Customer}s in a read-write transaction, then map them)
+ * with the constructor projections straight into {@link CustomerDTO} in a read-only transaction, bypassing
+ * the service cache. Run with the GC profiler to see the allocation side as well:
+ * <pre>mvn -pl customer-service-benchmarks exec:exec -Djmh.args="CustomerReadPath -prof gc"</pre>
+ * and compare {@code gc.alloc.rate.norm} (bytes per operation) between the {@code entity*} and
+ * {@code projection*} pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerReadPathBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param("10000")
+    int rows;
+
+    private ConfigurableApplicationContext context;
+    private CustomerRepository customerRepository;
+    private CustomerMapper customerMapper;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(WebApplicationType.NONE);
+        ids = BenchmarkContexts.seed(context, rows);
+        customerRepository = context.getBean(CustomerRepository.class);
+        customerMapper = context.getBean(CustomerMapper.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CustomerDTO entityById() {
+        long id = randomId();
+        return readWrite.execute(status -> customerMapper.fromCustomer(customerRepository.findById(id).orElseThrow()));
+    }
+
+    @Benchmark
+    public CustomerDTO projectionById() {
+        long id = randomId();
+        return readOnly.execute(status -> customerRepository.findCustomerDTOById(id).orElseThrow());
+    }
+
+    @Benchmark
+    public List<CustomerDTO> entityPage() {
+        return readWrite.execute(status -> customerMapper.customerDTOList(
+                customerRepository.findAll(PageRequest.of(0, PAGE_SIZE, Sort.by("id"))).getContent()));
+    }
+
+    @Benchmark
+    public List<CustomerDTO> projectionPage() {
+        return readOnly.execute(status -> customerRepository.findCustomerDTOsAfter(0L, Limit.of(PAGE_SIZE)));
+    }
+
+    @Benchmark
+    public List<CustomerDTO> entityAll() {
+        return readWrite.execute(status -> customerMapper.customerDTOList(customerRepository.findAll(Sort.by("id"))));
+    }
+
+    @Benchmark
+    public List<CustomerDTO> projectionAll() {
+        return readOnly.execute(status -> customerRepository.findAllCustomerDTOs());
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,58 @@
+package ma.abid.customer_service.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /api/customers/{id}} with the serialized-response cache on and off, over a hot set of customers
+ * that all fit in both the customers cache and the response cache. With the cache off every request goes
+ * through the DTO and Jackson, as before the cache existed. Run with the GC profiler for bytes per request:
+ * <pre>mvn -pl customer-service-benchmarks exec:exec -Djmh.args="CustomerResponseCache -prof gc"</pre>
+ * and compare {@code gc.alloc.rate.norm} and the average time of {@code responseCache=true} and {@code false}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerResponseCacheBenchmark {
+    @Param("1000")
+    int rows;
+
+    @Param({"true", "false"})
+    boolean responseCache;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET, "--customer.response-cache.enabled=" + responseCache);
+        ids = BenchmarkContexts.seed(context, rows);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        // warm both caches so the measurement compares serialization, not database reads
+        for (long id : ids) mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", id));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] getCustomerById() throws Exception {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", id))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
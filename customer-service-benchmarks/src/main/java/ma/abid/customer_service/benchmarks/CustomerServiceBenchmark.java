@@ -0,0 +1,71 @@
+package ma.abid.customer_service.benchmarks;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.service.CustomerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CustomerService} operations, transactions included, against an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerServiceBenchmark {
+    @Param("10000")
+    int rows;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(WebApplicationType.NONE);
+        ids = BenchmarkContexts.seed(context, rows);
+        customerService = context.getBean(CustomerService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CustomerDTO getCustomerById() {
+        return customerService.getCustomerById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public CustomerPageDTO getCustomersPage() {
+        return customerService.getCustomersPage(null, 50);
+    }
+
+    @Benchmark
+    public List<CustomerDTO> getAllCustomers() {
+        return customerService.getAllCustomers();
+    }
+
+    @Benchmark
+    public List<CustomerDTO> searchCustomers() {
+        return customerService.searchCustomers("irst99", 20);
+    }
+
+    @Benchmark
+    public CustomerDTO saveNewCustomer() {
+        long n = sequence.incrementAndGet();
+        return customerService.saveNewCustomer(CustomerDTO.builder()
+                .firstName("Bench").lastName("Mark").email("bench" + n + "@abid.com").build());
+    }
+}
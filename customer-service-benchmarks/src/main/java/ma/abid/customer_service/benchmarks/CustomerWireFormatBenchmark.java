@@ -0,0 +1,65 @@
+package ma.abid.customer_service.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.abid.customer_service.dto.CustomerDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding/decoding of {@code List<CustomerDTO>} in each wire format the API negotiates, with the mappers built
+ * the way Spring MVC builds them. The payload size of every format and list size is printed during setup:
+ * <pre>mvn -pl customer-service-benchmarks exec:exec -Djmh.args="CustomerWireFormat"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerWireFormatBenchmark {
+    private static final TypeReference<List<CustomerDTO>> CUSTOMER_LIST = new TypeReference<>() {
+    };
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"1", "100", "10000"})
+    int listSize;
+
+    private ObjectMapper objectMapper;
+    private List<CustomerDTO> customers;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        customers = new ArrayList<>(listSize);
+        for (long i = 1; i <= listSize; i++) {
+            customers.add(CustomerDTO.builder().id(i).firstName("First" + i).lastName("Last" + i)
+                    .email("customer" + i + "@abid.com").version(i % 7).build());
+        }
+        payload = objectMapper.writeValueAsBytes(customers);
+        System.out.printf("%n%s payload for %d customers: %d bytes (%.1f per customer)%n",
+                format, listSize, payload.length, (double) payload.length / listSize);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(customers);
+    }
+
+    @Benchmark
+    public List<CustomerDTO> deserialize() throws IOException {
+        return objectMapper.readValue(payload, CUSTOMER_LIST);
+    }
+}
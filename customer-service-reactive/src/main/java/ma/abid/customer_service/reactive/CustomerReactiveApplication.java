@@ -0,0 +1,29 @@
+package ma.abid.customer_service.reactive;
+
+import ma.abid.customer_service.reactive.entities.Customer;
+import ma.abid.customer_service.reactive.repository.CustomerRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import reactor.core.publisher.Flux;
+
+@SpringBootApplication
+public class CustomerReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(CustomerReactiveApplication.class, args);
+	}
+
+	@Bean
+	@Profile("!test")
+	CommandLineRunner commandLineRunner(CustomerRepository customerRepository){
+		return args -> Flux.just(
+						Customer.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build(),
+						Customer.builder().firstName("Kamal").lastName("ABID").email("kamal@abid.com").build(),
+						Customer.builder().firstName("Bilal").lastName("ABID").email("bilal@abid.com").build())
+				.concatMap(customerRepository::save)
+				.blockLast();
+	}
+}
@@ -0,0 +1,23 @@
+package ma.abid.customer_service.reactive.entities;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * R2DBC mapping of the {@code customer} table created by {@code schema.sql}; same columns as the JPA entity.
+ */
+@Table("customer")
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class Customer {
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_customer_email";
+
+    @Id
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    @Version
+    private Long version;
+}
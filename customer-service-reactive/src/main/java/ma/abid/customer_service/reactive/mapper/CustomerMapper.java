@@ -0,0 +1,19 @@
+package ma.abid.customer_service.reactive.mapper;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.reactive.entities.Customer;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CustomerMapper {
+
+    public CustomerDTO fromCustomer(Customer customer){
+        if (customer == null) throw new IllegalArgumentException("source cannot be null");
+        return new CustomerDTO(customer.getId(), customer.getFirstName(), customer.getLastName(), customer.getEmail(), customer.getVersion());
+    }
+
+    public Customer fromCustomerDTO(CustomerDTO customerDTO){
+        if (customerDTO == null) throw new IllegalArgumentException("source cannot be null");
+        return new Customer(customerDTO.getId(), customerDTO.getFirstName(), customerDTO.getLastName(), customerDTO.getEmail(), customerDTO.getVersion());
+    }
+}
@@ -0,0 +1,66 @@
+package ma.abid.customer_service.reactive.repository;
+
+import ma.abid.customer_service.reactive.entities.Customer;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+public interface CustomerRepository extends ReactiveCrudRepository<Customer, Long> {
+
+    @Query("select * from customer order by id")
+    Flux<Customer> findAllOrderById();
+
+    /**
+     * Keyset (seek) page: at most {@code limit} rows after {@code afterId} in primary key order.
+     */
+    @Query("select * from customer where id > :afterId order by id limit :limit")
+    Flux<Customer> findPageAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Case-insensitive substring match on first name, last name or email, ranked as in the servlet service: a
+     * first-name hit outweighs a last-name hit, which outweighs an email hit, and within a field an exact match
+     * beats a prefix match beats an infix match; ties go to the lowest id. The keyword is trimmed, and {@code %},
+     * {@code _} and {@code \} in it match themselves.
+     */
+    default Flux<Customer> searchByKeyword(String keyword, int limit) {
+        String normalizedKeyword = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        String escapedKeyword = normalizedKeyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return searchByLikePattern(normalizedKeyword, escapedKeyword + "%", "%" + escapedKeyword + "%", limit);
+    }
+
+    @Query("select * from customer"
+            + " where lower(first_name) like :pattern escape '\\' or lower(last_name) like :pattern escape '\\'"
+            + " or lower(email) like :pattern escape '\\'"
+            + " order by 3 * (case when lower(first_name) = :keyword then 100 when lower(first_name) like :prefix escape '\\' then 50"
+            + " when lower(first_name) like :pattern escape '\\' then 10 else 0 end)"
+            + " + 2 * (case when lower(last_name) = :keyword then 100 when lower(last_name) like :prefix escape '\\' then 50"
+            + " when lower(last_name) like :pattern escape '\\' then 10 else 0 end)"
+            + " + (case when lower(email) = :keyword then 100 when lower(email) like :prefix escape '\\' then 50"
+            + " when lower(email) like :pattern escape '\\' then 10 else 0 end) desc, id limit :limit")
+    Flux<Customer> searchByLikePattern(@Param("keyword") String keyword, @Param("prefix") String prefix,
+                                       @Param("pattern") String pattern, @Param("limit") int limit);
+
+    @Query("select version from customer where id = :id")
+    Mono<Long> findVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update customer set first_name = :firstName, last_name = :lastName, email = :email,"
+            + " version = version + 1 where id = :id")
+    Mono<Integer> updateCustomer(@Param("id") Long id, @Param("firstName") String firstName,
+                                 @Param("lastName") String lastName, @Param("email") String email);
+
+    @Modifying
+    @Query("update customer set first_name = :firstName, last_name = :lastName, email = :email,"
+            + " version = version + 1 where id = :id and version = :version")
+    Mono<Integer> updateCustomerIfVersion(@Param("id") Long id, @Param("version") Long version, @Param("firstName") String firstName,
+                                          @Param("lastName") String lastName, @Param("email") String email);
+
+    @Modifying
+    @Query("delete from customer where id = :id")
+    Mono<Integer> deleteCustomerById(@Param("id") Long id);
+}
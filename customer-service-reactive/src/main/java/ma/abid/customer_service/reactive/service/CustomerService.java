@@ -0,0 +1,20 @@
+package ma.abid.customer_service.reactive.service;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the servlet service's {@code CustomerService}. Errors are signalled with the same
+ * exceptions ({@code CustomerNotFoundException}, {@code EmailAlreadyExistException}, ...), as error signals.
+ */
+public interface CustomerService {
+    Mono<CustomerDTO> saveNewCustomer(CustomerDTO customerDTO);
+    Flux<CustomerDTO> getAllCustomers();
+    Mono<CustomerPageDTO> getCustomersPage(String cursor, int size);
+    Mono<CustomerDTO> getCustomerById(Long id);
+    Flux<CustomerDTO> searchCustomers(String keyword, int limit);
+    Mono<CustomerDTO> upDateCustomer(Long id, CustomerDTO customerDTO);
+    Mono<Void> deleteCustomer(Long id);
+}
@@ -0,0 +1,141 @@
+package ma.abid.customer_service.reactive.service;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
+import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
+import ma.abid.customer_service.reactive.entities.Customer;
+import ma.abid.customer_service.reactive.mapper.CustomerMapper;
+import ma.abid.customer_service.reactive.repository.CustomerRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+@Transactional
+public class CustomerServiceImpl implements CustomerService {
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_SEARCH_RESULTS = 200;
+
+    private final CustomerRepository customerRepository;
+    private final CustomerMapper customerMapper;
+
+    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper) {
+        this.customerRepository = customerRepository;
+        this.customerMapper = customerMapper;
+    }
+
+    @Override
+    public Mono<CustomerDTO> saveNewCustomer(CustomerDTO customerDTO) {
+        Customer customerToSave = customerMapper.fromCustomerDTO(customerDTO);
+        customerToSave.setId(null);
+        customerToSave.setVersion(null);
+        // the unique constraint on email is the duplicate check, as in the servlet service
+        return customerRepository.save(customerToSave)
+                .onErrorMap(DataIntegrityViolationException.class, e -> emailConflict(e, "Email already exists: " + customerDTO.getEmail()))
+                .map(customerMapper::fromCustomer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<CustomerDTO> getAllCustomers() {
+        return customerRepository.findAllOrderById().map(customerMapper::fromCustomer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<CustomerPageDTO> getCustomersPage(String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return Mono.fromCallable(() -> decodeCursor(cursor))
+                // one extra row tells us whether a next page exists without a count query
+                .flatMap(afterId -> customerRepository.findPageAfter(afterId, pageSize + 1).collectList())
+                .map(customers -> {
+                    boolean hasNext = customers.size() > pageSize;
+                    List<Customer> page = hasNext ? customers.subList(0, pageSize) : customers;
+                    return CustomerPageDTO.builder()
+                            .content(page.stream().map(customerMapper::fromCustomer).toList())
+                            .size(page.size())
+                            .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1).getId()) : null)
+                            .build();
+                });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<CustomerDTO> getCustomerById(Long id) {
+        return customerRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new CustomerNotFoundException("This Customer not found")))
+                .map(customerMapper::fromCustomer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<CustomerDTO> searchCustomers(String keyword, int limit) {
+        int maxResults = Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS);
+        return customerRepository.searchByKeyword(keyword, maxResults).map(customerMapper::fromCustomer);
+    }
+
+    @Override
+    public Mono<CustomerDTO> upDateCustomer(Long id, CustomerDTO customerDTO) {
+        Long expectedVersion = customerDTO.getVersion();
+        Mono<Integer> updatedRows = expectedVersion == null
+                ? customerRepository.updateCustomer(id, customerDTO.getFirstName(), customerDTO.getLastName(), customerDTO.getEmail())
+                : customerRepository.updateCustomerIfVersion(id, expectedVersion, customerDTO.getFirstName(), customerDTO.getLastName(), customerDTO.getEmail());
+        return updatedRows
+                .onErrorMap(DataIntegrityViolationException.class, e -> emailConflict(e, "Email already exists: " + customerDTO.getEmail()))
+                .flatMap(rows -> {
+                    if (rows > 0) {
+                        // an unversioned update bumped whatever version the row had: read it back in this transaction
+                        Mono<Long> newVersion = expectedVersion == null ? customerRepository.findVersionById(id) : Mono.just(expectedVersion + 1);
+                        return newVersion.map(version -> new CustomerDTO(id, customerDTO.getFirstName(), customerDTO.getLastName(),
+                                customerDTO.getEmail(), version));
+                    }
+                    if (expectedVersion == null) return Mono.error(new CustomerNotFoundException("This Customer not found"));
+                    // tell a stale version from a missing row, only on the failure path
+                    return customerRepository.existsById(id).flatMap(exists -> Mono.error(exists
+                            ? new CustomerVersionConflictException("This Customer was modified concurrently")
+                            : new CustomerNotFoundException("This Customer not found")));
+                });
+    }
+
+    @Override
+    public Mono<Void> deleteCustomer(Long id) {
+        return customerRepository.deleteCustomerById(id)
+                .flatMap(rows -> rows == 0 ? Mono.error(new CustomerNotFoundException("This Customer not found")) : Mono.empty());
+    }
+
+    /**
+     * R2DBC drivers do not expose the constraint name, so the driver message (which contains it on both H2 and
+     * PostgreSQL) is matched instead; any other integrity violation is returned unchanged.
+     */
+    static Throwable emailConflict(DataIntegrityViolationException e, String message) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains(Customer.EMAIL_UNIQUE_CONSTRAINT)) {
+                return new EmailAlreadyExistException(message);
+            }
+        }
+        return e;
+    }
+
+    static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long decodeCursor(String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isBlank()) return 0L;
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ma.abid.customer_service.reactive.web;
+
+import jakarta.validation.Valid;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.reactive.service.CustomerService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same {@code /api/customers} contract as the servlet {@code CustomerRestController}. List and search return a
+ * {@link Flux}: rows are encoded as they arrive from R2DBC, as a JSON array by default or one document per line
+ * for {@code Accept: application/x-ndjson}.
+ */
+@RestController
+@RequestMapping("/api")
+public class CustomerRestController {
+
+    private final CustomerService customerService;
+
+    public CustomerRestController(CustomerService customerService) {
+        this.customerService = customerService;
+    }
+
+    @GetMapping(value = "/customers", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<CustomerDTO> getAllCustomers(){
+        return customerService.getAllCustomers();
+    }
+
+    @GetMapping("/customers/page")
+    public Mono<CustomerPageDTO> getCustomersPage(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "${customer.pagination.default-size:50}") int size){
+        return customerService.getCustomersPage(cursor, size);
+    }
+
+    @GetMapping(value = "/customers/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerDTO> streamAllCustomers(){
+        return customerService.getAllCustomers();
+    }
+
+    @GetMapping("/customers/{id}")
+    public Mono<CustomerDTO> getCustomerById(@PathVariable Long id){
+        return customerService.getCustomerById(id);
+    }
+
+    @GetMapping(value = "/customers/search", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<CustomerDTO> getSearchedCustomers(@RequestParam String keyword,
+                                                  @RequestParam(defaultValue = "${customer.search.default-limit:20}") int limit){
+        return customerService.searchCustomers(keyword, limit);
+    }
+
+    @PostMapping("/customers")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<CustomerDTO> saveNewCustomer(@RequestBody @Valid CustomerDTO customerDTO){
+        return customerService.saveNewCustomer(customerDTO);
+    }
+
+    @PutMapping("/customers/{id}")
+    public Mono<CustomerDTO> updateCustomer(@PathVariable Long id, @RequestBody @Valid CustomerDTO customerDTO){
+        return customerService.upDateCustomer(id, customerDTO);
+    }
+
+    @DeleteMapping("/customers/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteCustomer(@PathVariable Long id){
+        return customerService.deleteCustomer(id);
+    }
+}
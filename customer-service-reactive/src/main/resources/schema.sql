@@ -0,0 +1,8 @@
+create table if not exists customer (
+    id bigint generated by default as identity primary key,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    email varchar(255) not null,
+    version bigint not null default 0,
+    constraint uk_customer_email unique (email)
+);
@@ -0,0 +1,12 @@
+package ma.abid.customer_service.reactive;
+
+import ma.abid.customer_service.CustomerApiContractTest;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * The same contract on the default in-memory H2 database, for machines without Docker.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.r2dbc.url=r2dbc:h2:mem:///customer-contract-db")
+public class CustomerReactiveH2IntegrationTest extends CustomerApiContractTest {
+}
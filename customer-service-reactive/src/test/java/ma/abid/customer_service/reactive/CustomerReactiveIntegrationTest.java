@@ -0,0 +1,20 @@
+package ma.abid.customer_service.reactive;
+
+import ma.abid.customer_service.CustomerApiContractTest;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * The servlet service's integration tests, run against the reactive stack on PostgreSQL over R2DBC.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class CustomerReactiveIntegrationTest extends CustomerApiContractTest {
+
+    @Container
+    @ServiceConnection
+    private static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:latest");
+}
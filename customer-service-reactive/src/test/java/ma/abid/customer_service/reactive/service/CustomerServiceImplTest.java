@@ -0,0 +1,133 @@
+package ma.abid.customer_service.reactive.service;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
+import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
+import ma.abid.customer_service.reactive.entities.Customer;
+import ma.abid.customer_service.reactive.mapper.CustomerMapper;
+import ma.abid.customer_service.reactive.repository.CustomerRepository;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerServiceImplTest {
+    @Mock
+    CustomerRepository customerRepository;
+    @Spy
+    CustomerMapper customerMapper = new CustomerMapper();
+
+    @InjectMocks
+    CustomerServiceImpl underTest;
+
+    @Test
+    public void shouldGetCustomerById(){
+//        Arrange
+        Customer customer = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+        Mockito.when(customerRepository.findById(1L)).thenReturn(Mono.just(customer));
+
+//        Act & Assert
+        StepVerifier.create(underTest.getCustomerById(1L))
+                .assertNext(result -> AssertionsForClassTypes.assertThat(result.getEmail()).isEqualTo("jawad@abid.com"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void shouldSignalNotFoundForMissingCustomer(){
+//        Arrange
+        Mockito.when(customerRepository.findById(9L)).thenReturn(Mono.empty());
+
+//        Act & Assert
+        StepVerifier.create(underTest.getCustomerById(9L))
+                .expectErrorSatisfies(e -> AssertionsForClassTypes.assertThat(e).isInstanceOf(CustomerNotFoundException.class)
+                        .hasMessage("This Customer not found"))
+                .verify();
+    }
+
+    @Test
+    public void shouldReturnPageWithNextCursor(){
+//        Arrange
+        Mockito.when(customerRepository.findPageAfter(0L, 3)).thenReturn(Flux.just(
+                Customer.builder().id(1L).firstName("Jawad").build(),
+                Customer.builder().id(2L).firstName("Kamal").build(),
+                Customer.builder().id(3L).firstName("Bilal").build()));
+
+//        Act & Assert
+        StepVerifier.create(underTest.getCustomersPage(null, 2))
+                .assertNext(page -> {
+                    AssertionsForClassTypes.assertThat(page.getSize()).isEqualTo(2);
+                    AssertionsForClassTypes.assertThat(page.getNextCursor()).isEqualTo(CustomerServiceImpl.encodeCursor(2L));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void shouldRejectInvalidCursor(){
+//        Act & Assert
+        StepVerifier.create(underTest.getCustomersPage("not a cursor!", 2))
+                .expectError(InvalidCursorException.class)
+                .verify();
+    }
+
+    @Test
+    public void shouldTranslateEmailConstraintViolation(){
+//        Arrange
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        Mockito.when(customerRepository.save(Mockito.any())).thenReturn(Mono.error(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_CUSTOMER_EMAIL_INDEX_5 ON PUBLIC.CUSTOMER(EMAIL)\"")));
+
+//        Act & Assert
+        StepVerifier.create(underTest.saveNewCustomer(customerDTO))
+                .expectErrorSatisfies(e -> AssertionsForClassTypes.assertThat(e).isInstanceOf(EmailAlreadyExistException.class)
+                        .hasMessage("Email already exists: jawad@abid.com"))
+                .verify();
+    }
+
+    @Test
+    public void shouldUpdateInOneStatement(){
+//        Arrange
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(2L).build();
+        Mockito.when(customerRepository.updateCustomerIfVersion(1L, 2L, "Jawadd", "ABID", "jawad@abid.com")).thenReturn(Mono.just(1));
+
+//        Act & Assert
+        StepVerifier.create(underTest.upDateCustomer(1L, customerDTO))
+                .assertNext(result -> AssertionsForClassTypes.assertThat(result.getVersion()).isEqualTo(3L))
+                .verifyComplete();
+        Mockito.verify(customerRepository, Mockito.never()).findById(1L);
+    }
+
+    @Test
+    public void shouldSignalConflictForStaleVersion(){
+//        Arrange
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(1L).build();
+        Mockito.when(customerRepository.updateCustomerIfVersion(1L, 1L, "Jawadd", "ABID", "jawad@abid.com")).thenReturn(Mono.just(0));
+        Mockito.when(customerRepository.existsById(1L)).thenReturn(Mono.just(true));
+
+//        Act & Assert
+        StepVerifier.create(underTest.upDateCustomer(1L, customerDTO))
+                .expectError(CustomerVersionConflictException.class)
+                .verify();
+    }
+
+    @Test
+    public void shouldSignalNotFoundOnDeleteOfMissingCustomer(){
+//        Arrange
+        Mockito.when(customerRepository.deleteCustomerById(9L)).thenReturn(Mono.just(0));
+
+//        Act & Assert
+        StepVerifier.create(underTest.deleteCustomer(9L))
+                .expectError(CustomerNotFoundException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,48 @@
+package ma.abid.customer_service.bulk;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * File formats read by {@link CustomerImporter} and written by {@link CustomerExporter}. CSV has a
+ * header row naming the {@code CustomerDTO} properties; NDJSON is one JSON customer per line.
+ */
+public enum CustomerDataFormat {
+    CSV("text/csv", ".csv"),
+    NDJSON("application/x-ndjson", ".ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    CustomerDataFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static CustomerDataFormat fromMediaType(MediaType mediaType) {
+        for (CustomerDataFormat format : values()) {
+            if (MediaType.parseMediaType(format.mediaType).isCompatibleWith(mediaType)) return format;
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + mediaType);
+    }
+
+    /** Format from a file name such as {@code customers.csv} or {@code customers.ndjson.gz}. */
+    public static CustomerDataFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        for (CustomerDataFormat format : values()) {
+            if (name.endsWith(format.extension)) return format;
+        }
+        if (name.endsWith(".jsonl")) return NDJSON;
+        throw new IllegalArgumentException("Cannot tell the import format of " + fileName);
+    }
+}
@@ -0,0 +1,58 @@
+package ma.abid.customer_service.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.abid.customer_service.dto.ImportReportDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command-line import of a CSV or NDJSON file (optionally gzipped), logging progress and rejected rows:
+ * <pre>java -jar customer-service-exec.jar --customer.import.file=customers.csv.gz --spring.main.web-application-type=none</pre>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("customer.import.file")
+public class CustomerImportRunner implements ApplicationRunner {
+    private final CustomerImporter customerImporter;
+    private final String file;
+
+    public CustomerImportRunner(CustomerImporter customerImporter, @Value("${customer.import.file}") String file) {
+        this.customerImporter = customerImporter;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path path = Path.of(file);
+        CustomerDataFormat format = CustomerDataFormat.fromFileName(path.getFileName().toString());
+        log.info("Importing customers from {} as {}", path, format);
+        try (InputStream input = open(path)) {
+            ImportReportDTO summary = customerImporter.importCustomers(input, format, report -> {
+                if (report.getType() == ImportReportDTO.Type.REJECTED) {
+                    log.warn("Row {} rejected ({}): {}", report.getRow(), report.getStatus(), report.getMessage());
+                } else {
+                    log.info("{} rows processed, {} imported, {} rejected ({} rows/s)",
+                            report.getProcessed(), report.getImported(), report.getRejected(), report.getRowsPerSecond());
+                }
+            });
+            log.info("Import of {} completed: {} imported, {} rejected, {} rows/s overall",
+                    path, summary.getImported(), summary.getRejected(), summary.getRowsPerSecond());
+        }
+    }
+
+    private static InputStream open(Path path) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz") ? new GZIPInputStream(input, 1 << 16) : input;
+    }
+}
@@ -0,0 +1,221 @@
+package ma.abid.customer_service.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.ImportReportDTO;
+import ma.abid.customer_service.service.CustomerService;
+import ma.abid.customer_service.service.CustomerServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Streaming bulk import: records are parsed one at a time and handed to
+ * {@link CustomerService#saveNewCustomers} in chunks of {@code customer.import.chunk-size}, so only one
+ * chunk is ever held in memory. Each chunk therefore gets the batch endpoint's behaviour: the
+ * {@code CustomerDTO} constraints, one {@code findExistingEmails} round trip to dedupe against the
+ * database, and a single transaction with batched inserts, re-run by the service when an email is taken
+ * concurrently so that only the rows using it are rejected.
+ * <p>
+ * Rejected records and a progress line per chunk are reported to the caller as they happen. Meters:
+ * {@code customer.import.rows} (by {@code outcome}), {@code customer.import.chunk} (time spent writing a
+ * chunk) and {@code customer.import.throughput} (rows/s of the latest chunk while an import runs, of the
+ * whole import once it completes).
+ */
+@Component
+public class CustomerImporter {
+    private final CustomerService customerService;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final int chunkSize;
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+    private final Timer chunkTimer;
+    private final AtomicLong throughput;
+
+    public CustomerImporter(CustomerService customerService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${customer.import.chunk-size:500}") int chunkSize) {
+        this.customerService = customerService;
+        this.ndjsonReader = objectMapper.readerFor(CustomerDTO.class);
+        this.csvReader = CsvMapper.builder()
+                .enable(CsvParser.Feature.TRIM_SPACES, CsvParser.Feature.SKIP_EMPTY_LINES, CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+                .build()
+                .readerFor(CustomerDTO.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.chunkSize = Math.min(Math.max(chunkSize, 1), CustomerServiceImpl.MAX_BATCH_SIZE);
+        this.importedRows = meterRegistry.counter("customer.import.rows", "outcome", "imported");
+        this.rejectedRows = meterRegistry.counter("customer.import.rows", "outcome", "rejected");
+        this.chunkTimer = Timer.builder("customer.import.chunk").publishPercentileHistogram().register(meterRegistry);
+        this.throughput = meterRegistry.gauge("customer.import.throughput", new AtomicLong());
+    }
+
+    /**
+     * Imports every record of {@code input}, which is read but not closed. Rejections and progress go to
+     * {@code listener}; the returned summary is the {@code COMPLETED} line.
+     */
+    public ImportReportDTO importCustomers(InputStream input, CustomerDataFormat format,
+                                           Consumer<ImportReportDTO> listener) throws IOException {
+        Progress progress = new Progress(listener);
+        List<CustomerDTO> chunk = new ArrayList<>(chunkSize);
+        List<Long> rows = new ArrayList<>(chunkSize);
+        long start = System.nanoTime();
+        try (RecordSource source = format == CustomerDataFormat.CSV ? csv(input) : ndjson(input)) {
+            long row = 0;
+            long chunkStart = System.nanoTime();
+            ParsedRecord record;
+            while ((record = source.next()) != null) {
+                row++;
+                if (record.error() != null) {
+                    progress.reject(row, BatchItemResultDTO.Status.INVALID, record.error());
+                    continue;
+                }
+                chunk.add(record.customer());
+                rows.add(row);
+                if (chunk.size() == chunkSize) {
+                    write(chunk, rows, progress, chunkStart);
+                    chunkStart = System.nanoTime();
+                }
+            }
+            if (!chunk.isEmpty()) write(chunk, rows, progress, chunkStart);
+        }
+        ImportReportDTO summary = progress.report(ImportReportDTO.Type.COMPLETED, System.nanoTime() - start, progress.processed);
+        throughput.set(summary.getRowsPerSecond());
+        return summary;
+    }
+
+    private void write(List<CustomerDTO> chunk, List<Long> rows, Progress progress, long chunkStart) {
+        List<BatchItemResultDTO> results = chunkTimer.record(() -> customerService.saveNewCustomers(chunk));
+        for (BatchItemResultDTO result : results) {
+            if (result.getStatus() == BatchItemResultDTO.Status.CREATED) progress.imported();
+            else progress.reject(rows.get(result.getIndex()), result.getStatus(), result.getMessage());
+        }
+        long chunkRows = progress.processed - progress.reportedProcessed;
+        ImportReportDTO report = progress.report(ImportReportDTO.Type.PROGRESS, System.nanoTime() - chunkStart, chunkRows);
+        throughput.set(report.getRowsPerSecond());
+        progress.listener.accept(report);
+        chunk.clear();
+        rows.clear();
+    }
+
+    private RecordSource csv(InputStream input) throws IOException {
+        MappingIterator<CustomerDTO> iterator = csvReader.readValues(input);
+        return new RecordSource() {
+            private long lastErrorOffset = -1;
+
+            @Override
+            public ParsedRecord next() throws IOException {
+                try {
+                    if (!iterator.hasNextValue()) return null;
+                    return new ParsedRecord(iterator.nextValue(), null);
+                } catch (JsonProcessingException e) {
+                    // the iterator resyncs to the next row on the following call; give up if it cannot move past the error
+                    long offset = iterator.getParser().currentLocation().getCharOffset();
+                    if (offset == lastErrorOffset) throw e;
+                    lastErrorOffset = offset;
+                    return new ParsedRecord(null, malformed(e));
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                iterator.close();
+            }
+        };
+    }
+
+    private RecordSource ndjson(InputStream input) {
+        // line by line, so one malformed line cannot derail the parser for the rest of the stream
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        return new RecordSource() {
+            @Override
+            public ParsedRecord next() throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                    if (line == null) return null;
+                } while (line.isBlank());
+                try {
+                    return new ParsedRecord(ndjsonReader.readValue(line), null);
+                } catch (JsonProcessingException e) {
+                    return new ParsedRecord(null, malformed(e));
+                }
+            }
+
+            @Override
+            public void close() {
+                // the caller owns the input stream
+            }
+        };
+    }
+
+    private static String malformed(JsonProcessingException e) {
+        return "Malformed record: " + e.getOriginalMessage();
+    }
+
+    private interface RecordSource extends Closeable {
+        /** Next record, or {@code null} at the end of the input. */
+        ParsedRecord next() throws IOException;
+    }
+
+    private record ParsedRecord(CustomerDTO customer, String error) {
+    }
+
+    private final class Progress {
+        final Consumer<ImportReportDTO> listener;
+        long processed;
+        long reportedProcessed;
+        long imported;
+        long rejected;
+
+        Progress(Consumer<ImportReportDTO> listener) {
+            this.listener = listener;
+        }
+
+        void imported() {
+            processed++;
+            imported++;
+            importedRows.increment();
+        }
+
+        void reject(long row, BatchItemResultDTO.Status status, String message) {
+            processed++;
+            rejected++;
+            rejectedRows.increment();
+            listener.accept(ImportReportDTO.builder().type(ImportReportDTO.Type.REJECTED).row(row).status(status).message(message).build());
+        }
+
+        ImportReportDTO report(ImportReportDTO.Type type, long elapsedNanos, long rows) {
+            reportedProcessed = processed;
+            long rowsPerSecond = elapsedNanos <= 0 ? 0 : rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+            return ImportReportDTO.builder().type(type)
+                    .processed(processed).imported(imported).rejected(rejected)
+                    .rowsPerSecond(rowsPerSecond)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ma.abid.customer_service.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Tells the other instances to drop {@code key} (all entries when {@code null}) from their near cache.
+ * The key keeps its Java type on the wire, so a {@code Long} id still matches the near cache's key.
+ *
+ * @param origin instance that made the change; it ignores its own messages
+ * @param sentAt epoch millis when the change was applied, for measuring invalidation lag
+ */
+public record CacheInvalidation(String origin, String cacheName,
+                                @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.WRAPPER_ARRAY) Object key,
+                                long sentAt) {
+}
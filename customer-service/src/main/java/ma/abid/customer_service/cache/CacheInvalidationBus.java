@@ -0,0 +1,13 @@
+package ma.abid.customer_service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts near-cache invalidations to every instance, the sender included. Delivery is best effort; the
+ * near cache's own expiry bounds how long a lost message can leave an entry stale.
+ */
+public interface CacheInvalidationBus {
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
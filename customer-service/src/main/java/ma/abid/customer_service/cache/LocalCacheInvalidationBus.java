@@ -0,0 +1,23 @@
+package ma.abid.customer_service.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for {@link RedisCacheInvalidationBus}: delivers synchronously to the subscribers of this
+ * JVM. Enough for a single instance, and for tests that put several cache managers on one bus.
+ */
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> listener : listeners) listener.accept(invalidation);
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
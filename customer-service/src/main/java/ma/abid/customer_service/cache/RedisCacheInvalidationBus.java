@@ -0,0 +1,58 @@
+package ma.abid.customer_service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub on {@code customer.cache.redis.channel}. Messages published while an instance is disconnected
+ * are lost to it (pub/sub keeps nothing), which the near-cache expiry covers.
+ */
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ChannelTopic channel;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer,
+                                     ObjectMapper objectMapper, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.channel = new ChannelTopic(channel);
+        this.writer = objectMapper.writerFor(CacheInvalidation.class);
+        this.reader = objectMapper.readerFor(CacheInvalidation.class);
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        try {
+            redisTemplate.convertAndSend(channel.getTopic(), writer.writeValueAsString(invalidation));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            // the write has committed; failing the request would not undo it
+            log.warn("Could not publish cache invalidation {}: {}", invalidation, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                listener.accept(reader.readValue(message.getBody()));
+            } catch (IOException e) {
+                log.warn("Ignoring malformed cache invalidation on {}: {}", channel, e.getMessage());
+            }
+        }, channel);
+    }
+}
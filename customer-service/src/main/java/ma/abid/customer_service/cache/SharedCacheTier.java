@@ -0,0 +1,11 @@
+package ma.abid.customer_service.cache;
+
+import org.springframework.cache.Cache;
+
+/**
+ * The tier behind the near caches, shared by all instances (selected with {@code customer.cache.shared}).
+ */
+@FunctionalInterface
+public interface SharedCacheTier {
+    Cache getCache(String name);
+}
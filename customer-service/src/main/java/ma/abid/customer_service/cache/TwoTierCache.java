@@ -0,0 +1,206 @@
+package ma.abid.customer_service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A near cache in front of a shared one. Reads try the near cache, then the shared cache (copying a hit into the
+ * near cache), and report a miss only when both miss. {@link #put} and {@link #evict} are writes: they go to both
+ * tiers and are broadcast so the other instances drop their near copy and re-read the shared tier. A miss filled
+ * through {@link #get(Object, Callable)} ({@code @Cacheable(sync = true)}) is not a change and stays local.
+ * <p>
+ * A fill can race a write on another instance: the value loaded may be older than the one the writer puts, or
+ * belong to a customer the writer just deleted. So fills only go into the shared tier if the key is absent there,
+ * a fill is not kept at all when the key was invalidated while it loaded, and an invalidation that arrives within
+ * {@link #FILL_FENCE} of a fill also removes that fill from the shared tier, in case it landed after the writer's
+ * evict. Loads of the same key on one instance are serialized, so {@code sync = true} still means one load.
+ * <p>
+ * Lookups are counted in {@code customer.cache.gets} by {@code tier} and {@code result}: the near hit ratio is
+ * {@code near/hit} over all {@code near} lookups, and only {@code shared} misses reach the database.
+ */
+public class TwoTierCache implements Cache {
+    /** Longer than an invalidation takes to reach the other instances. */
+    static final Duration FILL_FENCE = Duration.ofSeconds(30);
+    private static final int STRIPES = 64;
+
+    private final Cache near;
+    private final Cache shared;
+    private final TwoTierCacheManager cacheManager;
+    private final Counter nearHits;
+    private final Counter nearMisses;
+    private final Counter sharedHits;
+    private final Counter sharedMisses;
+    private final ReentrantLock[] loadLocks = new ReentrantLock[STRIPES];
+    // bumped by every write or invalidation of a key in the stripe, so a load can tell it was overtaken
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Boolean> recentFills =
+            Caffeine.newBuilder().expireAfterWrite(FILL_FENCE).build();
+
+    TwoTierCache(Cache near, Cache shared, TwoTierCacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.near = near;
+        this.shared = shared;
+        this.cacheManager = cacheManager;
+        this.nearHits = gets(meterRegistry, "near", "hit");
+        this.nearMisses = gets(meterRegistry, "near", "miss");
+        this.sharedHits = gets(meterRegistry, "shared", "hit");
+        this.sharedMisses = gets(meterRegistry, "shared", "miss");
+        for (int i = 0; i < STRIPES; i++) loadLocks[i] = new ReentrantLock();
+    }
+
+    @Override
+    public String getName() {
+        return near.getName();
+    }
+
+    /** The near cache's native cache, so existing cache metrics and tests keep seeing the in-process tier. */
+    @Override
+    public Object getNativeCache() {
+        return near.getNativeCache();
+    }
+
+    public Cache getNearCache() {
+        return near;
+    }
+
+    public Cache getSharedCache() {
+        return shared;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = near.get(key);
+        if (value != null) {
+            nearHits.increment();
+            return value;
+        }
+        nearMisses.increment();
+        value = shared.get(key);
+        if (value == null) {
+            sharedMisses.increment();
+            return null;
+        }
+        sharedHits.increment();
+        near.put(key, value.get());
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        if (value == null) return null;
+        Object cached = value.get();
+        if (cached != null && type != null && !type.isInstance(cached)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + cached);
+        }
+        return (T) cached;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper value = get(key);
+        if (value != null) return (T) value.get();
+        int stripe = stripe(key);
+        ReentrantLock lock = loadLocks[stripe];
+        lock.lock();
+        try {
+            // a load that finished while we waited has filled the shared tier
+            value = shared.get(key);
+            if (value != null) {
+                near.put(key, value.get());
+                return (T) value.get();
+            }
+            long generation = generations.get(stripe);
+            T loaded;
+            try {
+                loaded = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            if (generations.get(stripe) != generation) return loaded;
+            // a loaded value is what the database already held, so there is nothing to invalidate elsewhere; a
+            // value a writer put meanwhile is newer and stays
+            ValueWrapper written = shared.putIfAbsent(key, loaded);
+            if (written != null) return loaded;
+            recentFills.put(key, Boolean.TRUE);
+            if (generations.get(stripe) != generation) {
+                shared.evict(key);
+                return loaded;
+            }
+            near.put(key, loaded);
+            return loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        invalidated(key);
+        shared.put(key, value);
+        near.put(key, value);
+        cacheManager.invalidateElsewhere(getName(), key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = get(key);
+        if (existing != null) return existing;
+        put(key, value);
+        return null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        invalidated(key);
+        shared.evict(key);
+        near.evict(key);
+        cacheManager.invalidateElsewhere(getName(), key);
+    }
+
+    @Override
+    public void clear() {
+        invalidated(null);
+        shared.clear();
+        near.clear();
+        cacheManager.invalidateElsewhere(getName(), null);
+    }
+
+    /** Drops the near copy only: another instance changed the entry and has already updated the shared tier. */
+    void evictNear(Object key) {
+        invalidated(key);
+        if (key == null) {
+            near.clear();
+            recentFills.asMap().keySet().forEach(shared::evict);
+            recentFills.invalidateAll();
+        } else {
+            near.evict(key);
+            // our fill may have reached the shared tier after the writer's evict
+            if (recentFills.asMap().remove(key) != null) shared.evict(key);
+        }
+    }
+
+    private void invalidated(Object key) {
+        if (key == null) {
+            for (int i = 0; i < STRIPES; i++) generations.incrementAndGet(i);
+        } else {
+            generations.incrementAndGet(stripe(key));
+        }
+    }
+
+    private static int stripe(Object key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+    private Counter gets(MeterRegistry meterRegistry, String tier, String result) {
+        return meterRegistry.counter("customer.cache.gets", "cache", getName(), "tier", tier, "result", result);
+    }
+}
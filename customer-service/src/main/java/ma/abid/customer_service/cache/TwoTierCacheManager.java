@@ -0,0 +1,74 @@
+package ma.abid.customer_service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps each cache of the near (in-process) manager in a {@link TwoTierCache} over the same-named cache of the
+ * {@link SharedCacheTier}, and applies the invalidations other instances broadcast on the
+ * {@link CacheInvalidationBus}.
+ * <p>
+ * Meters: {@code customer.cache.invalidations} by {@code direction} ({@code sent}, {@code received}) and
+ * {@code customer.cache.invalidation.lag}, the time from a change on one instance to its near-cache eviction on
+ * another (across instances this includes their clock skew).
+ */
+public class TwoTierCacheManager implements CacheManager {
+    private final CacheManager nearCacheManager;
+    private final SharedCacheTier sharedCacheTier;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+    private final Counter sent;
+    private final Counter received;
+    private final Timer invalidationLag;
+
+    public TwoTierCacheManager(CacheManager nearCacheManager, SharedCacheTier sharedCacheTier,
+                               CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        this.nearCacheManager = nearCacheManager;
+        this.sharedCacheTier = sharedCacheTier;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.sent = meterRegistry.counter("customer.cache.invalidations", "direction", "sent");
+        this.received = meterRegistry.counter("customer.cache.invalidations", "direction", "received");
+        this.invalidationLag = Timer.builder("customer.cache.invalidation.lag").publishPercentileHistogram().register(meterRegistry);
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) return cache;
+        Cache near = nearCacheManager.getCache(name);
+        if (near == null) return null;
+        return caches.computeIfAbsent(name, n -> new TwoTierCache(near, sharedCacheTier.getCache(n), this, meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return nearCacheManager.getCacheNames();
+    }
+
+    void invalidateElsewhere(String cacheName, Object key) {
+        invalidationBus.publish(new CacheInvalidation(instanceId, cacheName, key, System.currentTimeMillis()));
+        sent.increment();
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (instanceId.equals(invalidation.origin())) return;
+        TwoTierCache cache = (TwoTierCache) getCache(invalidation.cacheName());
+        if (cache == null) return;
+        cache.evictNear(invalidation.key());
+        received.increment();
+        invalidationLag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - invalidation.sentAt())));
+    }
+}
@@ -0,0 +1,34 @@
+package ma.abid.customer_service.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary representations of the customer API next to JSON, for service-to-service callers: CBOR
+ * ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}), picked by {@code Accept} for
+ * responses and by {@code Content-Type} for request bodies. Both encode the same DTOs as the JSON API, field
+ * names included, but skip number and string parsing on the way in and out; Smile also back-references
+ * repeated field names, which roughly halves the size of a customer list.
+ * <p>
+ * The mappers come from Spring Boot's {@link Jackson2ObjectMapperBuilder}, so {@code spring.jackson.*} settings
+ * and registered modules apply to every format alike. Declaring the converters as beans replaces the ones
+ * Spring MVC would otherwise create with a default configuration.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter mappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter mappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+}
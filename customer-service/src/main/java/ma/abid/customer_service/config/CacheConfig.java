@@ -0,0 +1,53 @@
+package ma.abid.customer_service.config;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ma.abid.customer_service.cache.CacheInvalidationBus;
+import ma.abid.customer_service.cache.SharedCacheTier;
+import ma.abid.customer_service.cache.TwoTierCache;
+import ma.abid.customer_service.cache.TwoTierCacheManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@EnableCaching
+@Import(SharedCacheConfig.class)
+public class CacheConfig {
+    public static final String CUSTOMERS_CACHE = "customers";
+
+    /**
+     * Two-tier cache for single-customer reads: a bounded Caffeine near cache per instance in front of the
+     * shared tier, with writes invalidating the other instances' near caches (see {@link TwoTierCacheManager}).
+     * Puts and evictions are deferred until the surrounding transaction commits, so a rolled-back write never
+     * reaches either tier or the other instances. The near cache's {@code expireAfterWrite} bounds how long a
+     * lost invalidation can leave an instance stale.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${customer.cache.spec}") String spec, SharedCacheTier sharedCacheTier,
+                                     CacheInvalidationBus cacheInvalidationBus, MeterRegistry meterRegistry) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(CUSTOMERS_CACHE);
+        caffeineCacheManager.setCaffeineSpec(CaffeineSpec.parse(spec));
+        caffeineCacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(
+                new TwoTierCacheManager(caffeineCacheManager, sharedCacheTier, cacheInvalidationBus, meterRegistry));
+    }
+
+    /**
+     * With {@code recordStats} in the spec, the near cache's hit/miss/eviction counters are published as
+     * {@code cache.*} meters and visible under {@code /actuator/metrics}.
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheMeterBinderProvider<TwoTierCache> twoTierCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+    }
+}
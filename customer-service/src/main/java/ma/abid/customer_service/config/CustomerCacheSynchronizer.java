@@ -0,0 +1,30 @@
+package ma.abid.customer_service.config;
+
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies every customer write, single or batch, to the customers cache. Runs inside the write
+ * transaction; the transaction-aware cache defers the put/evict until commit.
+ */
+@Component
+public class CustomerCacheSynchronizer {
+    private final Cache customersCache;
+
+    public CustomerCacheSynchronizer(CacheManager cacheManager) {
+        this.customersCache = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        // an update made without an expected version does not know the new version: drop the entry
+        if (event.getType() == CustomerChangedEvent.Type.DELETED || event.getCustomer().getVersion() == null) {
+            customersCache.evict(event.getCustomerId());
+        } else {
+            customersCache.put(event.getCustomerId(), event.getCustomer());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ma.abid.customer_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.abid.customer_service.web.TimedJackson2HttpMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Where request time goes, all published with percentile histograms under {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code customer.service} and {@code customer.mapper}: {@code @Timed} on the beans, applied by the
+ *     {@code TimedAspect} that {@code management.observations.annotations.enabled} turns on;</li>
+ *     <li>{@code spring.data.repository.invocations}: every repository call, from Spring Boot;</li>
+ *     <li>{@code customer.serialization}: Jackson response writing, from the converter below;</li>
+ *     <li>{@code customer.exceptions}: domain exceptions by type, from {@code GlobalExceptionHandler};</li>
+ *     <li>{@code hikaricp.connections.*}: pool usage gauges and acquire time, from Spring Boot.</li>
+ * </ul>
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Takes the place of Spring Boot's Jackson converter, which backs off when one is defined.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new TimedJackson2HttpMessageConverter(objectMapper, meterRegistry);
+    }
+}
@@ -0,0 +1,103 @@
+package ma.abid.customer_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.abid.customer_service.routing.ReadYourWritesFilter;
+import ma.abid.customer_service.routing.ReplicaCacheEvictor;
+import ma.abid.customer_service.routing.ReplicaLagMonitor;
+import ma.abid.customer_service.routing.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Active when {@code customer.datasource.replica.url} is set. The {@code spring.datasource.*} database stays
+ * the primary (and keeps the {@code spring.datasource.hikari.*} pool settings); read-only transactions
+ * ({@code getAllCustomers}, {@code getCustomerById}, {@code searchCustomers} and the other
+ * {@code @Transactional(readOnly = true)} service reads) go to the replica pool, configured with
+ * {@code customer.datasource.replica.hikari.*}. Both pools report as {@code hikaricp.*} meters, tagged
+ * {@code pool=primary} and {@code pool=replica}.
+ * <p>
+ * Locally, two H2 databases are enough to see the routing:
+ * <pre>--customer.datasource.replica.url=jdbc:h2:mem:customer-db --customer.datasource.replica.lag-query="select 0"</pre>
+ * (the same in-memory database through a second, read-only pool). The default lag query is PostgreSQL's,
+ * for a streaming replica.
+ */
+@Configuration
+@ConditionalOnProperty("customer.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    /** Also the one Flyway migrates: schema changes must never be routed to a replica. */
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("customer.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${customer.datasource.replica.url}") String url,
+                                              @Value("${customer.datasource.replica.username:}") String username,
+                                              @Value("${customer.datasource.replica.password:}") String password) {
+        // credentials default to the primary's
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url)
+                .username(StringUtils.hasText(username) ? username : properties.determineUsername())
+                .password(StringUtils.hasText(username) ? password : properties.determinePassword())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${customer.datasource.replica.lag-query}") String lagQuery,
+                                               @Value("${customer.datasource.replica.max-lag}") Duration maxLag,
+                                               @Value("${customer.datasource.replica.lag-check-interval}") Duration checkInterval,
+                                               MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(replicaDataSource, lagQuery, maxLag, checkInterval, meterRegistry);
+    }
+
+    /**
+     * The data source JPA and everything else uses. The lazy proxy defers fetching a physical connection to the
+     * first statement, by which time the transaction's read-only flag is known to the router.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor, meterRegistry));
+    }
+
+    @Bean
+    public ReplicaCacheEvictor replicaCacheEvictor(CacheManager cacheManager, ReplicaLagMonitor replicaLagMonitor) {
+        return new ReplicaCacheEvictor(cacheManager, replicaLagMonitor);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${customer.datasource.replica.sticky-window}") Duration stickyWindow) {
+        return new ReadYourWritesFilter(stickyWindow);
+    }
+}
@@ -0,0 +1,128 @@
+package ma.abid.customer_service.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.abid.customer_service.sharding.CustomerEmailDirectory;
+import ma.abid.customer_service.sharding.CustomerEmailDirectoryReaper;
+import ma.abid.customer_service.sharding.ShardContext;
+import ma.abid.customer_service.sharding.ShardRoutingDataSource;
+import ma.abid.customer_service.sharding.SnowflakeIdGenerator;
+import ma.abid.customer_service.sharding.SnowflakeIdentifierGenerator;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Active when {@code customer.sharding.enabled} is set. Customers are spread over the {@code spring.datasource.*}
+ * database, shard 0, and one database per entry of {@code customer.sharding.urls}, shards 1 and up, which share
+ * shard 0's credentials and {@code spring.datasource.hikari.*} pool settings. Every shard gets the same Flyway
+ * migrations, and JPA and everything else use a data source that routes by {@link ShardContext}. Each pool
+ * reports as {@code hikaricp.*} meters, tagged {@code pool=shard-<n>}.
+ * <p>
+ * Locally, in-memory H2 databases are enough:
+ * <pre>--customer.sharding.enabled=true --customer.id.worker-id=0 --customer.sharding.urls=jdbc:h2:mem:customer-shard-1,jdbc:h2:mem:customer-shard-2</pre>
+ * A customer's shard is part of its id, so shards can be appended to the list but never removed or reordered.
+ * Shard 0 also holds the email routing index. Positions are per shard, so {@code GET /api/customers/changes}
+ * answers 501 with more than one shard; the relay publishes every shard's changes to its sink.
+ * {@link CustomerEmailDirectoryReaper} repairs index entries a crash left half-written. Sharding does not combine with a read replica.
+ * <p>
+ * Customer ids come from a {@link SnowflakeIdGenerator} rather than {@code customer_seq}, with the shard in the
+ * id; {@code customer.id.worker-id} (0 to 63) must be different on every instance running at the same time, so it
+ * has no default and startup fails without it.
+ * Customers created before sharding was enabled keep their sequence ids and are on shard 0.
+ */
+@Configuration
+@ConditionalOnProperty(name = "customer.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    /** Also the one Flyway migrates first, and the home of the email routing index. */
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                             @Value("${customer.sharding.urls:}") List<String> urls,
+                                             @Value("${customer.datasource.replica.url:}") String replicaUrl,
+                                             MeterRegistry meterRegistry) {
+        if (StringUtils.hasText(replicaUrl))
+            throw new IllegalStateException("customer.datasource.replica.url cannot be combined with customer.sharding.enabled");
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(primaryDataSource);
+        for (String url : urls) {
+            if (url.isBlank()) continue;
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(url);
+            config.setPoolName("shard-" + shards.size());
+            // shard 0's pool may already carry the Micrometer tracker, which the copy then shares
+            if (config.getMetricsTrackerFactory() == null) config.setMetricRegistry(meterRegistry);
+            shards.add(new HikariDataSource(config));
+        }
+        return new ShardRoutingDataSource(shards, meterRegistry);
+    }
+
+    /** Boot migrates shard 0; the other shards are then migrated the same way, in order. */
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardRoutingDataSource dataSource) {
+        return flyway -> {
+            flyway.migrate();
+            for (DataSource shard : dataSource.getShards().subList(1, dataSource.getShards().size())) {
+                Flyway.configure(flyway.getConfiguration().getClassLoader())
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shard)
+                        .load()
+                        .migrate();
+            }
+        };
+    }
+
+    @Bean
+    public SnowflakeIdGenerator customerIdGenerator(@Value("${customer.id.worker-id:}") String workerId) {
+        // a shared default would give every instance the same ids
+        if (!StringUtils.hasText(workerId))
+            throw new IllegalStateException("customer.id.worker-id must be set, to a value unique per instance, when customer.sharding.enabled");
+        return new SnowflakeIdGenerator(Integer.parseInt(workerId.trim()));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer customerIdGeneratorCustomizer(SnowflakeIdGenerator customerIdGenerator) {
+        return hibernateProperties -> hibernateProperties.put(SnowflakeIdentifierGenerator.GENERATOR_SETTING, customerIdGenerator);
+    }
+
+    @Bean
+    public CustomerEmailDirectory customerEmailDirectory(@Qualifier("primaryDataSource") DataSource primaryDataSource) {
+        return new CustomerEmailDirectory(primaryDataSource);
+    }
+
+    /** A claim older than {@code customer.sharding.email-claim-timeout} belongs to a write that is not coming back. */
+    @Bean
+    public CustomerEmailDirectoryReaper customerEmailDirectoryReaper(CustomerEmailDirectory customerEmailDirectory,
+                                                                     ShardRoutingDataSource dataSource, MeterRegistry meterRegistry,
+                                                                     @Value("${customer.sharding.email-claim-timeout:5m}") Duration claimTimeout,
+                                                                     @Value("${customer.sharding.email-claim-check-interval:1m}") Duration interval) {
+        return new CustomerEmailDirectoryReaper(customerEmailDirectory, dataSource.getShards(), meterRegistry, claimTimeout, interval);
+    }
+}
@@ -0,0 +1,111 @@
+package ma.abid.customer_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import ma.abid.customer_service.cache.CacheInvalidationBus;
+import ma.abid.customer_service.cache.LocalCacheInvalidationBus;
+import ma.abid.customer_service.cache.RedisCacheInvalidationBus;
+import ma.abid.customer_service.cache.SharedCacheTier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+
+/**
+ * The shared cache tier and invalidation bus, selected with {@code customer.cache.shared}:
+ * <ul>
+ *     <li>{@code local} (default): a bounded Caffeine cache and an in-process bus. Nothing is shared between
+ *     instances, so this is for a single instance and tests;</li>
+ *     <li>{@code redis}: a Redis cache with {@code customer.cache.shared.ttl} and pub/sub invalidations on
+ *     {@code customer.cache.redis.channel}, for several instances. Spring Boot's Redis auto-configuration is
+ *     excluded so that an instance without Redis does not report it as down; the connection is set up here from
+ *     {@code spring.data.redis.*} instead.</li>
+ * </ul>
+ */
+@Configuration
+public class SharedCacheConfig {
+
+    @Configuration
+    @ConditionalOnProperty(name = "customer.cache.shared", havingValue = "local", matchIfMissing = true)
+    static class Local {
+        @Bean
+        public SharedCacheTier sharedCacheTier(@Value("${customer.cache.shared.spec:maximumSize=100000,expireAfterWrite=10m}") String spec) {
+            CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+            caffeineCacheManager.setCaffeineSpec(CaffeineSpec.parse(spec));
+            caffeineCacheManager.setAllowNullValues(false);
+            return caffeineCacheManager::getCache;
+        }
+
+        @Bean
+        public CacheInvalidationBus cacheInvalidationBus() {
+            return new LocalCacheInvalidationBus();
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "customer.cache.shared", havingValue = "redis")
+    @EnableConfigurationProperties(RedisProperties.class)
+    static class Redis {
+        /** A standalone server: host, port, credentials, database, timeout and SSL from {@code spring.data.redis.*}. */
+        @Bean
+        public LettuceConnectionFactory redisConnectionFactory(RedisProperties properties) {
+            RedisStandaloneConfiguration server = new RedisStandaloneConfiguration(properties.getHost(), properties.getPort());
+            server.setUsername(properties.getUsername());
+            server.setPassword(RedisPassword.of(properties.getPassword()));
+            server.setDatabase(properties.getDatabase());
+            LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder();
+            if (properties.getTimeout() != null) client.commandTimeout(properties.getTimeout());
+            if (properties.getSsl().isEnabled()) client.useSsl();
+            return new LettuceConnectionFactory(server, client.build());
+        }
+
+        @Bean
+        public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
+            return new StringRedisTemplate(redisConnectionFactory);
+        }
+
+        @Bean
+        public SharedCacheTier sharedCacheTier(RedisConnectionFactory redisConnectionFactory,
+                                               @Value("${customer.cache.shared.ttl}") Duration ttl) {
+            RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+                    .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                            .entryTtl(ttl)
+                            .disableCachingNullValues()
+                            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer())))
+                    .build();
+            redisCacheManager.afterPropertiesSet();
+            return redisCacheManager::getCache;
+        }
+
+        @Bean
+        public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(redisConnectionFactory);
+            return container;
+        }
+
+        @Bean
+        public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate stringRedisTemplate,
+                                                         RedisMessageListenerContainer cacheInvalidationListenerContainer,
+                                                         ObjectMapper objectMapper,
+                                                         @Value("${customer.cache.redis.channel}") String channel) {
+            return new RedisCacheInvalidationBus(stringRedisTemplate, cacheInvalidationListenerContainer, objectMapper, channel);
+        }
+    }
+}
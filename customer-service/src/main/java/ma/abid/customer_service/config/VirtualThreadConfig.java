@@ -0,0 +1,27 @@
+package ma.abid.customer_service.config;
+
+import io.micrometer.java21.instrument.binder.jdk.VirtualThreadMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Active when {@code spring.threads.virtual.enabled=true}. Spring Boot then serves Tomcat requests, MVC async
+ * work (the NDJSON stream) and the application task executor on virtual threads. Blocking JDBC calls park the
+ * virtual thread instead of holding an OS thread. The Hikari pool becomes the effective concurrency limit, and
+ * waiting for it shows up as {@code hikaricp.connections.pending} and {@code hikaricp.connections.acquire}.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    /**
+     * Streams JFR {@code jdk.VirtualThreadPinned} events into the {@code jvm.threads.virtual.pinned} timer, so a
+     * blocking call under a monitor (which pins the carrier on Java 21) is visible under {@code /actuator/metrics}.
+     */
+    @Bean
+    public VirtualThreadMetrics virtualThreadMetrics() {
+        return new VirtualThreadMetrics();
+    }
+}
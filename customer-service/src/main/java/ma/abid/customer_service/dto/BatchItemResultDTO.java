@@ -0,0 +1,17 @@
+package ma.abid.customer_service.dto;
+
+import lombok.*;
+
+/**
+ * Outcome of one element of a batch request; {@code index} is its position in the request body.
+ */
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class BatchItemResultDTO {
+    public enum Status { CREATED, UPDATED, DELETED, INVALID, CONFLICT, NOT_FOUND }
+
+    private int index;
+    private Long id;
+    private Status status;
+    private String message;
+    private CustomerDTO customer;
+}
@@ -0,0 +1,21 @@
+package ma.abid.customer_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.*;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+
+import java.time.Instant;
+
+/**
+ * A published customer change. {@code customer} is the state after the change, as stored in the outbox
+ * (written out verbatim), and absent for deletes.
+ */
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class CustomerChangeDTO {
+    private long position;
+    private CustomerChangedEvent.Type type;
+    private Long customerId;
+    @JsonRawValue
+    private String customer;
+    private Instant occurredAt;
+}
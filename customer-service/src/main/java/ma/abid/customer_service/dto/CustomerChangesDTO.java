@@ -0,0 +1,12 @@
+package ma.abid.customer_service.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class CustomerChangesDTO {
+    private List<CustomerChangeDTO> changes;
+    /** Value to pass back as {@code since} for the following changes; unchanged when there were none. */
+    private long next;
+}
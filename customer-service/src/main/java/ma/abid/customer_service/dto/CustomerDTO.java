@@ -19,4 +19,6 @@ public class CustomerDTO {
     @NotEmpty
     @Size(min = 8)
     private String email;
+    /** Optimistic-locking version; when sent on an update, the update only applies to that version. */
+    private Long version;
 }
@@ -0,0 +1,15 @@
+package ma.abid.customer_service.dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+/**
+ * Result of a lookup: every distinct requested key, in request order, mapped to its customer, or to
+ * {@code null} when no customer has that id or email.
+ */
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class CustomerLookupDTO {
+    private Map<Long, CustomerDTO> ids;
+    private Map<String, CustomerDTO> emails;
+}
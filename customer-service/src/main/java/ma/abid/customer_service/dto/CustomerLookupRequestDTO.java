@@ -0,0 +1,12 @@
+package ma.abid.customer_service.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/** Keys to resolve in one lookup; either list may be omitted. */
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class CustomerLookupRequestDTO {
+    private List<Long> ids;
+    private List<String> emails;
+}
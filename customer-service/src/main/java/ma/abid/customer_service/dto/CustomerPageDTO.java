@@ -0,0 +1,13 @@
+package ma.abid.customer_service.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class CustomerPageDTO {
+    private List<CustomerDTO> content;
+    private int size;
+    /** Opaque token to pass back as {@code cursor} to fetch the next page, {@code null} on the last page. */
+    private String nextCursor;
+}
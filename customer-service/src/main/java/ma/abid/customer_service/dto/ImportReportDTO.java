@@ -0,0 +1,23 @@
+package ma.abid.customer_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+/**
+ * One line of an import's progress stream: a rejected record ({@code row} is its 1-based position
+ * in the input), a progress update after each chunk, or the final summary.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class ImportReportDTO {
+    public enum Type { REJECTED, PROGRESS, COMPLETED }
+
+    private Type type;
+    private Long row;
+    private BatchItemResultDTO.Status status;
+    private String message;
+    private Long processed;
+    private Long imported;
+    private Long rejected;
+    private Long rowsPerSecond;
+}
@@ -1,17 +1,26 @@
 package ma.abid.customer_service.entities;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import ma.abid.customer_service.sharding.SnowflakeId;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = Customer.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"))
 @AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
 public class Customer {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // creates rely on this constraint instead of a findByEmail pre-check
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_customer_email";
+
+    // pooled sequence: ids are handed out in blocks of 50 so inserts can be JDBC-batched; sharded, the id names its
+    // shard and is generated in memory instead
+    @Id
+    @SnowflakeId(sequenceName = "customer_seq", allocationSize = 50)
     private Long id;
     @NotEmpty
     @Size(min = 2)
@@ -22,4 +31,6 @@ public class Customer {
     @NotEmpty
     @Size(min = 8)
     private String email;
+    @Version
+    private Long version;
 }
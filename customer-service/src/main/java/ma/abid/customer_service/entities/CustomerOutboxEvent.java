@@ -0,0 +1,44 @@
+package ma.abid.customer_service.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.*;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+
+import java.time.Instant;
+
+/**
+ * A customer change, written in the same transaction as the change itself. {@code position} is assigned by
+ * the relay when the event is published: unlike {@code id}, which is handed out before commit, positions
+ * follow commit order, so a consumer reading {@code position > since} never skips an event that committed late.
+ */
+@Entity
+@Table(name = "customer_outbox", uniqueConstraints = @UniqueConstraint(name = "uk_customer_outbox_position", columnNames = "position"))
+@AllArgsConstructor @NoArgsConstructor @Getter @Setter @Builder @ToString
+public class CustomerOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_outbox_seq")
+    @SequenceGenerator(name = "customer_outbox_seq", sequenceName = "customer_outbox_seq", allocationSize = 50)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private CustomerChangedEvent.Type type;
+    @Column(nullable = false)
+    private Long customerId;
+    /** The customer after the change as JSON; {@code null} for deletes. */
+    @Column(length = 4000)
+    private String payload;
+    @Column(nullable = false)
+    private Instant occurredAt;
+    /** {@code null} until published. */
+    private Long position;
+    private Instant publishedAt;
+}
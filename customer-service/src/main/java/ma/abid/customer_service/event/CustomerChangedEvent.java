@@ -0,0 +1,32 @@
+package ma.abid.customer_service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ma.abid.customer_service.dto.CustomerDTO;
+
+/**
+ * Published by the service layer inside the write transaction. Listeners that only care about
+ * committed state should use {@code @TransactionalEventListener}.
+ */
+@AllArgsConstructor @Getter @ToString
+public class CustomerChangedEvent {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long customerId;
+    /** State after the change; {@code null} for {@link Type#DELETED}. */
+    private final CustomerDTO customer;
+
+    public static CustomerChangedEvent created(CustomerDTO customer) {
+        return new CustomerChangedEvent(Type.CREATED, customer.getId(), customer);
+    }
+
+    public static CustomerChangedEvent updated(CustomerDTO customer) {
+        return new CustomerChangedEvent(Type.UPDATED, customer.getId(), customer);
+    }
+
+    public static CustomerChangedEvent deleted(Long customerId) {
+        return new CustomerChangedEvent(Type.DELETED, customerId, null);
+    }
+}
@@ -0,0 +1,7 @@
+package ma.abid.customer_service.exception;
+
+public class ChangesExpiredException extends RuntimeException {
+    public ChangesExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ma.abid.customer_service.exception;
+
+public class ChangesUnavailableException extends RuntimeException {
+    public ChangesUnavailableException(String message) {
+        super(message);
+    }
+}
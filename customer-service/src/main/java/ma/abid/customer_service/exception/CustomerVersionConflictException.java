@@ -0,0 +1,7 @@
+package ma.abid.customer_service.exception;
+
+public class CustomerVersionConflictException extends RuntimeException {
+    public CustomerVersionConflictException(String message) {
+        super(message);
+    }
+}
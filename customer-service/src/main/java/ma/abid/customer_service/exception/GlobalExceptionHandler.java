@@ -1,26 +1,64 @@
 package ma.abid.customer_service.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    static final String EXCEPTIONS_COUNTER = "customer.exceptions";
+
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @ExceptionHandler(EmailAlreadyExistException.class)
     public ResponseEntity<String> handleEmailAlreadyExistException(EmailAlreadyExistException ex) {
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        return ResponseEntity.status(handle(ex)).body(ex.getMessage());
     }
 
     @ExceptionHandler(CustomerNotFoundException.class)
     public ResponseEntity<String> handleCustomerNotExist(CustomerNotFoundException ex) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        return ResponseEntity.status(handle(ex)).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(CustomerVersionConflictException.class)
+    public ResponseEntity<String> handleVersionConflict(CustomerVersionConflictException ex, WebRequest request) {
+        HttpStatus status = handle(ex);
+        // a failed If-Match is a precondition failure; a stale version in the body stays a plain conflict
+        if (request.getHeader(HttpHeaders.IF_MATCH) != null) status = HttpStatus.PRECONDITION_FAILED;
+        return ResponseEntity.status(status).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursor(InvalidCursorException ex) {
+        return ResponseEntity.status(handle(ex)).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ChangesExpiredException.class)
+    public ResponseEntity<String> handleChangesExpired(ChangesExpiredException ex) {
+        return ResponseEntity.status(handle(ex)).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ChangesUnavailableException.class)
+    public ResponseEntity<String> handleChangesUnavailable(ChangesUnavailableException ex) {
+        return ResponseEntity.status(handle(ex)).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(BatchSizeExceededException.class)
+    public ResponseEntity<String> handleBatchSizeExceeded(BatchSizeExceededException ex) {
+        return ResponseEntity.status(handle(ex)).body(ex.getMessage());
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -31,4 +69,27 @@ public class GlobalExceptionHandler {
         }
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
+
+    /**
+     * Status of a domain exception, which is counted in {@value #EXCEPTIONS_COUNTER}; {@code null} for any other
+     * exception. The one mapping behind the handlers above and the gRPC status codes of {@code GrpcExceptionTranslator}.
+     */
+    public HttpStatus handle(RuntimeException ex) {
+        HttpStatus status = switch (ex) {
+            case EmailAlreadyExistException e -> HttpStatus.CONFLICT;
+            case CustomerVersionConflictException e -> HttpStatus.CONFLICT;
+            case CustomerNotFoundException e -> HttpStatus.NOT_FOUND;
+            case InvalidCursorException e -> HttpStatus.BAD_REQUEST;
+            case ChangesExpiredException e -> HttpStatus.GONE;
+            case ChangesUnavailableException e -> HttpStatus.NOT_IMPLEMENTED;
+            case BatchSizeExceededException e -> HttpStatus.PAYLOAD_TOO_LARGE;
+            default -> null;
+        };
+        if (status != null) count(ex);
+        return status;
+    }
+
+    private void count(RuntimeException ex) {
+        meterRegistry.counter(EXCEPTIONS_COUNTER, "exception", ex.getClass().getSimpleName()).increment();
+    }
 }
@@ -0,0 +1,102 @@
+package ma.abid.customer_service.grpc;
+
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.protobuf.services.HealthStatusManager;
+import io.grpc.protobuf.services.ProtoReflectionServiceV1;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.grpc.MetricCollectingServerInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves {@link CustomerGrpcService} on {@code customer.grpc.port} (0 for a random port, see {@link #getPort()}),
+ * next to the standard health and reflection services. Calls run on virtual threads when
+ * {@code spring.threads.virtual.enabled} is set, like the servlet requests, and on a cached pool otherwise.
+ * On shutdown new calls are refused and in-flight ones get up to 10 seconds to finish.
+ * <p>
+ * Calls are timed in {@code grpc.server.processing.duration} by service, method and status code.
+ * Disabled with {@code customer.grpc.enabled=false}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "customer.grpc.enabled", havingValue = "true", matchIfMissing = true)
+public class CustomerGrpcServer implements SmartLifecycle {
+    private final CustomerGrpcService customerGrpcService;
+    private final MeterRegistry meterRegistry;
+    private final int port;
+    private final boolean virtualThreads;
+    private final Duration permitKeepAliveTime;
+    private Server server;
+    private ExecutorService executor;
+    private HealthStatusManager health;
+
+    public CustomerGrpcServer(CustomerGrpcService customerGrpcService, MeterRegistry meterRegistry,
+                              @Value("${customer.grpc.port:9004}") int port,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                              @Value("${customer.grpc.permit-keep-alive-time:5m}") Duration permitKeepAliveTime) {
+        this.customerGrpcService = customerGrpcService;
+        this.meterRegistry = meterRegistry;
+        this.port = port;
+        this.virtualThreads = virtualThreads;
+        this.permitKeepAliveTime = permitKeepAliveTime;
+    }
+
+    @Override
+    public synchronized void start() {
+        executor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("customer-grpc-", 0).factory())
+                : Executors.newCachedThreadPool(Thread.ofPlatform().name("customer-grpc-", 0).daemon().factory());
+        health = new HealthStatusManager();
+        server = NettyServerBuilder.forPort(port)
+                .executor(executor)
+                .permitKeepAliveTime(permitKeepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+                .addService(ServerInterceptors.intercept(customerGrpcService, new MetricCollectingServerInterceptor(meterRegistry)))
+                .addService(health.getHealthService())
+                .addService(ProtoReflectionServiceV1.newInstance())
+                .build();
+        try {
+            server.start();
+        } catch (IOException e) {
+            executor.shutdown();
+            throw new UncheckedIOException("Cannot start the gRPC server on port " + port, e);
+        }
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public synchronized void stop() {
+        health.enterTerminalState();
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(10, TimeUnit.SECONDS)) server.shutdownNow();
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /** The port actually bound, or -1 while stopped. */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getPort();
+    }
+}
@@ -0,0 +1,186 @@
+package ma.abid.customer_service.grpc;
+
+import com.google.protobuf.Empty;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.grpc.v1.*;
+import ma.abid.customer_service.service.CustomerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The gRPC face of {@link CustomerService}: every call goes to the same service layer as the REST controller
+ * (caches, coalescing and replica routing included) and failures are mapped by {@link GrpcExceptionTranslator}.
+ * Single customers are validated like {@code @Valid} request bodies; batches are validated per element by the
+ * service. The server streams push through a {@link FlowControlledSender}, so a slow client slows the database
+ * cursor down rather than growing the server's buffers; one that reads nothing for
+ * {@code customer.grpc.stream-stall-timeout} is failed with {@code DEADLINE_EXCEEDED}.
+ */
+@Component
+public class CustomerGrpcService extends CustomerServiceGrpc.CustomerServiceImplBase {
+    private final CustomerService customerService;
+    private final Validator validator;
+    private final GrpcExceptionTranslator exceptionTranslator;
+    private final int defaultPageSize;
+    private final int defaultSearchLimit;
+    private final Duration streamStallTimeout;
+
+    public CustomerGrpcService(CustomerService customerService, Validator validator, GrpcExceptionTranslator exceptionTranslator,
+                               @Value("${customer.pagination.default-size:50}") int defaultPageSize,
+                               @Value("${customer.search.default-limit:20}") int defaultSearchLimit,
+                               @Value("${customer.grpc.stream-stall-timeout:30s}") Duration streamStallTimeout) {
+        this.customerService = customerService;
+        this.validator = validator;
+        this.exceptionTranslator = exceptionTranslator;
+        this.defaultPageSize = defaultPageSize;
+        this.defaultSearchLimit = defaultSearchLimit;
+        this.streamStallTimeout = streamStallTimeout;
+    }
+
+    @Override
+    public void getCustomer(CustomerIdRequest request, StreamObserver<Customer> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toCustomer(customerService.getCustomerById(request.getId())));
+    }
+
+    @Override
+    public void getCustomerByEmail(CustomerEmailRequest request, StreamObserver<Customer> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toCustomer(customerService.getCustomerByEmail(request.getEmail())));
+    }
+
+    @Override
+    public void getCustomerVersion(CustomerIdRequest request, StreamObserver<CustomerVersion> responseObserver) {
+        unary(responseObserver, () -> {
+            Long version = customerService.getCustomerVersion(request.getId());
+            return CustomerVersion.newBuilder().setVersion(version == null ? 0 : version).build();
+        });
+    }
+
+    @Override
+    public void getCustomersPage(CustomersPageRequest request, StreamObserver<CustomersPage> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toCustomersPage(customerService.getCustomersPage(
+                request.getCursor().isEmpty() ? null : request.getCursor(),
+                request.getSize() > 0 ? request.getSize() : defaultPageSize)));
+    }
+
+    @Override
+    public void saveNewCustomer(Customer request, StreamObserver<Customer> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toCustomer(customerService.saveNewCustomer(validated(request))));
+    }
+
+    @Override
+    public void updateCustomer(UpdateCustomerRequest request, StreamObserver<Customer> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toCustomer(
+                customerService.upDateCustomer(request.getId(), validated(request.getCustomer()))));
+    }
+
+    @Override
+    public void deleteCustomer(CustomerIdRequest request, StreamObserver<Empty> responseObserver) {
+        unary(responseObserver, () -> {
+            customerService.deleteCustomer(request.getId());
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    public void saveNewCustomers(CustomersBatch request, StreamObserver<BatchResults> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toBatchResults(
+                customerService.saveNewCustomers(CustomerProtoMapper.fromCustomers(request.getCustomersList()))));
+    }
+
+    @Override
+    public void updateCustomers(CustomersBatch request, StreamObserver<BatchResults> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toBatchResults(
+                customerService.upDateCustomers(CustomerProtoMapper.fromCustomers(request.getCustomersList()))));
+    }
+
+    @Override
+    public void deleteCustomers(CustomerIdsBatch request, StreamObserver<BatchResults> responseObserver) {
+        unary(responseObserver, () -> CustomerProtoMapper.toBatchResults(customerService.deleteCustomers(request.getIdsList())));
+    }
+
+    @Override
+    public void listCustomers(ListCustomersRequest request, StreamObserver<Customer> responseObserver) {
+        stream(responseObserver, sender -> customerService.streamCustomersAfter(request.getAfterId(),
+                customerDTO -> sender.send(CustomerProtoMapper.toCustomer(customerDTO))));
+    }
+
+    @Override
+    public void searchCustomers(SearchCustomersRequest request, StreamObserver<Customer> responseObserver) {
+        stream(responseObserver, sender -> {
+            int limit = request.getLimit() > 0 ? request.getLimit() : defaultSearchLimit;
+            for (CustomerDTO customerDTO : customerService.searchCustomers(request.getKeyword(), limit)) {
+                sender.send(CustomerProtoMapper.toCustomer(customerDTO));
+            }
+        });
+    }
+
+    @Override
+    public void lookupCustomers(LookupCustomersRequest request, StreamObserver<LookupResult> responseObserver) {
+        stream(responseObserver, sender -> {
+            CustomerLookupDTO lookup = customerService.lookupCustomers(request.getIdsList(), request.getEmailsList());
+            lookup.getIds().forEach((id, customerDTO) -> {
+                LookupResult.Builder result = LookupResult.newBuilder().setId(id);
+                if (customerDTO != null) result.setCustomer(CustomerProtoMapper.toCustomer(customerDTO));
+                sender.send(result.build());
+            });
+            lookup.getEmails().forEach((email, customerDTO) -> {
+                LookupResult.Builder result = LookupResult.newBuilder().setEmail(email);
+                if (customerDTO != null) result.setCustomer(CustomerProtoMapper.toCustomer(customerDTO));
+                sender.send(result.build());
+            });
+        });
+    }
+
+    private CustomerDTO validated(Customer customer) {
+        CustomerDTO customerDTO = CustomerProtoMapper.fromCustomer(customer);
+        Set<ConstraintViolation<CustomerDTO>> violations = validator.validate(customerDTO);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            throw Status.INVALID_ARGUMENT.withDescription(message).asRuntimeException();
+        }
+        return customerDTO;
+    }
+
+    private <T> void unary(StreamObserver<T> responseObserver, Supplier<T> call) {
+        T response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            fail(responseObserver, e);
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private <T> void stream(StreamObserver<T> responseObserver, Consumer<FlowControlledSender<T>> producer) {
+        FlowControlledSender<T> sender = new FlowControlledSender<>(responseObserver, streamStallTimeout);
+        try {
+            producer.accept(sender);
+        } catch (RuntimeException e) {
+            fail(responseObserver, e);
+            return;
+        }
+        responseObserver.onCompleted();
+    }
+
+    private void fail(StreamObserver<?> responseObserver, RuntimeException e) {
+        // a cancelled call cannot be answered any more; there is no one left to tell
+        if (Context.current().isCancelled()) return;
+        responseObserver.onError(exceptionTranslator.translate(e));
+    }
+}
@@ -0,0 +1,73 @@
+package ma.abid.customer_service.grpc;
+
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.grpc.v1.BatchItemResult;
+import ma.abid.customer_service.grpc.v1.BatchResults;
+import ma.abid.customer_service.grpc.v1.Customer;
+import ma.abid.customer_service.grpc.v1.CustomersPage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversions between the DTOs of the service layer and the protobuf messages of {@code customer_service.proto}.
+ * Unset optional fields map to {@code null} and back; strings are never {@code null} in protobuf, so a missing
+ * name or email arrives as an empty string and fails validation like it would over REST.
+ */
+final class CustomerProtoMapper {
+
+    private CustomerProtoMapper() {
+    }
+
+    static CustomerDTO fromCustomer(Customer customer) {
+        return CustomerDTO.builder()
+                .id(customer.hasId() ? customer.getId() : null)
+                .firstName(customer.getFirstName())
+                .lastName(customer.getLastName())
+                .email(customer.getEmail())
+                .version(customer.hasVersion() ? customer.getVersion() : null)
+                .build();
+    }
+
+    static List<CustomerDTO> fromCustomers(List<Customer> customers) {
+        List<CustomerDTO> customerDTOs = new ArrayList<>(customers.size());
+        for (Customer customer : customers) customerDTOs.add(fromCustomer(customer));
+        return customerDTOs;
+    }
+
+    static Customer toCustomer(CustomerDTO customerDTO) {
+        Customer.Builder builder = Customer.newBuilder()
+                .setFirstName(nullToEmpty(customerDTO.getFirstName()))
+                .setLastName(nullToEmpty(customerDTO.getLastName()))
+                .setEmail(nullToEmpty(customerDTO.getEmail()));
+        if (customerDTO.getId() != null) builder.setId(customerDTO.getId());
+        if (customerDTO.getVersion() != null) builder.setVersion(customerDTO.getVersion());
+        return builder.build();
+    }
+
+    static CustomersPage toCustomersPage(CustomerPageDTO page) {
+        CustomersPage.Builder builder = CustomersPage.newBuilder().setNextCursor(nullToEmpty(page.getNextCursor()));
+        for (CustomerDTO customerDTO : page.getContent()) builder.addContent(toCustomer(customerDTO));
+        return builder.build();
+    }
+
+    static BatchResults toBatchResults(List<BatchItemResultDTO> results) {
+        BatchResults.Builder builder = BatchResults.newBuilder();
+        for (BatchItemResultDTO result : results) {
+            BatchItemResult.Builder item = BatchItemResult.newBuilder()
+                    .setIndex(result.getIndex())
+                    .setStatus(BatchItemResult.Status.valueOf(result.getStatus().name()))
+                    .setMessage(nullToEmpty(result.getMessage()));
+            if (result.getId() != null) item.setId(result.getId());
+            if (result.getCustomer() != null) item.setCustomer(toCustomer(result.getCustomer()));
+            builder.addResults(item);
+        }
+        return builder.build();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,43 @@
+package ma.abid.customer_service.grpc;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Server-stream sender for producers that push, such as a database cursor: each message waits until the
+ * transport can take it, so a slow client holds the cursor back instead of the whole result being buffered in
+ * memory. Readiness is polled rather than signalled, because a call's {@code onReady} callbacks are not
+ * delivered while its handler is still running. A cancelled call fails the next send with {@code CANCELLED}, and
+ * one whose client takes nothing for {@code stallTimeout} with {@code DEADLINE_EXCEEDED}: the producer usually
+ * holds a transaction and a pooled connection, which a client without a deadline could otherwise keep forever.
+ */
+final class FlowControlledSender<T> {
+    private static final long READY_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ServerCallStreamObserver<T> observer;
+    private final Context context;
+    private final Duration stallTimeout;
+
+    FlowControlledSender(StreamObserver<T> observer, Duration stallTimeout) {
+        this.observer = (ServerCallStreamObserver<T>) observer;
+        this.context = Context.current();
+        this.stallTimeout = stallTimeout;
+    }
+
+    void send(T message) {
+        long stalledSince = System.nanoTime();
+        while (!observer.isReady()) {
+            if (context.isCancelled()) throw Status.CANCELLED.withDescription("Stream cancelled by the client").asRuntimeException();
+            if (System.nanoTime() - stalledSince > stallTimeout.toNanos())
+                throw Status.DEADLINE_EXCEEDED.withDescription("Client read nothing for " + stallTimeout).asRuntimeException();
+            LockSupport.parkNanos(READY_POLL_NANOS);
+        }
+        observer.onNext(message);
+    }
+}
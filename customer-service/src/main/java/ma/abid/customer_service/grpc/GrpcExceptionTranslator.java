@@ -0,0 +1,42 @@
+package ma.abid.customer_service.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import lombok.extern.slf4j.Slf4j;
+import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.GlobalExceptionHandler;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns service-layer exceptions into gRPC statuses through the REST API's own mapping,
+ * {@link GlobalExceptionHandler#handle}, so domain exceptions are also counted in {@code customer.exceptions}.
+ * The HTTP status becomes the closest gRPC code: 404 {@code NOT_FOUND}; 409 {@code ALREADY_EXISTS} for a taken
+ * email and {@code ABORTED} for a stale version; 400 and 413 {@code INVALID_ARGUMENT}; 410 {@code OUT_OF_RANGE}.
+ * Anything else is logged and reported as {@code INTERNAL} without details.
+ */
+@Slf4j
+@Component
+public class GrpcExceptionTranslator {
+    private final GlobalExceptionHandler globalExceptionHandler;
+
+    public GrpcExceptionTranslator(GlobalExceptionHandler globalExceptionHandler) {
+        this.globalExceptionHandler = globalExceptionHandler;
+    }
+
+    public StatusRuntimeException translate(RuntimeException ex) {
+        if (ex instanceof StatusRuntimeException statusException) return statusException;
+        HttpStatus httpStatus = globalExceptionHandler.handle(ex);
+        if (httpStatus == null) {
+            log.error("gRPC call failed", ex);
+            return Status.INTERNAL.withDescription("Internal error").asRuntimeException();
+        }
+        Status status = switch (httpStatus) {
+            case NOT_FOUND -> Status.NOT_FOUND;
+            case CONFLICT -> ex instanceof EmailAlreadyExistException ? Status.ALREADY_EXISTS : Status.ABORTED;
+            case GONE -> Status.OUT_OF_RANGE;
+            default -> Status.INVALID_ARGUMENT;
+        };
+        return status.withDescription(ex.getMessage()).asRuntimeException();
+    }
+}
@@ -1,27 +1,39 @@
 package ma.abid.customer_service.mapper;
 
+import io.micrometer.core.annotation.Timed;
 import ma.abid.customer_service.dto.CustomerDTO;
 import ma.abid.customer_service.entities.Customer;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Field-by-field Customer/CustomerDTO mapping. Kept hand-written on purpose: it sits on every
+ * read path, and a reflective mapper costs a type-map lookup and property matching per call.
+ * Calls from other beans are timed as {@code customer.mapper}; {@link #customerDTOList} is timed
+ * once per list, not per row.
+ */
 @Service
+@Timed(value = "customer.mapper", histogram = true)
 public class CustomerMapper {
-    private ModelMapper modelMapper = new ModelMapper();
 
     public CustomerDTO fromCustomer(Customer customer){
-        return modelMapper.map(customer, CustomerDTO.class);
+        if (customer == null) throw new IllegalArgumentException("source cannot be null");
+        return new CustomerDTO(customer.getId(), customer.getFirstName(), customer.getLastName(), customer.getEmail(), customer.getVersion());
     }
 
     public Customer fromCustomerDTO(CustomerDTO customerDTO){
-        return modelMapper.map(customerDTO, Customer.class);
+        if (customerDTO == null) throw new IllegalArgumentException("source cannot be null");
+        return new Customer(customerDTO.getId(), customerDTO.getFirstName(), customerDTO.getLastName(), customerDTO.getEmail(), customerDTO.getVersion());
     }
 
     public List<CustomerDTO> customerDTOList(List<Customer> customerList){
-        return customerList.stream().map(c->modelMapper.map(c, CustomerDTO.class)).collect(Collectors.toList());
+        List<CustomerDTO> customerDTOList = new ArrayList<>(customerList.size());
+        for (Customer customer : customerList) {
+            customerDTOList.add(fromCustomer(customer));
+        }
+        return customerDTOList;
     }
 
 }
@@ -0,0 +1,60 @@
+package ma.abid.customer_service.outbox;
+
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+import ma.abid.customer_service.dto.CustomerChangesDTO;
+import ma.abid.customer_service.exception.ChangesExpiredException;
+import ma.abid.customer_service.exception.ChangesUnavailableException;
+import ma.abid.customer_service.repository.CustomerOutboxRepository;
+import ma.abid.customer_service.sharding.CustomerShards;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Incremental sync for consumers: start with {@code since=0} (or export everything first and remember the
+ * position it was taken at), then keep passing back {@code next}. Changes come in position order and only
+ * once published by {@link CustomerOutboxRelay}.
+ * <p>
+ * Positions are per database, so with more than one shard there is no single sequence to follow and the feed is
+ * refused with {@link ChangesUnavailableException}; consumers then need the relay's sink.
+ */
+@Service
+public class CustomerChangeFeed {
+    public static final int MAX_LIMIT = 1000;
+
+    private final CustomerOutboxRepository customerOutboxRepository;
+    private final int shardCount;
+
+    public CustomerChangeFeed(CustomerOutboxRepository customerOutboxRepository, ObjectProvider<CustomerShards> shards) {
+        this.customerOutboxRepository = customerOutboxRepository;
+        this.shardCount = shards.getIfAvailable(() -> new CustomerShards(false, List.of())).count();
+    }
+
+    /**
+     * Changes with a position greater than {@code since}, at most {@code limit} of them. Throws
+     * {@link ChangesExpiredException} when changes after {@code since} have already been deleted by the
+     * retention clean-up; the consumer must then resync from a full export. Throws
+     * {@link ChangesUnavailableException} when customers are sharded over several databases.
+     */
+    @Transactional(readOnly = true)
+    public CustomerChangesDTO getChangesSince(long since, int limit) throws ChangesExpiredException, ChangesUnavailableException {
+        // only shard 0's outbox would be read, silently missing every change on the other shards
+        if (shardCount > 1) throw new ChangesUnavailableException("The change feed is not available when customers are sharded");
+        List<CustomerChangeDTO> changes = customerOutboxRepository.findPublishedAfter(since, Limit.of(Math.min(Math.max(limit, 1), MAX_LIMIT)))
+                .stream().map(CustomerOutboxRelay::toChange).toList();
+        if (since > 0 && (changes.isEmpty() || changes.get(0).getPosition() > since + 1)) {
+            // a gap right after since means the events in between were cleaned up
+            Long first = customerOutboxRepository.findFirstPosition().orElse(null);
+            if (first != null && first > since + 1) {
+                throw new ChangesExpiredException("Changes after position " + since + " are no longer retained");
+            }
+        }
+        return CustomerChangesDTO.builder()
+                .changes(changes)
+                .next(changes.isEmpty() ? since : changes.get(changes.size() - 1).getPosition())
+                .build();
+    }
+}
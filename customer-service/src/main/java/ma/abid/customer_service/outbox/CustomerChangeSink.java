@@ -0,0 +1,18 @@
+package ma.abid.customer_service.outbox;
+
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+
+import java.util.List;
+
+/**
+ * Where {@link CustomerOutboxRelay} publishes customer changes, selected with {@code customer.outbox.sink}.
+ * Delivery is at least once: a batch is published again if the relay fails to record it as published, so
+ * consumers should ignore positions they have already seen.
+ */
+public interface CustomerChangeSink {
+    /**
+     * Publishes {@code changes}, in position order. Must not return before they are durably accepted; an
+     * exception leaves the whole batch pending for the next attempt.
+     */
+    void publish(List<CustomerChangeDTO> changes) throws Exception;
+}
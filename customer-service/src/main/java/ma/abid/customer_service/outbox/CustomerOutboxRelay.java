@@ -0,0 +1,175 @@
+package ma.abid.customer_service.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+import ma.abid.customer_service.entities.CustomerOutboxEvent;
+import ma.abid.customer_service.repository.CustomerOutboxRepository;
+import ma.abid.customer_service.sharding.CustomerShards;
+import ma.abid.customer_service.sharding.ShardContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background publisher for the outbox. Every {@code customer.outbox.poll-interval} it takes up to
+ * {@code customer.outbox.batch-size} unpublished events in id order and, in one transaction, gives them the
+ * next positions, hands them to the {@link CustomerChangeSink} and marks them published. If the sink fails the
+ * transaction rolls back and the batch is retried on the next poll; a full batch is followed by another
+ * immediately. With no sink configured events are only given positions, which is all
+ * {@code GET /api/customers/changes} needs.
+ * <p>
+ * Relays on several instances are safe: the batch is read with row locks, so a second relay waits for the first
+ * one's transaction and then takes the events left, with positions after the ones just assigned. Events are
+ * never published twice and positions follow event order; the unique constraint on positions is a last guard. Published events are deleted after
+ * {@code customer.outbox.retention}. With sharding enabled each shard has its own outbox and positions and
+ * every poll drains them one after the other; {@code GET /api/customers/changes} is then refused, so the sink
+ * is the only way to follow them.
+ * <p>
+ * Meters: {@code customer.outbox.relayed} (events published), {@code customer.outbox.relay} (time per batch),
+ * {@code customer.outbox.relay.failures} and {@code customer.outbox.position} (last position published).
+ */
+@Slf4j
+@Component
+public class CustomerOutboxRelay implements SmartLifecycle {
+    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(1);
+
+    private final CustomerOutboxRepository customerOutboxRepository;
+    private final CustomerChangeSink sink;
+    private final int shardCount;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final Counter relayed;
+    private final Counter failures;
+    private final Timer relayTimer;
+    private final AtomicLong lastPosition;
+    private ScheduledExecutorService scheduler;
+    private Instant lastCleanup = Instant.EPOCH;
+
+    public CustomerOutboxRelay(CustomerOutboxRepository customerOutboxRepository, ObjectProvider<CustomerChangeSink> sink,
+                               ObjectProvider<CustomerShards> shards,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${customer.outbox.batch-size:500}") int batchSize,
+                               @Value("${customer.outbox.poll-interval:500ms}") Duration pollInterval,
+                               @Value("${customer.outbox.retention:7d}") Duration retention) {
+        this.customerOutboxRepository = customerOutboxRepository;
+        this.sink = sink.getIfAvailable();
+        this.shardCount = shards.getIfAvailable(() -> new CustomerShards(false, List.of())).count();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+        this.relayed = meterRegistry.counter("customer.outbox.relayed");
+        this.failures = meterRegistry.counter("customer.outbox.relay.failures");
+        this.relayTimer = Timer.builder("customer.outbox.relay").publishPercentileHistogram().register(meterRegistry);
+        this.lastPosition = meterRegistry.gauge("customer.outbox.position", new AtomicLong());
+    }
+
+    /**
+     * Publishes one batch; returns the number of events published.
+     */
+    public int relayBatch() {
+        return relayTimer.record(() -> transactionTemplate.execute(status -> {
+            List<CustomerOutboxEvent> batch = customerOutboxRepository.findUnpublished(Limit.of(batchSize));
+            if (batch.isEmpty()) return 0;
+            long position = customerOutboxRepository.findLastPosition().orElse(0L);
+            Instant now = Instant.now();
+            List<CustomerChangeDTO> changes = new ArrayList<>(batch.size());
+            for (CustomerOutboxEvent event : batch) {
+                event.setPosition(++position);
+                event.setPublishedAt(now);
+                changes.add(toChange(event));
+            }
+            // writes the positions before anything is published
+            customerOutboxRepository.flush();
+            if (sink != null) {
+                try {
+                    sink.publish(changes);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Publishing customer changes failed", e);
+                }
+            }
+            relayed.increment(batch.size());
+            // positions are per shard; the gauge follows shard 0, the only one without sharding
+            if (ShardContext.current() == 0) lastPosition.set(position);
+            return batch.size();
+        }));
+    }
+
+    public static CustomerChangeDTO toChange(CustomerOutboxEvent event) {
+        return CustomerChangeDTO.builder()
+                .position(event.getPosition())
+                .type(event.getType())
+                .customerId(event.getCustomerId())
+                .customer(event.getPayload())
+                .occurredAt(event.getOccurredAt())
+                .build();
+    }
+
+    private void poll() {
+        Instant now = Instant.now();
+        boolean cleanUp = !now.isBefore(lastCleanup.plus(CLEANUP_INTERVAL));
+        if (cleanUp) lastCleanup = now;
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardContext.run(shard, () -> drain(cleanUp));
+        }
+    }
+
+    private void drain(boolean cleanUp) {
+        try {
+            while (relayBatch() == batchSize) {
+                // drain a backlog without waiting for the next poll
+            }
+            if (cleanUp) cleanUp();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Customer outbox relay failed on shard {}, retrying in {}: {}", ShardContext.current(), pollInterval, e.getMessage());
+        }
+    }
+
+    private void cleanUp() {
+        Instant before = Instant.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> customerOutboxRepository.deletePublishedBefore(before));
+        if (deleted != null && deleted > 0) log.info("Deleted {} customer outbox events older than {}", deleted, retention);
+    }
+
+    @Override
+    public synchronized void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("customer-outbox-relay").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::poll, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        scheduler.shutdown();
+        try {
+            // let an in-flight batch finish rather than interrupting the sink
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+}
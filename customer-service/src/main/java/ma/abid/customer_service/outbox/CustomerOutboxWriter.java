@@ -0,0 +1,47 @@
+package ma.abid.customer_service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.entities.CustomerOutboxEvent;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import ma.abid.customer_service.repository.CustomerOutboxRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+
+/**
+ * Records every customer write, single or batch, in the outbox. Runs inside the write transaction, so the
+ * event commits or rolls back with the change.
+ */
+@Component
+public class CustomerOutboxWriter {
+    private final CustomerOutboxRepository customerOutboxRepository;
+    private final ObjectWriter customerWriter;
+
+    public CustomerOutboxWriter(CustomerOutboxRepository customerOutboxRepository, ObjectMapper objectMapper) {
+        this.customerOutboxRepository = customerOutboxRepository;
+        this.customerWriter = objectMapper.writerFor(CustomerDTO.class);
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        customerOutboxRepository.save(CustomerOutboxEvent.builder()
+                .type(event.getType())
+                .customerId(event.getCustomerId())
+                .payload(event.getCustomer() == null ? null : toJson(event.getCustomer()))
+                .occurredAt(Instant.now())
+                .build());
+    }
+
+    private String toJson(CustomerDTO customer) {
+        try {
+            return customerWriter.writeValueAsString(customer);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
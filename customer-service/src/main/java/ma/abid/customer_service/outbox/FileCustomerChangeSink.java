@@ -0,0 +1,50 @@
+package ma.abid.customer_service.outbox;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * {@code customer.outbox.sink=file}: appends each batch to {@code customer.outbox.file} as NDJSON, one change
+ * per line, and forces it to disk before returning.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.outbox.sink", havingValue = "file")
+public class FileCustomerChangeSink implements CustomerChangeSink {
+    private final Path file;
+    private final ObjectWriter ndjsonWriter;
+
+    public FileCustomerChangeSink(@Value("${customer.outbox.file}") Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.ndjsonWriter = objectMapper.writerFor(CustomerChangeDTO.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public synchronized void publish(List<CustomerChangeDTO> changes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            try (SequenceWriter writer = ndjsonWriter.writeValues(output)) {
+                writer.writeAll(changes);
+            }
+            output.write('\n');
+            output.flush();
+            channel.force(false);
+        }
+    }
+}
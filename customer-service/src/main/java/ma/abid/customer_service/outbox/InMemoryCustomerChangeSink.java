@@ -0,0 +1,30 @@
+package ma.abid.customer_service.outbox;
+
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code customer.outbox.sink=memory}: keeps every published change, for tests and local runs.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.outbox.sink", havingValue = "memory")
+public class InMemoryCustomerChangeSink implements CustomerChangeSink {
+    private final List<CustomerChangeDTO> published = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<CustomerChangeDTO> changes) {
+        published.addAll(changes);
+    }
+
+    public synchronized List<CustomerChangeDTO> getPublished() {
+        return List.copyOf(published);
+    }
+
+    public synchronized void clear() {
+        published.clear();
+    }
+}
@@ -0,0 +1,46 @@
+package ma.abid.customer_service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code customer.outbox.sink=kafka}: sends each change to {@code customer.outbox.kafka.topic} as JSON, keyed by
+ * customer id so all changes of a customer land on one partition, in order. The whole batch is sent before
+ * waiting for the acknowledgements, so it costs one round of broker latency rather than one per change.
+ * Producer settings come from {@code spring.kafka.*}.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.outbox.sink", havingValue = "kafka")
+public class KafkaCustomerChangeSink implements CustomerChangeSink {
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectWriter changeWriter;
+    private final String topic;
+
+    public KafkaCustomerChangeSink(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                                   @Value("${customer.outbox.kafka.topic}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.changeWriter = objectMapper.writerFor(CustomerChangeDTO.class);
+        this.topic = topic;
+    }
+
+    @Override
+    public void publish(List<CustomerChangeDTO> changes) throws Exception {
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(changes.size());
+        for (CustomerChangeDTO change : changes) {
+            sends.add(kafkaTemplate.send(topic, change.getCustomerId().toString(), changeWriter.writeValueAsString(change)));
+        }
+        kafkaTemplate.flush();
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+    }
+}
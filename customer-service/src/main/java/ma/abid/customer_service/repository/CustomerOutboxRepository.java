@@ -0,0 +1,39 @@
+package ma.abid.customer_service.repository;
+
+import jakarta.persistence.LockModeType;
+import ma.abid.customer_service.entities.CustomerOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface CustomerOutboxRepository extends JpaRepository<CustomerOutboxEvent, Long> {
+
+    /**
+     * Locks the batch it returns, so a concurrent relay waits for this one to commit and then only sees what is
+     * still unpublished.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from CustomerOutboxEvent e where e.position is null order by e.id")
+    List<CustomerOutboxEvent> findUnpublished(Limit limit);
+
+    @Query("select max(e.position) from CustomerOutboxEvent e")
+    Optional<Long> findLastPosition();
+
+    @Query("select min(e.position) from CustomerOutboxEvent e")
+    Optional<Long> findFirstPosition();
+
+    @Query("select e from CustomerOutboxEvent e where e.position > :since order by e.position")
+    List<CustomerOutboxEvent> findPublishedAfter(@Param("since") long since, Limit limit);
+
+    /** Keeps the last published event whatever its age, so positions never restart. */
+    @Modifying
+    @Query("delete from CustomerOutboxEvent e where e.publishedAt < :before and e.position < (select max(p.position) from CustomerOutboxEvent p)")
+    int deletePublishedBefore(@Param("before") Instant before);
+}
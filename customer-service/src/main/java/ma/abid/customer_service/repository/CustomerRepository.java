@@ -1,13 +1,148 @@
 package ma.abid.customer_service.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import ma.abid.customer_service.dto.CustomerDTO;
 import ma.abid.customer_service.entities.Customer;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
+    /**
+     * JPQL constructor expression for the read paths: rows are projected straight into {@link CustomerDTO},
+     * so no entity is hydrated, registered in the persistence context or dirty-checked.
+     */
+    String CUSTOMER_DTO = "new ma.abid.customer_service.dto.CustomerDTO(c.id, c.firstName, c.lastName, c.email, c.version)";
+
     Optional<Customer> findByEmail(String email);
+
+    @Query("select c.email from Customer c where c.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("select c.id from Customer c where c.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Loads customers for a batch update, locked until the transaction ends so their versions cannot change before
+     * the flush. Rows are locked in id order, which keeps two overlapping batches from deadlocking.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Customer c where c.id in :ids order by c.id")
+    List<Customer> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query("select " + CUSTOMER_DTO + " from Customer c where c.id = :id")
+    Optional<CustomerDTO> findCustomerDTOById(@Param("id") Long id);
+
+    @Query("select " + CUSTOMER_DTO + " from Customer c order by c.id")
+    List<CustomerDTO> findAllCustomerDTOs();
+
+    /** Unordered; callers put the rows in the order they need. */
+    @Query("select " + CUSTOMER_DTO + " from Customer c where c.id in :ids")
+    List<CustomerDTO> findCustomerDTOsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** Unordered; callers put the rows in the order they need. */
+    @Query("select " + CUSTOMER_DTO + " from Customer c where c.email in :emails")
+    List<CustomerDTO> findCustomerDTOsByEmailIn(@Param("emails") Collection<String> emails);
+
+    /**
+     * Case-insensitive match on an already lowercased email, in id order. Written as {@code lower(email)} so
+     * PostgreSQL can use the {@code ix_customer_email_lower} expression index.
+     */
+    @Query("select " + CUSTOMER_DTO + " from Customer c where lower(c.email) = :email order by c.id")
+    List<CustomerDTO> findCustomerDTOsByLowerEmail(@Param("email") String email);
+
+    @Query("select c.version from Customer c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Row count, highest id and sum of versions in one aggregate. Every insert, update and delete made
+     * through this repository changes at least one of them, so it fingerprints the whole table.
+     */
+    @Query("select concat(cast(count(c) as String), '-', cast(coalesce(max(c.id), 0) as String), '-', " +
+            "cast(coalesce(sum(c.version), 0) as String)) from Customer c")
+    String tableFingerprint();
+
+    /**
+     * Single-statement update; returns the number of rows touched (0 when the id does not exist).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Customer c set c.firstName = :firstName, c.lastName = :lastName, c.email = :email,"
+            + " c.version = c.version + 1 where c.id = :id")
+    int updateCustomer(@Param("id") Long id, @Param("firstName") String firstName,
+                       @Param("lastName") String lastName, @Param("email") String email);
+
+    /**
+     * Like {@link #updateCustomer} but only applies when the row is still at {@code version}.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Customer c set c.firstName = :firstName, c.lastName = :lastName, c.email = :email,"
+            + " c.version = c.version + 1 where c.id = :id and c.version = :version")
+    int updateCustomerIfVersion(@Param("id") Long id, @Param("version") Long version, @Param("firstName") String firstName,
+                                @Param("lastName") String lastName, @Param("email") String email);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Customer c where c.id = :id")
+    int deleteCustomerById(@Param("id") Long id);
+
     List<Customer> findByFirstNameContainsIgnoreCase(String keyword);
 
+    /**
+     * Case-insensitive substring search over first name, last name and email, ranked like
+     * {@code CustomerSearchIndex}: a first name hit weighs more than a last name hit, which weighs more than an email
+     * hit, and within a field an exact match beats a prefix match beats an infix match; ties go by ascending id.
+     * {@code %}, {@code _} and {@code \} in the keyword match themselves. On PostgreSQL the trigram indexes of the
+     * V2 migration serve the match.
+     */
+    default List<CustomerDTO> searchByKeyword(String keyword, Pageable pageable) {
+        String normalizedKeyword = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        String escapedKeyword = normalizedKeyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return searchByLikePattern(normalizedKeyword, escapedKeyword + "%", "%" + escapedKeyword + "%", pageable);
+    }
+
+    @Query("select " + CUSTOMER_DTO + " from Customer c"
+            + " where lower(c.firstName) like :pattern escape '\\' or lower(c.lastName) like :pattern escape '\\'"
+            + " or lower(c.email) like :pattern escape '\\'"
+            + " order by 3 * (case when lower(c.firstName) = :keyword then 100 when lower(c.firstName) like :prefix escape '\\' then 50"
+            + " when lower(c.firstName) like :pattern escape '\\' then 10 else 0 end)"
+            + " + 2 * (case when lower(c.lastName) = :keyword then 100 when lower(c.lastName) like :prefix escape '\\' then 50"
+            + " when lower(c.lastName) like :pattern escape '\\' then 10 else 0 end)"
+            + " + (case when lower(c.email) = :keyword then 100 when lower(c.email) like :prefix escape '\\' then 50"
+            + " when lower(c.email) like :pattern escape '\\' then 10 else 0 end) desc, c.id")
+    List<CustomerDTO> searchByLikePattern(@Param("keyword") String keyword, @Param("prefix") String prefix,
+                                          @Param("pattern") String pattern, Pageable pageable);
+
+    /**
+     * Keyset (seek) page: the rows that come after {@code id} in primary key order.
+     */
+    @Query("select " + CUSTOMER_DTO + " from Customer c where c.id > :id order by c.id")
+    List<CustomerDTO> findCustomerDTOsAfter(@Param("id") Long id, Limit limit);
+
+    /**
+     * Forward-only cursor over the whole table; must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select " + CUSTOMER_DTO + " from Customer c order by c.id")
+    Stream<CustomerDTO> streamAllCustomerDTOs();
+
+    /**
+     * Forward-only cursor over the customers after {@code id}, for exports. A larger fetch size than the
+     * paged reads: fewer round trips on a full-table scan, still only 1000 rows buffered by the driver.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select " + CUSTOMER_DTO + " from Customer c where c.id > :id order by c.id")
+    Stream<CustomerDTO> streamCustomerDTOsAfter(@Param("id") Long id);
+
 }
@@ -0,0 +1,70 @@
+package ma.abid.customer_service.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes across requests: a request that may write (any method but GET, HEAD, OPTIONS) gets a
+ * {@value #COOKIE} cookie holding the time of the write, and for {@code sticky-window} after that the
+ * client's reads are pinned to the primary, so it never sees a replica that has not caught up with its own
+ * change. The writing request itself is pinned as a whole, which also keeps its open-in-view session, and the
+ * connection that session holds, off the replica even if it reads before it writes. Clients that drop the cookie fall back to plain
+ * replica reads, bounded by the lag tolerance.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE = "customer-last-write";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Duration stickyWindow;
+
+    public ReadYourWritesFilter(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean write = !READ_METHODS.contains(request.getMethod());
+        if (write) {
+            // set before the chain runs: the response may be committed by the time it returns
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(System.currentTimeMillis()))
+                    .path("/").maxAge(stickyWindow).httpOnly(true).sameSite("Lax")
+                    .build().toString());
+        }
+        if (!write && !wroteRecently(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.pinToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.unpin();
+        }
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return false;
+        for (Cookie cookie : cookies) {
+            if (!COOKIE.equals(cookie.getName())) continue;
+            try {
+                long age = System.currentTimeMillis() - Long.parseLong(cookie.getValue());
+                return age >= 0 && age < stickyWindow.toMillis();
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
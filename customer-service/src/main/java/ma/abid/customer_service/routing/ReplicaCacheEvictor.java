@@ -0,0 +1,32 @@
+package ma.abid.customer_service.routing;
+
+import ma.abid.customer_service.config.CacheConfig;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * A customers cache miss may be filled from a replica that has not yet applied a committed delete or
+ * version-less update, which would keep the stale row cached until it expires. Evicting such entries a second
+ * time once the replica is guaranteed to have caught up (or been bypassed) bounds the staleness to the lag
+ * tolerance.
+ */
+public class ReplicaCacheEvictor {
+    private final Cache customersCache;
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaCacheEvictor(CacheManager cacheManager, ReplicaLagMonitor lagMonitor) {
+        this.customersCache = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        this.lagMonitor = lagMonitor;
+    }
+
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        // mirrors CustomerCacheSynchronizer: only evicted entries can be refilled with stale data
+        if (event.getType() == CustomerChangedEvent.Type.DELETED || event.getCustomer().getVersion() == null) {
+            Long customerId = event.getCustomerId();
+            lagMonitor.afterStalenessBound(() -> customersCache.evict(customerId));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ma.abid.customer_service.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the replica with {@code customer.datasource.replica.lag-query}, which must return the replication
+ * lag in seconds as its single column. The replica is usable while the last answer is within
+ * {@code customer.datasource.replica.max-lag}; an error (replica down, query unsupported) makes it unusable
+ * until the next successful check, so reads fall back to the primary rather than failing.
+ * <p>
+ * The last measured lag is published as {@code customer.datasource.replica.lag} (seconds, {@code NaN} while
+ * the replica is unreachable).
+ */
+@Slf4j
+public class ReplicaLagMonitor implements AutoCloseable {
+    private final DataSource replica;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final Duration checkInterval;
+    private final ScheduledExecutorService scheduler;
+    private volatile double lagSeconds = Double.NaN;
+    private boolean checked;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration checkInterval, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toNanos() / 1e9;
+        this.checkInterval = checkInterval;
+        Gauge.builder("customer.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-lag-monitor").daemon().factory());
+        // first check before any request is routed
+        check();
+        scheduler.scheduleWithFixedDelay(this::check, checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isReplicaUsable() {
+        // false for NaN as well
+        return lagSeconds <= maxLagSeconds;
+    }
+
+    /**
+     * How long a replica read can trail a write that committed now: a value read from the replica after this
+     * delay reflects the write, or came from the primary.
+     */
+    public Duration getStalenessBound() {
+        return Duration.ofNanos((long) (maxLagSeconds * 1e9)).plus(checkInterval);
+    }
+
+    /** Runs {@code task} once {@link #getStalenessBound()} has passed. */
+    public void afterStalenessBound(Runnable task) {
+        scheduler.schedule(task, getStalenessBound().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void check() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            double lag = resultSet.next() ? resultSet.getDouble(1) : Double.NaN;
+            if (lag > maxLagSeconds && !(lagSeconds > maxLagSeconds)) {
+                log.warn("Replica is {} s behind (max {} s), reading from the primary", lag, maxLagSeconds);
+            }
+            lagSeconds = lag;
+        } catch (SQLException | RuntimeException e) {
+            if (!checked || !Double.isNaN(lagSeconds)) log.warn("Replica lag check failed, reading from the primary: {}", e.getMessage());
+            lagSeconds = Double.NaN;
+        }
+        checked = true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
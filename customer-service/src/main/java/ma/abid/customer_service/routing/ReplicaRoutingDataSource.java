@@ -0,0 +1,79 @@
+package ma.abid.customer_service.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections for read-only transactions to the replica pool and everything else to the primary.
+ * Must sit behind a {@link LazyConnectionDataSourceProxy}: the transaction manager asks for its connection
+ * before the transaction is marked read-only, so the physical connection has to be fetched on first use.
+ * <p>
+ * A read-only transaction still goes to the primary while the current thread is pinned
+ * ({@link #pinToPrimary()}, for read-your-writes) or while {@link ReplicaLagMonitor} reports the replica
+ * as behind or unreachable. Decisions are counted in {@code customer.datasource.routing} by
+ * {@code target} and {@code reason}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter readWrite;
+    private final Counter replicaRead;
+    private final Counter pinnedRead;
+    private final Counter laggingRead;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+        this.readWrite = routing(meterRegistry, Target.PRIMARY, "read-write");
+        this.replicaRead = routing(meterRegistry, Target.REPLICA, "read-only");
+        this.pinnedRead = routing(meterRegistry, Target.PRIMARY, "pinned");
+        this.laggingRead = routing(meterRegistry, Target.PRIMARY, "replica-lag");
+    }
+
+    /** Routes the current thread's read-only transactions to the primary until {@link #unpin()}. */
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    @Override
+    protected Target determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readWrite.increment();
+            return Target.PRIMARY;
+        }
+        if (isPinnedToPrimary()) {
+            pinnedRead.increment();
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            laggingRead.increment();
+            return Target.PRIMARY;
+        }
+        replicaRead.increment();
+        return Target.REPLICA;
+    }
+
+    private static Counter routing(MeterRegistry meterRegistry, Target target, String reason) {
+        return meterRegistry.counter("customer.datasource.routing", "target", target.name().toLowerCase(), "reason", reason);
+    }
+}
@@ -0,0 +1,203 @@
+package ma.abid.customer_service.search;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over firstName, lastName and email. A keyword of three or more
+ * characters is answered by intersecting the posting lists of its trigrams and verifying the
+ * (few) candidates; the one- and two-character substrings of every field are posted too, so a
+ * shorter keyword reads its own posting list instead of scanning every document.
+ * <p>
+ * Results are ranked: a firstName hit weighs more than a lastName hit, which weighs more than an
+ * email hit, and within a field an exact match beats a prefix match beats an infix match. Ties
+ * are broken by ascending id so the order is stable.
+ * <p>
+ * The index only sees writes made through this instance, so {@link CustomerSearchIndexer} only
+ * uses it on an H2 database; {@link CustomerSearchIndexer} loads it from the database at startup.
+ * Updates carry the customer's version and never replace a newer document, and while loading, a
+ * customer already indexed or removed by a committed write is not overwritten by the snapshot.
+ */
+@Component
+public class CustomerSearchIndex {
+    static final int GRAM = 3;
+
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    // customers removed while the index loads, which the load must not bring back
+    private final Set<Long> removedWhileLoading = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    void markReady() {
+        lock.writeLock().lock();
+        try {
+            ready = true;
+            removedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Indexes a committed write; ignored when the indexed document has a newer version. */
+    public void index(CustomerDTO customer) {
+        put(customer, false);
+    }
+
+    /** Indexes a customer read by the startup load, unless a committed write got there first. */
+    void load(CustomerDTO customer) {
+        put(customer, true);
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(id);
+            if (previous != null) unpost(id, previous);
+            if (!ready) removedWhileLoading.add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(CustomerDTO customer, boolean loading) {
+        Document document = new Document(normalize(customer.getFirstName()), normalize(customer.getLastName()), normalize(customer.getEmail()),
+                customer.getVersion());
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.get(customer.getId());
+            if (loading && (previous != null || removedWhileLoading.contains(customer.getId()))) return;
+            if (previous != null && previous.isNewerThan(document)) return;
+            documents.put(customer.getId(), document);
+            if (previous != null) unpost(customer.getId(), previous);
+            for (String gram : document.grams()) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(customer.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the best {@code limit} matches, best first
+     */
+    public List<Long> search(String keyword, int limit) {
+        String query = normalize(keyword);
+        PriorityQueue<Hit> best = new PriorityQueue<>(Hit.WORST_FIRST);
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(query)) {
+                int score = documents.get(id).score(query);
+                if (score == 0) continue;
+                best.offer(new Hit(id, score));
+                if (best.size() > limit) best.poll();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Long[] ids = new Long[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) ids[i] = best.poll().id();
+        return Arrays.asList(ids);
+    }
+
+    /**
+     * The score {@link #search} ranks {@code customer} by for {@code keyword}, 0 when it does not match; also the
+     * order of {@code CustomerRepository.searchByKeyword}, so results ranked elsewhere can be merged.
+     */
+    public static int score(CustomerDTO customer, String keyword) {
+        return new Document(normalize(customer.getFirstName()), normalize(customer.getLastName()), normalize(customer.getEmail()), null)
+                .score(normalize(keyword));
+    }
+
+    private Collection<Long> candidates(String query) {
+        if (query.isEmpty()) return documents.keySet();
+        if (query.length() < GRAM) return postings.getOrDefault(query, Set.of());
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) return List.of();
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> candidates = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+        }
+        return candidates;
+    }
+
+    private void unpost(Long id, Document document) {
+        for (String gram : document.grams()) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) postings.remove(gram);
+        }
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /** The trigrams of {@code value} plus its shorter substrings, which answer one- and two-character keywords. */
+    static Set<String> postedGrams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= value.length(); i++) {
+                grams.add(value.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    private record Document(String firstName, String lastName, String email, Long version) {
+        Set<String> grams() {
+            Set<String> grams = postedGrams(firstName);
+            grams.addAll(postedGrams(lastName));
+            grams.addAll(postedGrams(email));
+            return grams;
+        }
+
+        boolean isNewerThan(Document other) {
+            return version != null && other.version != null && version > other.version;
+        }
+
+        int score(String query) {
+            return 3 * fieldScore(firstName, query) + 2 * fieldScore(lastName, query) + fieldScore(email, query);
+        }
+
+        private static int fieldScore(String field, String query) {
+            if (field.equals(query)) return 100;
+            if (field.startsWith(query)) return 50;
+            return field.contains(query) ? 10 : 0;
+        }
+    }
+
+    private record Hit(Long id, int score) {
+        static final Comparator<Hit> WORST_FIRST = Comparator.comparingInt(Hit::score)
+                .thenComparing(Hit::id, Comparator.reverseOrder());
+    }
+}
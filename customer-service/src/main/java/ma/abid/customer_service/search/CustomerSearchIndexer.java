@@ -0,0 +1,59 @@
+package ma.abid.customer_service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import ma.abid.customer_service.service.CustomerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps {@link CustomerSearchIndex} in step with the database: a full load once the application
+ * (and its data seeding) is ready, then one update per committed write.
+ * <p>
+ * The index only sees this instance's writes, so it is only used where no other instance writes to
+ * the same database: by default ({@code customer.search.in-memory-index=auto}) on an H2 database.
+ * Elsewhere the index is never loaded and search runs in the database, on PostgreSQL through its
+ * trigram indexes. {@code true} or {@code false} force the choice.
+ */
+@Slf4j
+@Component
+public class CustomerSearchIndexer {
+    private final CustomerSearchIndex customerSearchIndex;
+    private final CustomerService customerService;
+    private final boolean enabled;
+
+    public CustomerSearchIndexer(CustomerSearchIndex customerSearchIndex, CustomerService customerService,
+                                 @Value("${customer.search.in-memory-index:auto}") String inMemoryIndex,
+                                 @Value("${spring.datasource.url:}") String datasourceUrl) {
+        this.customerSearchIndex = customerSearchIndex;
+        this.customerService = customerService;
+        this.enabled = "auto".equals(inMemoryIndex)
+                ? DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.H2
+                : Boolean.parseBoolean(inMemoryIndex);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            log.info("Customer search runs in the database");
+            return;
+        }
+        customerService.streamAllCustomers(customerSearchIndex::load);
+        customerSearchIndex.markReady();
+        log.info("Customer search index loaded with {} customers", customerSearchIndex.size());
+    }
+
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!enabled) return;
+        if (event.getType() == CustomerChangedEvent.Type.DELETED) {
+            customerSearchIndex.remove(event.getCustomerId());
+        } else {
+            customerSearchIndex.index(event.getCustomer());
+        }
+    }
+}
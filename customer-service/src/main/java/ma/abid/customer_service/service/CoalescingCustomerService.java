@@ -0,0 +1,200 @@
+package ma.abid.customer_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.exception.BatchSizeExceededException;
+import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
+import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
+import ma.abid.customer_service.routing.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer over the customer store ({@link CustomerServiceImpl}, or {@link ShardedCustomerService} when
+ * sharding is enabled) for the hot reads: concurrent identical calls to
+ * {@code getCustomerById}, {@code getCustomerVersion}, {@code searchCustomers}, {@code getAllCustomers},
+ * {@code getCustomersFingerprint} and {@code getCustomersPage} share one call to the service and its result.
+ * Writes and streams go straight through.
+ * <p>
+ * A coalesced caller can get a result that started before it arrived, never older than one query. It never joins a
+ * call that started before a write through this service completed: every write moves a write epoch, and calls only
+ * share a flight within one epoch, so a read after a write (of any caller on this instance) always queries again.
+ * Callers pinned to the primary (see {@link ReplicaRoutingDataSource#pinToPrimary()}) and those already inside a
+ * transaction are not coalesced at all. Results are shared between callers, who must not modify them.
+ * <p>
+ * Calls are counted in {@code customer.service.coalescing} by {@code operation} and {@code outcome}
+ * ({@code executed}, {@code coalesced}, {@code bypassed}); {@code customer.service.coalescing.in-flight} is the
+ * number of calls currently shared. Disabled with {@code customer.coalescing.enabled=false}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "customer.coalescing.enabled", havingValue = "true", matchIfMissing = true)
+public class CoalescingCustomerService implements CustomerService {
+    private final CustomerService delegate;
+    private final SingleFlight<Object> singleFlight = new SingleFlight<>();
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final Operation byId;
+    private final Operation version;
+    private final Operation search;
+    private final Operation all;
+    private final Operation fingerprint;
+    private final Operation page;
+
+    public CoalescingCustomerService(@Qualifier("customerStore") CustomerService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.byId = new Operation("getCustomerById", meterRegistry);
+        this.version = new Operation("getCustomerVersion", meterRegistry);
+        this.search = new Operation("searchCustomers", meterRegistry);
+        this.all = new Operation("getAllCustomers", meterRegistry);
+        this.fingerprint = new Operation("getCustomersFingerprint", meterRegistry);
+        this.page = new Operation("getCustomersPage", meterRegistry);
+        Gauge.builder("customer.service.coalescing.in-flight", singleFlight, SingleFlight::size).register(meterRegistry);
+    }
+
+    @Override
+    public CustomerDTO getCustomerById(Long id) throws CustomerNotFoundException {
+        return coalesce(byId, id, () -> delegate.getCustomerById(id));
+    }
+
+    @Override
+    public CustomerDTO getCustomerByEmail(String email) throws CustomerNotFoundException {
+        return delegate.getCustomerByEmail(email);
+    }
+
+    @Override
+    public Long getCustomerVersion(Long id) throws CustomerNotFoundException {
+        return coalesce(version, id, () -> delegate.getCustomerVersion(id));
+    }
+
+    @Override
+    public List<CustomerDTO> searchCustomers(String keyword, int limit) {
+        return coalesce(search, new SearchKey(keyword, limit), () -> delegate.searchCustomers(keyword, limit));
+    }
+
+    @Override
+    public CustomerLookupDTO lookupCustomers(List<Long> ids, List<String> emails) throws BatchSizeExceededException {
+        // key sets rarely repeat exactly, and each one is a single chunked query already
+        return delegate.lookupCustomers(ids, emails);
+    }
+
+    @Override
+    public List<CustomerDTO> getAllCustomers() {
+        return coalesce(all, all, delegate::getAllCustomers);
+    }
+
+    @Override
+    public String getCustomersFingerprint() {
+        return coalesce(fingerprint, fingerprint, delegate::getCustomersFingerprint);
+    }
+
+    @Override
+    public CustomerPageDTO getCustomersPage(String cursor, int size) throws InvalidCursorException {
+        return coalesce(page, new PageKey(cursor, size), () -> delegate.getCustomersPage(cursor, size));
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<CustomerDTO> consumer) {
+        delegate.streamAllCustomers(consumer);
+    }
+
+    @Override
+    public void streamCustomersAfter(long afterId, Consumer<CustomerDTO> consumer) {
+        delegate.streamCustomersAfter(afterId, consumer);
+    }
+
+    @Override
+    public CustomerDTO saveNewCustomer(CustomerDTO customerDTO) throws EmailAlreadyExistException {
+        return write(() -> delegate.saveNewCustomer(customerDTO));
+    }
+
+    @Override
+    public CustomerDTO upDateCustomer(Long id, CustomerDTO customerDTO) throws CustomerNotFoundException, CustomerVersionConflictException {
+        return write(() -> delegate.upDateCustomer(id, customerDTO));
+    }
+
+    @Override
+    public void deleteCustomer(Long id) throws CustomerNotFoundException {
+        write(() -> {
+            delegate.deleteCustomer(id);
+            return null;
+        });
+    }
+
+    @Override
+    public List<BatchItemResultDTO> saveNewCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException {
+        return write(() -> delegate.saveNewCustomers(customerDTOs));
+    }
+
+    @Override
+    public List<BatchItemResultDTO> upDateCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException {
+        return write(() -> delegate.upDateCustomers(customerDTOs));
+    }
+
+    @Override
+    public List<BatchItemResultDTO> deleteCustomers(List<Long> ids) throws BatchSizeExceededException {
+        return write(() -> delegate.deleteCustomers(ids));
+    }
+
+    private <V> V coalesce(Operation operation, Object key, Supplier<V> call) {
+        if (ReplicaRoutingDataSource.isPinnedToPrimary() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            operation.bypassed.increment();
+            return call.get();
+        }
+        return singleFlight.execute(new FlightKey(operation, key, writeEpoch.get()), call, operation);
+    }
+
+    private <V> V write(Supplier<V> call) {
+        try {
+            return call.get();
+        } finally {
+            // the write has committed (or failed) by now: later reads must not join a flight started before it
+            writeEpoch.incrementAndGet();
+        }
+    }
+
+    private record FlightKey(Operation operation, Object key, long writeEpoch) {
+    }
+
+    private record SearchKey(String keyword, int limit) {
+    }
+
+    private record PageKey(String cursor, int size) {
+    }
+
+    private static final class Operation implements SingleFlight.Listener {
+        final Counter executed;
+        final Counter coalesced;
+        final Counter bypassed;
+
+        Operation(String name, MeterRegistry meterRegistry) {
+            this.executed = meterRegistry.counter("customer.service.coalescing", "operation", name, "outcome", "executed");
+            this.coalesced = meterRegistry.counter("customer.service.coalescing", "operation", name, "outcome", "coalesced");
+            this.bypassed = meterRegistry.counter("customer.service.coalescing", "operation", name, "outcome", "bypassed");
+        }
+
+        @Override
+        public void executed() {
+            executed.increment();
+        }
+
+        @Override
+        public void coalesced() {
+            coalesced.increment();
+        }
+    }
+}
@@ -1,17 +1,34 @@
 package ma.abid.customer_service.service;
 
+import ma.abid.customer_service.dto.BatchItemResultDTO;
 import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.exception.BatchSizeExceededException;
 import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
 import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
 import ma.abid.customer_service.mapper.CustomerMapper;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CustomerService {
     CustomerDTO saveNewCustomer(CustomerDTO customerDTO) throws EmailAlreadyExistException;
     List<CustomerDTO> getAllCustomers();
+    String getCustomersFingerprint();
+    CustomerPageDTO getCustomersPage(String cursor, int size) throws InvalidCursorException;
+    void streamAllCustomers(Consumer<CustomerDTO> consumer);
+    void streamCustomersAfter(long afterId, Consumer<CustomerDTO> consumer);
     CustomerDTO getCustomerById(Long id) throws CustomerNotFoundException;
-    List<CustomerDTO> searchCustomers(String keyword);
-    CustomerDTO upDateCustomer(Long id, CustomerDTO customerDTO) throws CustomerNotFoundException;
+    CustomerDTO getCustomerByEmail(String email) throws CustomerNotFoundException;
+    Long getCustomerVersion(Long id) throws CustomerNotFoundException;
+    List<CustomerDTO> searchCustomers(String keyword, int limit);
+    CustomerLookupDTO lookupCustomers(List<Long> ids, List<String> emails) throws BatchSizeExceededException;
+    CustomerDTO upDateCustomer(Long id, CustomerDTO customerDTO) throws CustomerNotFoundException, CustomerVersionConflictException;
     void deleteCustomer(Long id) throws CustomerNotFoundException;
+    List<BatchItemResultDTO> saveNewCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException;
+    List<BatchItemResultDTO> upDateCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException;
+    List<BatchItemResultDTO> deleteCustomers(List<Long> ids) throws BatchSizeExceededException;
 }
@@ -1,78 +1,491 @@
 package ma.abid.customer_service.service;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import ma.abid.customer_service.config.CacheConfig;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
 import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
 import ma.abid.customer_service.entities.Customer;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import ma.abid.customer_service.exception.BatchSizeExceededException;
 import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
 import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
 import ma.abid.customer_service.mapper.CustomerMapper;
 import ma.abid.customer_service.repository.CustomerRepository;
+import ma.abid.customer_service.search.CustomerSearchIndex;
 import org.aspectj.apache.bcel.classfile.Module;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Fallback;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * The customer store on one database. Injected where a {@code CustomerService} is needed only when no decorator
+ * ({@link CoalescingCustomerService}, {@link ShardedCustomerService}) is active.
+ */
 @Slf4j
 @Service
+@Qualifier("customerStore")
+@Fallback
 @Transactional
+@Timed(value = "customer.service", histogram = true)
 public class CustomerServiceImpl implements CustomerService{
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_SEARCH_RESULTS = 200;
+    public static final int MAX_BATCH_SIZE = 1000;
+    /** Keys per IN list: stays clear of driver bind-parameter limits and keeps padded IN statements few. */
+    static final int LOOKUP_CHUNK_SIZE = 500;
+    /** Attempts of a batch write that keeps losing emails to concurrent writes between its pre-check and its flush. */
+    static final int MAX_BATCH_ATTEMPTS = 3;
+
     private final CustomerRepository customerRepository;
     private final CustomerMapper customerMapper;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
 
-    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper) {
+    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper,
+                               CustomerSearchIndex customerSearchIndex, ApplicationEventPublisher eventPublisher, Validator validator,
+                               CacheManager cacheManager, PlatformTransactionManager transactionManager) {
         this.customerRepository = customerRepository;
         this.customerMapper = customerMapper;
+        this.customerSearchIndex = customerSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public CustomerDTO saveNewCustomer(CustomerDTO customerDTO) throws EmailAlreadyExistException {
 //        log.info(String.format("saving new Customer=> %s", customerDTO.toString()));
-        Optional<Customer> byEmail = customerRepository.findByEmail(customerDTO.getEmail());
-        if(byEmail.isPresent()){
+        Customer customerToSave = customerMapper.fromCustomerDTO(customerDTO);
+        // a client-supplied id or version would make Spring Data treat the customer as existing and merge it
+        customerToSave.setId(null);
+        customerToSave.setVersion(null);
+        Customer savedCustomer;
+        try {
+            // the unique constraint on email does the duplicate check in the same round trip as the insert
+            savedCustomer = customerRepository.saveAndFlush(customerToSave);
+        } catch (DataIntegrityViolationException e) {
 //            log.error(String.format("This email %s already exist", customerDTO.getEmail()));
-            throw new EmailAlreadyExistException("Email already exists: " + customerDTO.getEmail());
+            throw emailConflict(e, "Email already exists: " + customerDTO.getEmail());
         }
-        Customer customerToSave = customerMapper.fromCustomerDTO(customerDTO);
-        Customer savedCustomer = customerRepository.save(customerToSave);
-        return customerMapper.fromCustomer(savedCustomer);
+        CustomerDTO savedCustomerDTO = customerMapper.fromCustomer(savedCustomer);
+        eventPublisher.publishEvent(CustomerChangedEvent.created(savedCustomerDTO));
+        return savedCustomerDTO;
 
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CustomerDTO> getAllCustomers() {
-        List<Customer> allCustomers = customerRepository.findAll();
-        return customerMapper.customerDTOList(allCustomers);
+        // id order keeps the representation byte-stable for a given fingerprint, which the strong list ETag relies on
+        return customerRepository.findAllCustomerDTOs();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getCustomersFingerprint() {
+        return customerRepository.tableFingerprint();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CustomerPageDTO getCustomersPage(String cursor, int size) throws InvalidCursorException {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        long afterId = decodeCursor(cursor);
+        // one extra row tells us whether a next page exists without a count query
+        List<CustomerDTO> customers = customerRepository.findCustomerDTOsAfter(afterId, Limit.of(pageSize + 1));
+        boolean hasNext = customers.size() > pageSize;
+        List<CustomerDTO> page = hasNext ? new ArrayList<>(customers.subList(0, pageSize)) : customers;
+        return CustomerPageDTO.builder()
+                .content(page)
+                .size(page.size())
+                .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1).getId()) : null)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<CustomerDTO> consumer) {
+        // projected rows are never managed, so the persistence context stays empty however large the table
+        try (Stream<CustomerDTO> customers = customerRepository.streamAllCustomerDTOs()) {
+            customers.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamCustomersAfter(long afterId, Consumer<CustomerDTO> consumer) {
+        try (Stream<CustomerDTO> customers = customerRepository.streamCustomerDTOsAfter(afterId)) {
+            customers.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    // sync: a miss is filled through Cache.get(key, loader), which the two-tier cache does not broadcast as a write
+    @Cacheable(cacheNames = CacheConfig.CUSTOMERS_CACHE, key = "#id", sync = true)
     public CustomerDTO getCustomerById(Long id) throws CustomerNotFoundException {
-        Optional<Customer> searchedCustomer = customerRepository.findById(id);
-        if(searchedCustomer.isEmpty()) throw new  CustomerNotFoundException("This Customer not found");
-        return customerMapper.fromCustomer(searchedCustomer.get());
+        return customerRepository.findCustomerDTOById(id)
+                .orElseThrow(() -> new CustomerNotFoundException("This Customer not found"));
     }
 
     @Override
-    public List<CustomerDTO> searchCustomers(String keyword) {
-        List<Customer> searchedCustomers = customerRepository.findByFirstNameContainsIgnoreCase(keyword);
-        return customerMapper.customerDTOList(searchedCustomers);
+    @Transactional(readOnly = true)
+    public CustomerDTO getCustomerByEmail(String email) throws CustomerNotFoundException {
+        String normalizedEmail = email == null ? "" : email.trim();
+        List<CustomerDTO> customers = customerRepository.findCustomerDTOsByLowerEmail(normalizedEmail.toLowerCase(Locale.ROOT));
+        if (customers.isEmpty()) throw new CustomerNotFoundException("This Customer not found");
+        // emails are only unique as written, so an exact match wins over another spelling of the same address
+        for (CustomerDTO customer : customers) {
+            if (customer.getEmail().equals(normalizedEmail)) return customer;
+        }
+        return customers.get(0);
     }
 
     @Override
-    public CustomerDTO upDateCustomer(Long id, CustomerDTO customerDTO) throws CustomerNotFoundException {
-        Optional<Customer> customerToUpdate = customerRepository.findById(id);
-        if(customerToUpdate.isEmpty()) throw new CustomerNotFoundException("This Customer not found");
-        customerDTO.setId(id);
-        Customer customerToSave = customerMapper.fromCustomerDTO(customerDTO);
-        Customer savedCustomer = customerRepository.save(customerToSave);
-        return customerMapper.fromCustomer(savedCustomer);
+    @Transactional(readOnly = true)
+    public Long getCustomerVersion(Long id) throws CustomerNotFoundException {
+        // a cached customer answers without touching the database; otherwise only the version column is read
+        Cache customersCache = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        CustomerDTO cachedCustomer = customersCache == null ? null : customersCache.get(id, CustomerDTO.class);
+        if (cachedCustomer != null && cachedCustomer.getVersion() != null) return cachedCustomer.getVersion();
+        return customerRepository.findVersionById(id)
+                .orElseThrow(() -> new CustomerNotFoundException("This Customer not found"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CustomerDTO> searchCustomers(String keyword, int limit) {
+        int maxResults = Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS);
+        if (!customerSearchIndex.isReady()) {
+            return customerRepository.searchByKeyword(keyword, PageRequest.of(0, maxResults));
+        }
+        List<Long> rankedIds = customerSearchIndex.search(keyword, maxResults);
+        if (rankedIds.isEmpty()) return List.of();
+        Map<Long, CustomerDTO> customersById = new HashMap<>();
+        for (CustomerDTO customer : customerRepository.findCustomerDTOsByIdIn(rankedIds)) {
+            customersById.put(customer.getId(), customer);
+        }
+        List<CustomerDTO> searchedCustomers = new ArrayList<>(rankedIds.size());
+        for (Long id : rankedIds) {
+            CustomerDTO customer = customersById.get(id);
+            if (customer != null) searchedCustomers.add(customer);
+        }
+        return searchedCustomers;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerLookupDTO lookupCustomers(List<Long> ids, List<String> emails) throws BatchSizeExceededException {
+        List<Long> requestedIds = ids == null ? List.of() : ids;
+        List<String> requestedEmails = emails == null ? List.of() : emails;
+        checkBatchSize(requestedIds.size() + requestedEmails.size());
+        // ids already in the customers cache are answered from it; only the misses go to the database
+        Cache customersCache = cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        Map<Long, CustomerDTO> customersById = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(requestedIds)) {
+            if (id == null) continue;
+            CustomerDTO cachedCustomer = customersCache == null ? null : customersCache.get(id, CustomerDTO.class);
+            customersById.put(id, cachedCustomer);
+            if (cachedCustomer == null) missingIds.add(id);
+        }
+        for (List<Long> chunk : chunks(missingIds)) {
+            for (CustomerDTO customer : customerRepository.findCustomerDTOsByIdIn(chunk)) customersById.put(customer.getId(), customer);
+        }
+        Map<String, CustomerDTO> customersByEmail = new LinkedHashMap<>();
+        for (String email : new LinkedHashSet<>(requestedEmails)) {
+            if (email != null) customersByEmail.put(email, null);
+        }
+        for (List<String> chunk : chunks(new ArrayList<>(customersByEmail.keySet()))) {
+            for (CustomerDTO customer : customerRepository.findCustomerDTOsByEmailIn(chunk)) customersByEmail.put(customer.getEmail(), customer);
+        }
+        return CustomerLookupDTO.builder().ids(customersById).emails(customersByEmail).build();
+    }
+
+    @Override
+    public CustomerDTO upDateCustomer(Long id, CustomerDTO customerDTO) throws CustomerNotFoundException, CustomerVersionConflictException {
+        // one UPDATE statement; the affected-row count replaces the findById pre-read
+        Long expectedVersion = customerDTO.getVersion();
+        int updatedRows;
+        try {
+            updatedRows = expectedVersion == null
+                    ? customerRepository.updateCustomer(id, customerDTO.getFirstName(), customerDTO.getLastName(), customerDTO.getEmail())
+                    : customerRepository.updateCustomerIfVersion(id, expectedVersion, customerDTO.getFirstName(), customerDTO.getLastName(), customerDTO.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            throw emailConflict(e, "Email already exists: " + customerDTO.getEmail());
+        }
+        if (updatedRows == 0) {
+            // only pay for the existence check on the failure path, to tell a stale version from a missing row
+            if (expectedVersion != null && customerRepository.existsById(id))
+                throw new CustomerVersionConflictException("This Customer was modified concurrently");
+            throw new CustomerNotFoundException("This Customer not found");
+        }
+        // an unversioned update bumped whatever version the row had: read it back in this transaction for the ETag and the event
+        Long newVersion = expectedVersion != null ? Long.valueOf(expectedVersion + 1) : customerRepository.findVersionById(id).orElse(null);
+        CustomerDTO updatedCustomerDTO = new CustomerDTO(id, customerDTO.getFirstName(), customerDTO.getLastName(), customerDTO.getEmail(),
+                newVersion);
+        eventPublisher.publishEvent(CustomerChangedEvent.updated(updatedCustomerDTO));
+        return updatedCustomerDTO;
     }
 
     @Override
     public void deleteCustomer(Long id) throws CustomerNotFoundException {
-        Optional<Customer> customerToDelete = customerRepository.findById(id);
-        if(customerToDelete.isEmpty()) throw new CustomerNotFoundException("This Customer not found");
-        customerRepository.deleteById(id);
+        if (customerRepository.deleteCustomerById(id) == 0) throw new CustomerNotFoundException("This Customer not found");
+        eventPublisher.publishEvent(CustomerChangedEvent.deleted(id));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<BatchItemResultDTO> saveNewCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException {
+        checkBatchSize(customerDTOs.size());
+        return inBatchTransaction(() -> trySaveNewCustomers(customerDTOs));
+    }
+
+    private List<BatchItemResultDTO> trySaveNewCustomers(List<CustomerDTO> customerDTOs) {
+        BatchItemResultDTO[] results = new BatchItemResultDTO[customerDTOs.size()];
+        Set<String> requestedEmails = new HashSet<>();
+        for (int i = 0; i < results.length; i++) {
+            String violations = violations(customerDTOs.get(i));
+            if (violations != null) results[i] = result(i, BatchItemResultDTO.Status.INVALID, violations);
+            else requestedEmails.add(customerDTOs.get(i).getEmail());
+        }
+        // one round trip for the whole batch instead of a findByEmail per customer
+        Set<String> takenEmails = requestedEmails.isEmpty() ? new HashSet<>() : new HashSet<>(customerRepository.findExistingEmails(requestedEmails));
+        List<Customer> customersToSave = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) continue;
+            CustomerDTO customerDTO = customerDTOs.get(i);
+            if (!takenEmails.add(customerDTO.getEmail())) {
+                results[i] = result(i, BatchItemResultDTO.Status.CONFLICT, "Email already exists: " + customerDTO.getEmail());
+                continue;
+            }
+            Customer customer = customerMapper.fromCustomerDTO(customerDTO);
+            customer.setId(null);
+            customer.setVersion(null);
+            customersToSave.add(customer);
+            positions.add(i);
+        }
+        List<Customer> savedCustomers;
+        try {
+            savedCustomers = customerRepository.saveAllAndFlush(customersToSave);
+        } catch (DataIntegrityViolationException e) {
+            // an email taken by a concurrent request after the pre-check; the next attempt's pre-check reports it
+            throw emailConflict(e, "Email already exists");
+        }
+        for (int k = 0; k < savedCustomers.size(); k++) {
+            CustomerDTO savedCustomerDTO = customerMapper.fromCustomer(savedCustomers.get(k));
+            results[positions.get(k)] = result(positions.get(k), BatchItemResultDTO.Status.CREATED, savedCustomerDTO);
+            eventPublisher.publishEvent(CustomerChangedEvent.created(savedCustomerDTO));
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<BatchItemResultDTO> upDateCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException {
+        checkBatchSize(customerDTOs.size());
+        return inBatchTransaction(() -> tryUpDateCustomers(customerDTOs));
+    }
+
+    private List<BatchItemResultDTO> tryUpDateCustomers(List<CustomerDTO> customerDTOs) {
+        BatchItemResultDTO[] results = new BatchItemResultDTO[customerDTOs.size()];
+        Set<Long> requestedIds = new HashSet<>();
+        for (int i = 0; i < results.length; i++) {
+            CustomerDTO customerDTO = customerDTOs.get(i);
+            String violations = customerDTO.getId() == null ? "id: must not be null" : violations(customerDTO);
+            if (violations != null) results[i] = result(i, BatchItemResultDTO.Status.INVALID, violations);
+            else if (!requestedIds.add(customerDTO.getId())) results[i] = result(i, BatchItemResultDTO.Status.INVALID, "id: duplicated in batch");
+        }
+        // load and lock every target in one query, so the versions checked here are the ones the batched updates flush
+        Map<Long, Customer> customersById = new HashMap<>();
+        Map<Integer, Customer> updatedCustomers = new TreeMap<>();
+        if (!requestedIds.isEmpty()) {
+            for (Customer customer : customerRepository.findAllByIdForUpdate(requestedIds)) {
+                customersById.put(customer.getId(), customer);
+            }
+        }
+        Set<String> changedEmails = new HashSet<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) continue;
+            CustomerDTO customerDTO = customerDTOs.get(i);
+            Customer customer = customersById.get(customerDTO.getId());
+            if (customer == null) {
+                results[i] = result(i, BatchItemResultDTO.Status.NOT_FOUND, "This Customer not found");
+                results[i].setId(customerDTO.getId());
+            } else if (customerDTO.getVersion() != null && !customerDTO.getVersion().equals(customer.getVersion())) {
+                results[i] = result(i, BatchItemResultDTO.Status.CONFLICT, "This Customer was modified concurrently");
+                results[i].setId(customerDTO.getId());
+            } else if (!customerDTO.getEmail().equals(customer.getEmail())) {
+                changedEmails.add(customerDTO.getEmail());
+            }
+        }
+        // one round trip checks every new email; a customer keeping its own email is not checked against itself
+        Set<String> takenEmails = changedEmails.isEmpty() ? new HashSet<>() : new HashSet<>(customerRepository.findExistingEmails(changedEmails));
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) continue;
+            CustomerDTO customerDTO = customerDTOs.get(i);
+            Customer customer = customersById.get(customerDTO.getId());
+            if (!customerDTO.getEmail().equals(customer.getEmail()) && !takenEmails.add(customerDTO.getEmail())) {
+                results[i] = result(i, BatchItemResultDTO.Status.CONFLICT, "Email already exists: " + customerDTO.getEmail());
+                results[i].setId(customerDTO.getId());
+                continue;
+            }
+            customer.setFirstName(customerDTO.getFirstName());
+            customer.setLastName(customerDTO.getLastName());
+            customer.setEmail(customerDTO.getEmail());
+            updatedCustomers.put(i, customer);
+        }
+        // flush the batched updates so the reported versions are the incremented ones
+        try {
+            if (!updatedCustomers.isEmpty()) customerRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            // an email taken by a concurrent request after the pre-check; the next attempt's pre-check reports it
+            throw emailConflict(e, "Email already exists");
+        }
+        updatedCustomers.forEach((i, customer) -> {
+            CustomerDTO updatedCustomerDTO = customerMapper.fromCustomer(customer);
+            results[i] = result(i, BatchItemResultDTO.Status.UPDATED, updatedCustomerDTO);
+            eventPublisher.publishEvent(CustomerChangedEvent.updated(updatedCustomerDTO));
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Runs a batch write in its own transaction. An email taken by a concurrent write between the batch's
+     * pre-check and its flush rolls the attempt back, and the batch is run again: its pre-check now sees the email
+     * and reports {@code CONFLICT} for just the items using it. Inside a caller's transaction there is nothing to
+     * retry in, so the conflict goes to the caller.
+     */
+    private List<BatchItemResultDTO> inBatchTransaction(Supplier<List<BatchItemResultDTO>> batch) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) return batch.get();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> batch.get());
+            } catch (EmailAlreadyExistException e) {
+                if (attempt == MAX_BATCH_ATTEMPTS) throw e;
+                log.debug("Batch lost an email to a concurrent write, retrying: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public List<BatchItemResultDTO> deleteCustomers(List<Long> ids) throws BatchSizeExceededException {
+        checkBatchSize(ids.size());
+        Set<Long> requestedIds = new HashSet<>(ids);
+        requestedIds.remove(null);
+        Set<Long> existingIds = requestedIds.isEmpty() ? Set.of() : new HashSet<>(customerRepository.findExistingIds(requestedIds));
+        if (!existingIds.isEmpty()) customerRepository.deleteAllByIdInBatch(existingIds);
+        List<BatchItemResultDTO> results = new ArrayList<>(ids.size());
+        Set<Long> deletedIds = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            boolean deleted = existingIds.contains(id);
+            BatchItemResultDTO result = deleted
+                    ? result(i, BatchItemResultDTO.Status.DELETED, (String) null)
+                    : result(i, BatchItemResultDTO.Status.NOT_FOUND, "This Customer not found");
+            result.setId(id);
+            results.add(result);
+            if (deleted && deletedIds.add(id)) eventPublisher.publishEvent(CustomerChangedEvent.deleted(id));
+        }
+        return results;
+    }
+
+    /**
+     * Maps a violation of {@link Customer#EMAIL_UNIQUE_CONSTRAINT} to {@link EmailAlreadyExistException}; any other
+     * integrity violation is returned unchanged.
+     */
+    static RuntimeException emailConflict(DataIntegrityViolationException e, String message) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Customer.EMAIL_UNIQUE_CONSTRAINT)) {
+                return new EmailAlreadyExistException(message);
+            }
+        }
+        return e;
+    }
+
+    static void checkBatchSize(int size) throws BatchSizeExceededException {
+        if (size > MAX_BATCH_SIZE) throw new BatchSizeExceededException("Batch size " + size + " exceeds the maximum of " + MAX_BATCH_SIZE);
+    }
+
+    private static <T> List<List<T>> chunks(List<T> keys) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += LOOKUP_CHUNK_SIZE) {
+            chunks.add(keys.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, keys.size())));
+        }
+        return chunks;
+    }
+
+    private String violations(CustomerDTO customerDTO) {
+        Set<ConstraintViolation<CustomerDTO>> violations = validator.validate(customerDTO);
+        if (violations.isEmpty()) return null;
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static BatchItemResultDTO result(int index, BatchItemResultDTO.Status status, String message) {
+        return BatchItemResultDTO.builder().index(index).status(status).message(message).build();
+    }
+
+    private static BatchItemResultDTO result(int index, BatchItemResultDTO.Status status, CustomerDTO customerDTO) {
+        return BatchItemResultDTO.builder().index(index).id(customerDTO.getId()).status(status).customer(customerDTO).build();
+    }
+
+    static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long decodeCursor(String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isBlank()) return 0L;
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
     }
 }
@@ -0,0 +1,432 @@
+package ma.abid.customer_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.exception.BatchSizeExceededException;
+import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
+import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
+import ma.abid.customer_service.search.CustomerSearchIndex;
+import ma.abid.customer_service.sharding.CustomerEmailDirectory;
+import ma.abid.customer_service.sharding.CustomerShards;
+import ma.abid.customer_service.sharding.ShardContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * The customer store over several databases (see {@code ShardingConfig}), with {@link CustomerServiceImpl} doing
+ * the work on each. A customer is created on the shard its email hashes to, and that shard is part of its id, so
+ * everything addressed by id goes to one shard. Emails go through {@link CustomerEmailDirectory}, which keeps them
+ * unique across shards and says where to look one up. Lists, pages, streams and searches ask every shard in
+ * parallel and merge the answers by id; as each shard reads in its own transaction, a merged result is not a
+ * snapshot of all shards at one instant.
+ * <p>
+ * Batches are split by shard and each part is atomic on its shard only: one shard's part can fail, as a
+ * {@code CONFLICT} for every customer in it, while the others succeed.
+ */
+@Slf4j
+@Service
+@Qualifier("customerStore")
+@ConditionalOnProperty(name = "customer.sharding.enabled", havingValue = "true")
+public class ShardedCustomerService implements CustomerService {
+    private static final Comparator<CustomerDTO> BY_ID = Comparator.comparing(CustomerDTO::getId);
+
+    private final CustomerService delegate;
+    private final CustomerShards shards;
+    private final CustomerEmailDirectory emailDirectory;
+    private final CustomerSearchIndex customerSearchIndex;
+
+    public ShardedCustomerService(@Qualifier("customerServiceImpl") CustomerService delegate, CustomerShards shards,
+                                  CustomerEmailDirectory emailDirectory, CustomerSearchIndex customerSearchIndex) {
+        this.delegate = delegate;
+        this.shards = shards;
+        this.emailDirectory = emailDirectory;
+        this.customerSearchIndex = customerSearchIndex;
+    }
+
+    /** Before the search index loads: customers seeded or written while sharding was off are not in the directory yet. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillEmailDirectory() {
+        int added = emailDirectory.backfill();
+        if (added > 0) log.info("Added {} shard 0 customers to the email routing index", added);
+    }
+
+    @Override
+    public CustomerDTO saveNewCustomer(CustomerDTO customerDTO) throws EmailAlreadyExistException {
+        String email = customerDTO.getEmail();
+        int shard = shards.shardFor(email);
+        if (email != null && emailDirectory.claim(email, shard, null) == CustomerEmailDirectory.Claim.TAKEN)
+            throw new EmailAlreadyExistException("Email already exists: " + email);
+        CustomerDTO savedCustomerDTO;
+        try {
+            savedCustomerDTO = ShardContext.call(shard, () -> delegate.saveNewCustomer(customerDTO));
+        } catch (RuntimeException e) {
+            if (email != null) emailDirectory.release(email, null);
+            throw e;
+        }
+        if (email != null) emailDirectory.attach(email, savedCustomerDTO.getId());
+        return savedCustomerDTO;
+    }
+
+    @Override
+    public List<CustomerDTO> getAllCustomers() {
+        List<CustomerDTO> customers = new ArrayList<>();
+        shards.onEachShard(shard -> delegate.getAllCustomers()).forEach(customers::addAll);
+        customers.sort(BY_ID);
+        return customers;
+    }
+
+    @Override
+    public String getCustomersFingerprint() {
+        return String.join(":", shards.onEachShard(shard -> delegate.getCustomersFingerprint()));
+    }
+
+    @Override
+    public CustomerPageDTO getCustomersPage(String cursor, int size) throws InvalidCursorException {
+        int pageSize = Math.min(Math.max(size, 1), CustomerServiceImpl.MAX_PAGE_SIZE);
+        // fail on a bad cursor once, not once per shard
+        CustomerServiceImpl.decodeCursor(cursor);
+        // the page is the first pageSize of the shards' own first pages
+        List<CustomerPageDTO> shardPages = shards.onEachShard(shard -> delegate.getCustomersPage(cursor, pageSize));
+        List<CustomerDTO> customers = new ArrayList<>();
+        boolean shardHasNext = false;
+        for (CustomerPageDTO shardPage : shardPages) {
+            customers.addAll(shardPage.getContent());
+            shardHasNext |= shardPage.getNextCursor() != null;
+        }
+        customers.sort(BY_ID);
+        boolean hasNext = shardHasNext || customers.size() > pageSize;
+        List<CustomerDTO> page = customers.size() > pageSize ? new ArrayList<>(customers.subList(0, pageSize)) : customers;
+        return CustomerPageDTO.builder()
+                .content(page)
+                .size(page.size())
+                .nextCursor(hasNext && !page.isEmpty() ? CustomerServiceImpl.encodeCursor(page.get(page.size() - 1).getId()) : null)
+                .build();
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<CustomerDTO> consumer) {
+        streamCustomersAfter(0L, consumer);
+    }
+
+    @Override
+    public void streamCustomersAfter(long afterId, Consumer<CustomerDTO> consumer) {
+        // k-way merge of the shards, each read a page at a time so no shard holds a cursor open meanwhile
+        PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(Comparator.comparing(cursor -> cursor.head.getId()));
+        for (int shard = 0; shard < shards.count(); shard++) {
+            ShardCursor cursor = new ShardCursor(shard, afterId);
+            if (cursor.advance()) cursors.add(cursor);
+        }
+        while (!cursors.isEmpty()) {
+            ShardCursor cursor = cursors.poll();
+            consumer.accept(cursor.head);
+            if (cursor.advance()) cursors.add(cursor);
+        }
+    }
+
+    @Override
+    public CustomerDTO getCustomerById(Long id) throws CustomerNotFoundException {
+        return ShardContext.call(shardOf(id), () -> delegate.getCustomerById(id));
+    }
+
+    @Override
+    public CustomerDTO getCustomerByEmail(String email) throws CustomerNotFoundException {
+        String normalizedEmail = email == null ? "" : email.trim();
+        CustomerDTO found = null;
+        for (int shard : emailDirectory.findShardsByLowerEmail(normalizedEmail.toLowerCase(Locale.ROOT))) {
+            CustomerDTO customer;
+            try {
+                customer = ShardContext.call(shard, () -> delegate.getCustomerByEmail(normalizedEmail));
+            } catch (CustomerNotFoundException e) {
+                // a create still in flight
+                continue;
+            }
+            // as on one database: an exact match wins over another spelling, then the oldest customer
+            if (customer.getEmail().equals(normalizedEmail)) return customer;
+            if (found == null || customer.getId() < found.getId()) found = customer;
+        }
+        if (found == null) throw new CustomerNotFoundException("This Customer not found");
+        return found;
+    }
+
+    @Override
+    public Long getCustomerVersion(Long id) throws CustomerNotFoundException {
+        return ShardContext.call(shardOf(id), () -> delegate.getCustomerVersion(id));
+    }
+
+    @Override
+    public List<CustomerDTO> searchCustomers(String keyword, int limit) {
+        int maxResults = Math.min(Math.max(limit, 1), CustomerServiceImpl.MAX_SEARCH_RESULTS);
+        if (!customerSearchIndex.isReady()) {
+            List<CustomerDTO> customers = new ArrayList<>();
+            shards.onEachShard(shard -> delegate.searchCustomers(keyword, maxResults)).forEach(customers::addAll);
+            // each shard's best matches, merged by the rank the database ordered them by
+            Map<Long, Integer> scores = new HashMap<>();
+            for (CustomerDTO customer : customers) scores.put(customer.getId(), CustomerSearchIndex.score(customer, keyword));
+            customers.sort(Comparator.comparing((CustomerDTO customer) -> scores.get(customer.getId()), Comparator.reverseOrder()).thenComparing(BY_ID));
+            return customers.size() > maxResults ? new ArrayList<>(customers.subList(0, maxResults)) : customers;
+        }
+        // the index covers every shard, since every write goes through this instance's events
+        List<Long> rankedIds = customerSearchIndex.search(keyword, maxResults);
+        if (rankedIds.isEmpty()) return List.of();
+        Map<Long, CustomerDTO> customersById = findByIds(rankedIds);
+        List<CustomerDTO> searchedCustomers = new ArrayList<>(rankedIds.size());
+        for (Long id : rankedIds) {
+            CustomerDTO customer = customersById.get(id);
+            if (customer != null) searchedCustomers.add(customer);
+        }
+        return searchedCustomers;
+    }
+
+    @Override
+    public CustomerLookupDTO lookupCustomers(List<Long> ids, List<String> emails) throws BatchSizeExceededException {
+        List<Long> requestedIds = ids == null ? List.of() : ids;
+        List<String> requestedEmails = emails == null ? List.of() : emails;
+        CustomerServiceImpl.checkBatchSize(requestedIds.size() + requestedEmails.size());
+        Map<Long, CustomerDTO> customersById = new LinkedHashMap<>();
+        for (Long id : new LinkedHashSet<>(requestedIds)) {
+            if (id != null) customersById.put(id, null);
+        }
+        customersById.putAll(findByIds(customersById.keySet()));
+        Map<String, CustomerDTO> customersByEmail = new LinkedHashMap<>();
+        for (String email : new LinkedHashSet<>(requestedEmails)) {
+            if (email != null) customersByEmail.put(email, null);
+        }
+        if (!customersByEmail.isEmpty()) {
+            Map<Integer, List<String>> emailsByShard = new HashMap<>();
+            emailDirectory.findShards(customersByEmail.keySet())
+                    .forEach((email, shard) -> emailsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(email));
+            for (CustomerLookupDTO found : shards.onEachShard(shard -> emailsByShard.containsKey(shard)
+                    ? delegate.lookupCustomers(List.of(), emailsByShard.get(shard)) : null)) {
+                if (found == null) continue;
+                found.getEmails().forEach((email, customer) -> {
+                    if (customer != null) customersByEmail.put(email, customer);
+                });
+            }
+        }
+        return CustomerLookupDTO.builder().ids(customersById).emails(customersByEmail).build();
+    }
+
+    @Override
+    public CustomerDTO upDateCustomer(Long id, CustomerDTO customerDTO) throws CustomerNotFoundException, CustomerVersionConflictException {
+        int shard = shardOf(id);
+        String email = customerDTO.getEmail();
+        CustomerEmailDirectory.Claim claim = email == null ? null : emailDirectory.claim(email, shard, id);
+        if (claim == CustomerEmailDirectory.Claim.TAKEN) throw new EmailAlreadyExistException("Email already exists: " + email);
+        CustomerDTO updatedCustomerDTO;
+        try {
+            updatedCustomerDTO = ShardContext.call(shard, () -> delegate.upDateCustomer(id, customerDTO));
+        } catch (RuntimeException e) {
+            if (claim == CustomerEmailDirectory.Claim.CLAIMED) emailDirectory.release(email, id);
+            throw e;
+        }
+        // the customer's previous email is free again
+        if (email != null) emailDirectory.releaseOthers(id, email);
+        return updatedCustomerDTO;
+    }
+
+    @Override
+    public void deleteCustomer(Long id) throws CustomerNotFoundException {
+        ShardContext.run(shardOf(id), () -> delegate.deleteCustomer(id));
+        emailDirectory.releaseAll(id);
+    }
+
+    @Override
+    public List<BatchItemResultDTO> saveNewCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException {
+        CustomerServiceImpl.checkBatchSize(customerDTOs.size());
+        BatchItemResultDTO[] results = new BatchItemResultDTO[customerDTOs.size()];
+        boolean[] claimed = new boolean[results.length];
+        Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+        for (int i = 0; i < results.length; i++) {
+            String email = customerDTOs.get(i).getEmail();
+            int shard = shards.shardFor(email);
+            if (email != null) {
+                // also turns the second of two identical emails in the batch into a conflict, as on one database
+                if (emailDirectory.claim(email, shard, null) == CustomerEmailDirectory.Claim.TAKEN) {
+                    results[i] = conflict(i, null, "Email already exists: " + email);
+                    continue;
+                }
+                claimed[i] = true;
+            }
+            positionsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(i);
+        }
+        runByShard(results, positionsByShard, positions -> delegate.saveNewCustomers(positions.stream().map(customerDTOs::get).toList()),
+                position -> conflict(position, null, "Email already exists"));
+        for (int i = 0; i < results.length; i++) {
+            if (!claimed[i]) continue;
+            String email = customerDTOs.get(i).getEmail();
+            if (results[i].getStatus() == BatchItemResultDTO.Status.CREATED) emailDirectory.attach(email, results[i].getId());
+            else emailDirectory.release(email, null);
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResultDTO> upDateCustomers(List<CustomerDTO> customerDTOs) throws BatchSizeExceededException {
+        CustomerServiceImpl.checkBatchSize(customerDTOs.size());
+        BatchItemResultDTO[] results = new BatchItemResultDTO[customerDTOs.size()];
+        boolean[] claimed = new boolean[results.length];
+        Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+        for (int i = 0; i < results.length; i++) {
+            CustomerDTO customerDTO = customerDTOs.get(i);
+            Long id = customerDTO.getId();
+            // a missing id is reported as invalid by whichever shard gets it
+            int shard = id == null ? 0 : shards.shardOf(id);
+            if (shard < 0) {
+                results[i] = notFound(i, id);
+                continue;
+            }
+            String email = customerDTO.getEmail();
+            if (id != null && email != null) {
+                CustomerEmailDirectory.Claim claim = emailDirectory.claim(email, shard, id);
+                if (claim == CustomerEmailDirectory.Claim.TAKEN) {
+                    results[i] = conflict(i, id, "Email already exists: " + email);
+                    continue;
+                }
+                claimed[i] = claim == CustomerEmailDirectory.Claim.CLAIMED;
+            }
+            positionsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(i);
+        }
+        runByShard(results, positionsByShard, positions -> delegate.upDateCustomers(positions.stream().map(customerDTOs::get).toList()),
+                position -> conflict(position, customerDTOs.get(position).getId(), "Email already exists"));
+        for (int i = 0; i < results.length; i++) {
+            CustomerDTO customerDTO = customerDTOs.get(i);
+            if (results[i].getStatus() == BatchItemResultDTO.Status.UPDATED) emailDirectory.releaseOthers(customerDTO.getId(), customerDTO.getEmail());
+            else if (claimed[i]) emailDirectory.release(customerDTO.getEmail(), customerDTO.getId());
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResultDTO> deleteCustomers(List<Long> ids) throws BatchSizeExceededException {
+        CustomerServiceImpl.checkBatchSize(ids.size());
+        BatchItemResultDTO[] results = new BatchItemResultDTO[ids.size()];
+        Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+        for (int i = 0; i < results.length; i++) {
+            Long id = ids.get(i);
+            int shard = id == null ? 0 : shards.shardOf(id);
+            if (shard < 0) results[i] = notFound(i, id);
+            else positionsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(i);
+        }
+        runByShard(results, positionsByShard, positions -> delegate.deleteCustomers(positions.stream().map(ids::get).toList()), null);
+        for (BatchItemResultDTO result : results) {
+            if (result.getStatus() == BatchItemResultDTO.Status.DELETED) emailDirectory.releaseAll(result.getId());
+        }
+        return Arrays.asList(results);
+    }
+
+    private int shardOf(Long id) {
+        int shard = id == null ? -1 : shards.shardOf(id);
+        if (shard < 0) throw new CustomerNotFoundException("This Customer not found");
+        return shard;
+    }
+
+    /** The customers with the given ids, read from their shards in parallel; missing ids are left out. */
+    private Map<Long, CustomerDTO> findByIds(Iterable<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = new HashMap<>();
+        for (Long id : ids) {
+            int shard = shards.shardOf(id);
+            if (shard >= 0) idsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+        }
+        Map<Long, CustomerDTO> customersById = new HashMap<>();
+        if (idsByShard.isEmpty()) return customersById;
+        for (CustomerLookupDTO found : shards.onEachShard(shard -> idsByShard.containsKey(shard)
+                ? delegate.lookupCustomers(idsByShard.get(shard), List.of()) : null)) {
+            if (found == null) continue;
+            found.getIds().forEach((id, customer) -> {
+                if (customer != null) customersById.put(id, customer);
+            });
+        }
+        return customersById;
+    }
+
+    /**
+     * Runs a batch operation on each shard's part of a batch, in parallel, and puts the results at their positions
+     * in the whole batch. A part that fails on a concurrent email conflict is reported item by item with
+     * {@code onConflict}; without it, the failure is rethrown.
+     */
+    private void runByShard(BatchItemResultDTO[] results, Map<Integer, List<Integer>> positionsByShard,
+                            Function<List<Integer>, List<BatchItemResultDTO>> operation,
+                            IntFunction<BatchItemResultDTO> onConflict) {
+        if (positionsByShard.isEmpty()) return;
+        List<List<BatchItemResultDTO>> shardResults = shards.onEachShard(shard -> {
+            List<Integer> positions = positionsByShard.get(shard);
+            if (positions == null) return null;
+            try {
+                List<BatchItemResultDTO> partResults = operation.apply(positions);
+                for (BatchItemResultDTO result : partResults) result.setIndex(positions.get(result.getIndex()));
+                return partResults;
+            } catch (EmailAlreadyExistException e) {
+                if (onConflict == null) throw e;
+                return positions.stream().map(onConflict::apply).collect(Collectors.toList());
+            }
+        });
+        for (List<BatchItemResultDTO> partResults : shardResults) {
+            if (partResults == null) continue;
+            for (BatchItemResultDTO result : partResults) results[result.getIndex()] = result;
+        }
+    }
+
+    private static BatchItemResultDTO conflict(int index, Long id, String message) {
+        return BatchItemResultDTO.builder().index(index).id(id).status(BatchItemResultDTO.Status.CONFLICT).message(message).build();
+    }
+
+    private static BatchItemResultDTO notFound(int index, Long id) {
+        return BatchItemResultDTO.builder().index(index).id(id).status(BatchItemResultDTO.Status.NOT_FOUND).message("This Customer not found").build();
+    }
+
+    /** One shard's side of a stream: its next customer in id order, read ahead a page at a time. */
+    private final class ShardCursor {
+        private final int shard;
+        private long lastId;
+        private Iterator<CustomerDTO> page = List.<CustomerDTO>of().iterator();
+        private boolean lastPage;
+        private CustomerDTO head;
+
+        private ShardCursor(int shard, long afterId) {
+            this.shard = shard;
+            this.lastId = afterId;
+        }
+
+        /** Moves {@link #head} to the shard's next customer; false when there is none. */
+        private boolean advance() {
+            while (!page.hasNext()) {
+                if (lastPage) return false;
+                CustomerPageDTO next = ShardContext.call(shard,
+                        () -> delegate.getCustomersPage(CustomerServiceImpl.encodeCursor(lastId), CustomerServiceImpl.MAX_PAGE_SIZE));
+                lastPage = next.getNextCursor() == null;
+                page = next.getContent().iterator();
+            }
+            head = page.next();
+            lastId = head.getId();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ma.abid.customer_service.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one call per key at a time: a caller arriving while a call for the same key is in flight waits
+ * for it and gets the same result, or the same exception, instead of running it again. Nothing is kept once the
+ * call completes, so this is not a cache: the next caller runs the call afresh.
+ */
+public final class SingleFlight<K> {
+    private final ConcurrentMap<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public interface Listener {
+        void executed();
+
+        void coalesced();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Supplier<V> call, Listener listener) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            listener.coalesced();
+            try {
+                return (V) leader.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+        listener.executed();
+        try {
+            V value = call.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Number of calls currently in flight. */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        // rethrow the leader's exception as is, so a CustomerNotFoundException still maps to 404
+        if (e.getCause() instanceof RuntimeException cause) return cause;
+        if (e.getCause() instanceof Error error) throw error;
+        return e;
+    }
+}
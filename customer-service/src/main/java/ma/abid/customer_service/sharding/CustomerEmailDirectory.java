@@ -0,0 +1,134 @@
+package ma.abid.customer_service.sharding;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The email routing index of the sharded setup, {@code customer_email_index} on shard 0: the shard holding the
+ * customer with each email. Its primary key keeps emails unique across shards the way {@code uk_customer_email}
+ * does within one, so every create or email change claims the email here first and releases it if the write
+ * fails. Emails are matched as written, like the unique constraint.
+ * <p>
+ * A create claims its email before the customer has an id and attaches the id afterwards, and an email change
+ * releases the previous email only after the write. A crash in between leaves a claim without an id, or a
+ * customer holding two emails; {@link CustomerEmailDirectoryReaper} repairs both once the claim is old enough.
+ */
+public class CustomerEmailDirectory {
+    public enum Claim {
+        /** The email was free and is now held for the caller. */
+        CLAIMED,
+        /** The email already belonged to the same customer. */
+        HELD,
+        /** Another customer, or a create in flight, has the email. */
+        TAKEN
+    }
+
+    /** An entry of the index; {@code customerId} is {@code null} while a create is in flight. */
+    public record Entry(String email, int shard, Long customerId) {
+    }
+
+    private static final int IN_CHUNK_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public CustomerEmailDirectory(DataSource directoryDataSource) {
+        this.jdbcTemplate = new JdbcTemplate(directoryDataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Lists shard 0's customers that are missing from the index, such as those written while sharding was off;
+     * returns how many were added. Emails already claimed are left alone.
+     */
+    public int backfill() {
+        return jdbcTemplate.update("insert into customer_email_index (email, shard, customer_id) select c.email, 0, c.id from customer c "
+                + "where not exists (select 1 from customer_email_index i where i.email = c.email)");
+    }
+
+    /** Claims {@code email} on {@code shard} for customer {@code customerId}, {@code null} for a customer being created. */
+    public Claim claim(String email, int shard, Long customerId) {
+        try {
+            jdbcTemplate.update("insert into customer_email_index (email, shard, customer_id, claimed_at) values (?, ?, ?, ?)",
+                    email, shard, customerId, Timestamp.from(Instant.now()));
+            return Claim.CLAIMED;
+        } catch (DuplicateKeyException e) {
+            List<Long> owners = jdbcTemplate.queryForList("select customer_id from customer_email_index where email = ?", Long.class, email);
+            return customerId != null && owners.size() == 1 && customerId.equals(owners.get(0)) ? Claim.HELD : Claim.TAKEN;
+        }
+    }
+
+    /** Records the id of the customer created with a claimed {@code email}. */
+    public void attach(String email, long customerId) {
+        jdbcTemplate.update("update customer_email_index set customer_id = ? where email = ? and customer_id is null", customerId, email);
+    }
+
+    /** Gives back a claim whose write failed; {@code customerId} as passed to {@link #claim}. */
+    public void release(String email, Long customerId) {
+        if (customerId == null) jdbcTemplate.update("delete from customer_email_index where email = ? and customer_id is null", email);
+        else jdbcTemplate.update("delete from customer_email_index where email = ? and customer_id = ?", email, customerId);
+    }
+
+    /** Releases every email of customer {@code customerId} but {@code keptEmail}, after an email change. */
+    public void releaseOthers(long customerId, String keptEmail) {
+        jdbcTemplate.update("delete from customer_email_index where customer_id = ? and email <> ?", customerId, keptEmail);
+    }
+
+    /** Releases every email of customer {@code customerId}, after it was deleted. */
+    public void releaseAll(long customerId) {
+        jdbcTemplate.update("delete from customer_email_index where customer_id = ?", customerId);
+    }
+
+    /**
+     * Claims made before {@code claimedBefore} that a finished write would have resolved: those still without an
+     * id, and those of customers holding more than one email.
+     */
+    public List<Entry> findStaleClaims(Instant claimedBefore) {
+        return jdbcTemplate.query("select email, shard, customer_id from customer_email_index where claimed_at < ? and (customer_id is null "
+                        + "or customer_id in (select customer_id from customer_email_index where customer_id is not null "
+                        + "group by customer_id having count(*) > 1)) order by email",
+                (row, rowNum) -> new Entry(row.getString("email"), row.getInt("shard"), row.getObject("customer_id", Long.class)),
+                Timestamp.from(claimedBefore));
+    }
+
+    /** Deletes a stale claim, unless it was claimed again since {@code claimedBefore}; returns whether it was. */
+    public boolean removeStaleClaim(Entry entry, Instant claimedBefore) {
+        Timestamp before = Timestamp.from(claimedBefore);
+        int deleted = entry.customerId() == null
+                ? jdbcTemplate.update("delete from customer_email_index where email = ? and customer_id is null and claimed_at < ?", entry.email(), before)
+                : jdbcTemplate.update("delete from customer_email_index where email = ? and customer_id = ? and claimed_at < ?",
+                        entry.email(), entry.customerId(), before);
+        return deleted > 0;
+    }
+
+    /** The shards holding the given emails, matched exactly; emails held by no shard are left out. */
+    public Map<String, Integer> findShards(Collection<String> emails) {
+        Map<String, Integer> shards = new HashMap<>();
+        List<String> keys = new ArrayList<>(emails);
+        for (int from = 0; from < keys.size(); from += IN_CHUNK_SIZE) {
+            namedJdbcTemplate.query("select email, shard from customer_email_index where email in (:emails)",
+                    Map.of("emails", keys.subList(from, Math.min(from + IN_CHUNK_SIZE, keys.size()))),
+                    row -> {
+                        shards.put(row.getString("email"), row.getInt("shard"));
+                    });
+        }
+        return shards;
+    }
+
+    /** The shards holding some spelling of an already lowercased email, in shard order. */
+    public List<Integer> findShardsByLowerEmail(String email) {
+        return jdbcTemplate.queryForList("select distinct shard from customer_email_index where lower(email) = ? order by shard", Integer.class,
+                Objects.requireNonNull(email));
+    }
+}
@@ -0,0 +1,96 @@
+package ma.abid.customer_service.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repairs {@link CustomerEmailDirectory} claims that a crash left unfinished. Every {@code interval} it takes the
+ * claims older than {@code claimTimeout} that are still without an id or belong to a customer holding several
+ * emails, and checks each against the customer table of its shard: a create that committed gets its id attached,
+ * and an email no customer uses any more is released. Repairs are guarded by the claim time, so a claim made
+ * again meanwhile is left alone; running it on several instances at once is harmless.
+ * <p>
+ * Repaired claims are counted in {@code customer.sharding.email-claims.repaired} by {@code action}
+ * ({@code attached}, {@code released}).
+ */
+@Slf4j
+public class CustomerEmailDirectoryReaper implements SmartLifecycle {
+    private final CustomerEmailDirectory emailDirectory;
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final Duration claimTimeout;
+    private final Duration interval;
+    private final Counter attached;
+    private final Counter released;
+    private ScheduledExecutorService scheduler;
+
+    public CustomerEmailDirectoryReaper(CustomerEmailDirectory emailDirectory, List<DataSource> shards, MeterRegistry meterRegistry,
+                                        Duration claimTimeout, Duration interval) {
+        this.emailDirectory = emailDirectory;
+        for (DataSource shard : shards) this.shards.add(new JdbcTemplate(shard));
+        this.claimTimeout = claimTimeout;
+        this.interval = interval;
+        this.attached = meterRegistry.counter("customer.sharding.email-claims.repaired", "action", "attached");
+        this.released = meterRegistry.counter("customer.sharding.email-claims.repaired", "action", "released");
+    }
+
+    /**
+     * Repairs the stale claims; returns how many were.
+     */
+    public int reap() {
+        Instant claimedBefore = Instant.now().minus(claimTimeout);
+        int repaired = 0;
+        for (CustomerEmailDirectory.Entry entry : emailDirectory.findStaleClaims(claimedBefore)) {
+            if (entry.shard() >= shards.size()) continue;
+            List<Long> owners = shards.get(entry.shard()).queryForList("select id from customer where email = ?", Long.class, entry.email());
+            if (entry.customerId() == null && owners.size() == 1) {
+                // the create committed but never got to attach its id
+                emailDirectory.attach(entry.email(), owners.get(0));
+                attached.increment();
+                repaired++;
+            } else if (!owners.contains(entry.customerId()) && emailDirectory.removeStaleClaim(entry, claimedBefore)) {
+                // a create that failed, or the customer's previous email
+                released.increment();
+                repaired++;
+            }
+        }
+        if (repaired > 0) log.info("Repaired {} stale claims in the email routing index", repaired);
+        return repaired;
+    }
+
+    private void poll() {
+        try {
+            reap();
+        } catch (RuntimeException e) {
+            log.warn("Email routing index repair failed, retrying in {}: {}", interval, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("customer-email-reaper").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::poll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+}
@@ -0,0 +1,75 @@
+package ma.abid.customer_service.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * The shards customers are spread over: the {@code spring.datasource} database as shard 0, plus one per entry of
+ * {@code customer.sharding.urls} when {@code customer.sharding.enabled} is set. Says where a customer lives and
+ * runs work on every shard at once.
+ */
+@Component
+public class CustomerShards {
+    private final int count;
+
+    public CustomerShards(@Value("${customer.sharding.enabled:false}") boolean enabled,
+                          @Value("${customer.sharding.urls:}") List<String> urls) {
+        this.count = enabled ? 1 + (int) urls.stream().filter(url -> !url.isBlank()).count() : 1;
+        if (count > SnowflakeIdGenerator.MAX_SHARDS)
+            throw new IllegalStateException(count + " shards configured, at most " + SnowflakeIdGenerator.MAX_SHARDS + " are supported");
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /** The shard holding customer {@code id}; {@code -1} when the id belongs to a shard that is not configured. */
+    public int shardOf(long id) {
+        int shard = SnowflakeIdGenerator.shardOf(id);
+        return shard < count ? shard : -1;
+    }
+
+    /** The shard a new customer with {@code email} is created on. */
+    public int shardFor(String email) {
+        return email == null ? 0 : Math.floorMod(email.toLowerCase(Locale.ROOT).hashCode(), count);
+    }
+
+    /**
+     * Runs {@code action} with each shard in its own {@link ShardContext}, in parallel on virtual threads, and
+     * returns the results by shard. The first failure is rethrown once every shard is done.
+     */
+    public <T> List<T> onEachShard(IntFunction<T> action) {
+        if (count == 1) return Collections.singletonList(ShardContext.call(0, () -> action.apply(0)));
+        List<Future<T>> futures = new ArrayList<>(count);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int shard = 0; shard < count; shard++) {
+                int target = shard;
+                futures.add(executor.submit(() -> ShardContext.call(target, () -> action.apply(target))));
+            }
+        }
+        List<T> results = new ArrayList<>(count);
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+                if (e.getCause() instanceof Error error) throw error;
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the shards", e);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,39 @@
+package ma.abid.customer_service.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread works on: {@link ShardRoutingDataSource} hands out its connections and new
+ * customers get ids on it. Unset means shard 0, the only one when sharding is disabled. It has to be set before
+ * a transaction starts, and a transaction stays on one shard.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    /** Runs {@code action} on {@code shard}, then returns to the previous shard. */
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+
+    public static void run(int shard, Runnable action) {
+        call(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package ma.abid.customer_service.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections of the shard set in {@link ShardContext}. Connections are counted in
+ * {@code customer.datasource.shard} by {@code shard}. Closing it closes every shard's pool.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    private final List<DataSource> shards;
+    private final Counter[] connections;
+
+    public ShardRoutingDataSource(List<DataSource> shards, MeterRegistry meterRegistry) {
+        this.shards = List.copyOf(shards);
+        this.connections = new Counter[shards.size()];
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+            connections[shard] = meterRegistry.counter("customer.datasource.shard", "shard", String.valueOf(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    protected Integer determineCurrentLookupKey() {
+        int shard = ShardContext.current();
+        if (shard >= connections.length) throw new IllegalStateException("No shard " + shard + ": " + connections.length + " shards configured");
+        connections[shard].increment();
+        return shard;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) closeable.close();
+        }
+    }
+}
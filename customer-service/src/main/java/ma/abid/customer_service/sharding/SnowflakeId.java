@@ -0,0 +1,21 @@
+package ma.abid.customer_service.sharding;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the annotated id with {@link SnowflakeIdGenerator}, on the shard of the current {@link ShardContext},
+ * when sharding is enabled; otherwise from the pooled database sequence {@link #sequenceName}.
+ */
+@IdGeneratorType(SnowflakeIdentifierGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SnowflakeId {
+    String sequenceName();
+
+    int allocationSize() default 50;
+}
@@ -0,0 +1,59 @@
+package ma.abid.customer_service.sharding;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style 63-bit ids, unique across instances and shards without a database sequence: 41 bits of
+ * milliseconds since {@link #EPOCH}, 6 bits of shard, 6 bits of worker and a 10-bit sequence within the
+ * millisecond. The shard is part of the id, so a customer is found from its id alone ({@link #shardOf}); the
+ * worker must differ between instances generating ids at the same time.
+ * <p>
+ * Ids from one generator strictly increase. Past 1024 ids in a millisecond, or when the clock steps back, the
+ * generator carries on from its last timestamp instead of waiting or failing, running ahead of the clock until
+ * it catches up.
+ */
+public class SnowflakeIdGenerator {
+    public static final int MAX_SHARDS = 64;
+    public static final int MAX_WORKERS = 64;
+    static final Instant EPOCH = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static final int SEQUENCE_BITS = 10;
+    private static final int WORKER_SHIFT = SEQUENCE_BITS;
+    private static final int SHARD_SHIFT = WORKER_SHIFT + 6;
+    private static final int TIMESTAMP_SHIFT = SHARD_SHIFT + 6;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // ids handed out by the former customer_seq decode to a timestamp within the epoch's first day
+    private static final long LEGACY_TIMESTAMP_LIMIT = Duration.ofDays(1).toMillis();
+
+    private final long worker;
+    private final Clock clock;
+    // last timestamp << SEQUENCE_BITS | sequence, so one compare-and-set claims both
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(int worker) {
+        this(worker, Clock.systemUTC());
+    }
+
+    SnowflakeIdGenerator(int worker, Clock clock) {
+        if (worker < 0 || worker >= MAX_WORKERS) throw new IllegalArgumentException("Worker id must be between 0 and " + (MAX_WORKERS - 1) + ": " + worker);
+        this.worker = worker;
+        this.clock = clock;
+    }
+
+    public long nextId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) throw new IllegalArgumentException("Shard must be between 0 and " + (MAX_SHARDS - 1) + ": " + shard);
+        long now = clock.millis() - EPOCH.toEpochMilli();
+        // a full sequence overflows into the timestamp, which is the borrowing described above
+        long next = state.updateAndGet(last -> last >>> SEQUENCE_BITS < now ? now << SEQUENCE_BITS : last + 1);
+        return (next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT | (long) shard << SHARD_SHIFT | worker << WORKER_SHIFT | next & SEQUENCE_MASK;
+    }
+
+    /** The shard encoded in {@code id}; ids from before sharding, which all live on shard 0, give 0. */
+    public static int shardOf(long id) {
+        if (id >>> TIMESTAMP_SHIFT < LEGACY_TIMESTAMP_LIMIT) return 0;
+        return (int) (id >>> SHARD_SHIFT) & (MAX_SHARDS - 1);
+    }
+}
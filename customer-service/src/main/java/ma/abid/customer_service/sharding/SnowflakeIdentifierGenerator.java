@@ -0,0 +1,59 @@
+package ma.abid.customer_service.sharding;
+
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+/**
+ * Hibernate side of {@link SnowflakeId}. Ids come from the {@link SnowflakeIdGenerator} found in the Hibernate
+ * settings under {@link #GENERATOR_SETTING}, put there by {@link ma.abid.customer_service.config.ShardingConfig} when sharding is enabled.
+ * Without one, as on a single database or in JPA test slices, ids come from the sequence, which stays mapped
+ * either way so schema validation sees it.
+ */
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator, AnnotationBasedGenerator<SnowflakeId> {
+    public static final String GENERATOR_SETTING = SnowflakeIdGenerator.class.getName();
+
+    private final SequenceStyleGenerator sequence = new SequenceStyleGenerator();
+    private SnowflakeId annotation;
+    private transient SnowflakeIdGenerator ids;
+
+    @Override
+    public void initialize(SnowflakeId annotation, Member member, GeneratorCreationContext context) {
+        this.annotation = annotation;
+        Object configured = context.getServiceRegistry().requireService(ConfigurationService.class).getSettings().get(GENERATOR_SETTING);
+        ids = configured instanceof SnowflakeIdGenerator generator ? generator : null;
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        parameters.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM, annotation.sequenceName());
+        parameters.setProperty(OptimizableGenerator.INCREMENT_PARAM, String.valueOf(annotation.allocationSize()));
+        sequence.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        sequence.registerExportables(database);
+    }
+
+    @Override
+    public void initialize(SqlStringGenerationContext context) {
+        sequence.initialize(context);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner) {
+        return ids != null ? ids.nextId(ShardContext.current()) : sequence.generate(session, owner);
+    }
+}
@@ -0,0 +1,105 @@
+package ma.abid.customer_service.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized {@code GET /api/customers/{id}} bodies, so a hot customer is turned into JSON once per version
+ * instead of once per request. An entry is only served for the version it was serialized from, and callers
+ * look the current version up first, so an entry can never be staler than that lookup; evicting on writes
+ * (after commit) just frees the space early. Bodies of at least {@code customer.response-cache.gzip-min-size}
+ * bytes are also kept gzipped for clients that accept it.
+ * <p>
+ * Requests are counted in {@code customer.response.cache} by {@code result} ({@code hit}, {@code miss}).
+ * Disabled with {@code customer.response-cache.enabled=false}, in which case every body is serialized afresh.
+ */
+@Component
+public class CustomerResponseCache {
+    private final boolean enabled;
+    private final int gzipMinSize;
+    private final ObjectWriter writer;
+    private final Cache<Long, CachedResponse> responses;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CustomerResponseCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                 @Value("${customer.response-cache.enabled:true}") boolean enabled,
+                                 @Value("${customer.response-cache.spec:maximumSize=10000}") String spec,
+                                 @Value("${customer.response-cache.gzip-min-size:1024}") int gzipMinSize) {
+        this.enabled = enabled;
+        this.gzipMinSize = gzipMinSize;
+        this.writer = objectMapper.writerFor(CustomerDTO.class);
+        // one entry per customer: a newer version replaces the older body instead of sitting next to it
+        this.responses = Caffeine.from(CaffeineSpec.parse(spec)).build();
+        this.hits = meterRegistry.counter("customer.response.cache", "result", "hit");
+        this.misses = meterRegistry.counter("customer.response.cache", "result", "miss");
+    }
+
+    /** The body of customer {@code id} at {@code version}, or {@code null} if it is not cached. */
+    public CachedResponse get(Long id, Long version) {
+        CachedResponse response = enabled && version != null ? responses.getIfPresent(id) : null;
+        if (response != null && version.equals(response.version())) {
+            hits.increment();
+            return response;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** Serializes {@code customerDTO} and, when it carries a version, keeps the result for later requests. */
+    public CachedResponse put(CustomerDTO customerDTO) {
+        byte[] json;
+        try {
+            json = writer.writeValueAsBytes(customerDTO);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize customer " + customerDTO.getId(), e);
+        }
+        CachedResponse response = new CachedResponse(customerDTO.getVersion(), json,
+                enabled && json.length >= gzipMinSize ? gzip(json) : null);
+        if (enabled && response.version() != null) responses.put(customerDTO.getId(), response);
+        return response;
+    }
+
+    public void evict(Long id) {
+        responses.invalidate(id);
+    }
+
+    public void clear() {
+        responses.invalidateAll();
+    }
+
+    @TransactionalEventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        evict(event.getCustomerId());
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /** A serialized customer; {@code gzip} is {@code null} when the body is too small to be worth compressing. */
+    public record CachedResponse(Long version, byte[] json, byte[] gzip) {
+    }
+}
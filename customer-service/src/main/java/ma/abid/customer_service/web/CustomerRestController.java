@@ -1,42 +1,172 @@
 package ma.abid.customer_service.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.PathParam;
 import lombok.Getter;
+import ma.abid.customer_service.bulk.CustomerDataFormat;
+import ma.abid.customer_service.bulk.CustomerExporter;
+import ma.abid.customer_service.bulk.CustomerImporter;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerChangesDTO;
 import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerLookupRequestDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.dto.ImportReportDTO;
 import ma.abid.customer_service.entities.Customer;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
 import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.outbox.CustomerChangeFeed;
 import ma.abid.customer_service.repository.CustomerRepository;
 import ma.abid.customer_service.service.CustomerService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api")
 public class CustomerRestController {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
     private CustomerService customerService;
+    private CustomerImporter customerImporter;
+    private CustomerExporter customerExporter;
+    private CustomerChangeFeed customerChangeFeed;
+    private CustomerResponseCache customerResponseCache;
+    private ObjectWriter ndjsonWriter;
+    private ObjectWriter importReportWriter;
 
-    public CustomerRestController(CustomerService customerService) {
+    public CustomerRestController(CustomerService customerService, CustomerImporter customerImporter,
+                                  CustomerExporter customerExporter, CustomerChangeFeed customerChangeFeed,
+                                  CustomerResponseCache customerResponseCache, ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.customerImporter = customerImporter;
+        this.customerExporter = customerExporter;
+        this.customerChangeFeed = customerChangeFeed;
+        this.customerResponseCache = customerResponseCache;
+        this.ndjsonWriter = objectMapper.writerFor(CustomerDTO.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.importReportWriter = objectMapper.writerFor(ImportReportDTO.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     @GetMapping("/customers")
-    public List<CustomerDTO> getAllCustomers(){
+    public List<CustomerDTO> getAllCustomers(WebRequest webRequest,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+        // the table fingerprint is one aggregate query, so an unchanged list is answered without loading it
+        if (webRequest.checkNotModified(listETag(customerService.getCustomersFingerprint(), formatSuffix(accept)))) return null;
         return customerService.getAllCustomers();
     }
 
+    @GetMapping("/customers/page")
+    public CustomerPageDTO getCustomersPage(@RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "${customer.pagination.default-size:50}") int size){
+        return customerService.getCustomersPage(cursor, size);
+    }
+
+    @GetMapping(value = "/customers/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllCustomers(){
+        StreamingResponseBody body = outputStream -> {
+            try (var sequenceWriter = ndjsonWriter.writeValues(outputStream)) {
+                customerService.streamAllCustomers(customerDTO -> {
+                    try {
+                        sequenceWriter.write(customerDTO);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
     @GetMapping("/customers/{id}")
-    public CustomerDTO getCustomerById(@PathVariable Long id){
-        return customerService.getCustomerById(id);
+    public ResponseEntity<byte[]> getCustomerById(@PathVariable Long id, WebRequest webRequest,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        // only the version is needed to decide a conditional GET; a 304 never loads, maps or serializes the customer
+        Long version = customerService.getCustomerVersion(id);
+        if (webRequest.checkNotModified(eTag(id, version))) return null;
+        // the body serialized for this version is written as is; only a miss goes through the DTO and Jackson
+        CustomerResponseCache.CachedResponse response = customerResponseCache.get(id, version);
+        if (response == null) response = customerResponseCache.put(customerService.getCustomerById(id));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).varyBy(HttpHeaders.ACCEPT);
+        // as in withETag, the ETag follows the body actually returned
+        if (response.version() != null) builder.eTag(eTag(id, response.version()));
+        if (response.gzip() != null) {
+            builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(acceptEncoding)) return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.gzip());
+        }
+        return builder.body(response.json());
+    }
+
+    /**
+     * CBOR and Smile representations of a customer. The cached bodies are JSON, so these go through the DTO
+     * and the negotiated converter; conditional requests work the same way, with the format in the ETag.
+     */
+    @GetMapping(value = "/customers/{id}", produces = {MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<CustomerDTO> getBinaryCustomerById(@PathVariable Long id, WebRequest webRequest,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+        String suffix = formatSuffix(accept);
+        if (webRequest.checkNotModified(eTag(id, customerService.getCustomerVersion(id), suffix))) return null;
+        return withETag(ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT), customerService.getCustomerById(id), suffix);
+    }
+
+    /** Case-insensitive lookup by email, for support tooling; 404 when no customer has the address. */
+    @GetMapping("/customers/by-email")
+    public CustomerDTO getCustomerByEmail(@RequestParam String email){
+        return customerService.getCustomerByEmail(email);
+    }
+
+    @GetMapping("/customers/changes")
+    public CustomerChangesDTO getCustomerChanges(@RequestParam(defaultValue = "0") long since,
+                                                 @RequestParam(defaultValue = "${customer.outbox.changes.default-limit:500}") int limit){
+        return customerChangeFeed.getChangesSince(since, limit);
     }
 
     @GetMapping("/customers/search")
-    public List<CustomerDTO> getSearchedCustomers(@RequestParam String keyword){
-        return customerService.searchCustomers(keyword);
+    public List<CustomerDTO> getSearchedCustomers(@RequestParam String keyword,
+                                                  @RequestParam(defaultValue = "${customer.search.default-limit:20}") int limit){
+        return customerService.searchCustomers(keyword, limit);
+    }
+
+    /**
+     * Resolves up to {@code MAX_BATCH_SIZE} ids and emails at once, with chunked IN queries instead of one
+     * request per customer. Every requested key comes back, mapped to {@code null} when it matches no customer.
+     */
+    @PostMapping("/customers/lookup")
+    public CustomerLookupDTO lookupCustomers(@RequestBody CustomerLookupRequestDTO lookupRequest){
+        return customerService.lookupCustomers(lookupRequest.getIds(), lookupRequest.getEmails());
+    }
+
+    @GetMapping("/customers/lookup")
+    public CustomerLookupDTO lookupCustomers(@RequestParam(required = false) List<Long> ids,
+                                             @RequestParam(required = false) List<String> emails){
+        return customerService.lookupCustomers(ids, emails);
     }
 
     @PostMapping("/customers")
@@ -46,8 +176,14 @@ public class CustomerRestController {
     }
 
     @PutMapping("/customers/{id}")
-    public CustomerDTO updateCustomer(@PathVariable Long id, @RequestBody @Valid CustomerDTO customerDTO){
-        return customerService.upDateCustomer(id, customerDTO);
+    public ResponseEntity<CustomerDTO> updateCustomer(@PathVariable Long id, @RequestBody @Valid CustomerDTO customerDTO,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        if (ifMatch != null && !ifMatch.isBlank() && !ifMatch.trim().equals("*")) {
+            // If-Match takes precedence over a version in the body; a mismatch is reported as 412 by the exception handler
+            customerDTO.setVersion(versionFromIfMatch(id, ifMatch));
+        }
+        CustomerDTO updatedCustomer = customerService.upDateCustomer(id, customerDTO);
+        return withETag(ResponseEntity.ok(), updatedCustomer);
     }
 
     @DeleteMapping("/customers/{id}")
@@ -55,6 +191,150 @@ public class CustomerRestController {
     public void deleteCustomer(@PathVariable Long id){
         customerService.deleteCustomer(id);
     }
-}
 
+    @PostMapping("/customers/batch")
+    public List<BatchItemResultDTO> saveNewCustomers(@RequestBody List<CustomerDTO> customerDTOs){
+        return customerService.saveNewCustomers(customerDTOs);
+    }
+
+    @PutMapping("/customers/batch")
+    public List<BatchItemResultDTO> updateCustomers(@RequestBody List<CustomerDTO> customerDTOs){
+        return customerService.upDateCustomers(customerDTOs);
+    }
+
+    /**
+     * Dumps the customers with an id greater than {@code afterId} (all of them by default) in id order, straight
+     * from a database cursor to the response, optionally as a gzip file. An interrupted download is resumed
+     * with {@code afterId} set to the last id received; a resumed CSV export starts with its own header row.
+     */
+    @GetMapping("/customers/export")
+    public void exportCustomers(@RequestParam(defaultValue = "NDJSON") CustomerDataFormat format,
+                                @RequestParam(defaultValue = "0") long afterId,
+                                @RequestParam(defaultValue = "false") boolean gzip,
+                                HttpServletResponse response) throws IOException {
+        String fileName = "customers" + (afterId > 0 ? "-after-" + afterId : "") + format.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : format.getMediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString());
+        OutputStream outputStream = response.getOutputStream();
+        if (gzip) {
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 1 << 16);
+            customerExporter.exportCustomers(afterId, format, gzipOutputStream);
+            gzipOutputStream.finish();
+        } else {
+            customerExporter.exportCustomers(afterId, format, outputStream);
+        }
+        outputStream.flush();
+    }
 
+    /**
+     * Streams the request body through {@link CustomerImporter} and answers with NDJSON progress: rejected
+     * rows as they are found, a progress line per chunk and a final summary. Written synchronously rather
+     * than as a {@code StreamingResponseBody} so a long import is not cut off by the async request timeout.
+     */
+    @PostMapping(value = "/customers/import", consumes = {"text/csv", APPLICATION_NDJSON_VALUE}, produces = APPLICATION_NDJSON_VALUE)
+    public void importCustomers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        OutputStream outputStream = response.getOutputStream();
+        try (SequenceWriter reportWriter = importReportWriter.writeValues(outputStream)) {
+            ImportReportDTO summary = customerImporter.importCustomers(request.getInputStream(),
+                    CustomerDataFormat.fromMediaType(contentType), report -> {
+                        try {
+                            reportWriter.write(report);
+                            // push each chunk's progress to the client instead of waiting for the buffer to fill
+                            if (report.getType() == ImportReportDTO.Type.PROGRESS) reportWriter.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+            reportWriter.write(summary);
+        }
+        outputStream.flush();
+    }
+
+    @DeleteMapping("/customers/batch")
+    public List<BatchItemResultDTO> deleteCustomers(@RequestBody List<Long> ids){
+        return customerService.deleteCustomers(ids);
+    }
+
+    /** Strong ETag of a single customer: the id and its optimistic-locking version. */
+    static String eTag(Long id, Long version) {
+        return eTag(id, version, "");
+    }
+
+    /** Strong ETag of a single customer in a binary format, e.g. {@code "1-3+cbor"}: its bytes differ from the JSON ones. */
+    static String eTag(Long id, Long version, String formatSuffix) {
+        return "\"" + id + "-" + version + formatSuffix + "\"";
+    }
+
+    static String listETag(String fingerprint, String formatSuffix) {
+        return "\"customers-" + fingerprint + formatSuffix + "\"";
+    }
+
+    /**
+     * ETag suffix of the representation an {@code Accept} header selects: {@code +cbor} or {@code +smile}, and none
+     * for JSON, which is also what wildcards get.
+     */
+    static String formatSuffix(String accept) {
+        if (accept == null) return "";
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return "";
+        }
+        mediaTypes.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) break;
+            if (mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) return "+cbor";
+            if (mediaType.equalsTypeAndSubtype(MediaType.parseMediaType(APPLICATION_SMILE_VALUE))) return "+smile";
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) return "";
+        }
+        return "";
+    }
+
+    private static ResponseEntity<CustomerDTO> withETag(ResponseEntity.BodyBuilder builder, CustomerDTO customerDTO) {
+        return withETag(builder, customerDTO, "");
+    }
+
+    private static ResponseEntity<CustomerDTO> withETag(ResponseEntity.BodyBuilder builder, CustomerDTO customerDTO, String formatSuffix) {
+        // the ETag follows the body actually returned, so a cached representation can never be paired with a newer tag
+        if (customerDTO != null && customerDTO.getVersion() != null) builder.eTag(eTag(customerDTO.getId(), customerDTO.getVersion(), formatSuffix));
+        return builder.body(customerDTO);
+    }
+
+    /** Whether an {@code Accept-Encoding} header allows gzip; {@code gzip;q=0} explicitly refuses it. */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expected version from an {@code If-Match} list. Weak tags and tags of other customers never match
+     * (If-Match uses strong comparison), so they fail the precondition before any write is attempted. The tag of
+     * a binary representation names the same version, so its format suffix is ignored.
+     */
+    static long versionFromIfMatch(Long id, String ifMatch) throws CustomerVersionConflictException {
+        String prefix = "\"" + id + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                String version = tag.substring(prefix.length(), tag.length() - 1);
+                if (version.endsWith("+cbor") || version.endsWith("+smile")) version = version.substring(0, version.lastIndexOf('+'));
+                try {
+                    return Long.parseLong(version);
+                } catch (NumberFormatException ignored) {
+                    // not one of our tags; keep looking
+                }
+            }
+        }
+        throw new CustomerVersionConflictException("If-Match does not match the current version of this Customer");
+    }
+}
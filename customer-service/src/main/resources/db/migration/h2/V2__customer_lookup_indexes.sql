@@ -0,0 +1,3 @@
+-- H2 has neither expression nor trigram indexes, so the lookup and search indexes of the PostgreSQL migration
+-- have no equivalent here: lower(email) lookups and substring search scan the table, which is fine at
+-- development sizes. This version exists to keep both vendors' migration histories aligned.
@@ -0,0 +1,13 @@
+-- routing index of the sharded setup (customer.sharding.enabled): the shard holding each email, which keeps
+-- emails unique across shards. Only shard 0 uses it, but every shard runs the same migrations. The backfill
+-- covers a database that becomes shard 0; customer_id is null while a create is in flight.
+create table customer_email_index (
+    email varchar(255) not null,
+    shard integer not null,
+    customer_id bigint,
+    primary key (email)
+);
+
+create index ix_customer_email_index_customer on customer_email_index (customer_id);
+
+insert into customer_email_index (email, shard, customer_id) select email, 0, id from customer;
@@ -0,0 +1,3 @@
+-- when each email routing entry was claimed, so the sharded setup can find claims left behind by a crash between
+-- claiming an email and finishing the write (see CustomerEmailDirectoryReaper)
+alter table customer_email_index add column claimed_at timestamp(6) with time zone default current_timestamp not null;
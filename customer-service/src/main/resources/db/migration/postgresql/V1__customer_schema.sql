@@ -0,0 +1,25 @@
+-- baseline: the schema Hibernate generated from Customer and CustomerOutboxEvent
+create sequence customer_seq start with 1 increment by 50;
+create sequence customer_outbox_seq start with 1 increment by 50;
+
+create table customer (
+    id bigint not null,
+    version bigint,
+    email varchar(255) not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    primary key (id),
+    constraint uk_customer_email unique (email)
+);
+
+create table customer_outbox (
+    id bigint not null,
+    type varchar(16) not null check (type in ('CREATED', 'UPDATED', 'DELETED')),
+    customer_id bigint not null,
+    payload varchar(4000),
+    occurred_at timestamp(6) with time zone not null,
+    position bigint,
+    published_at timestamp(6) with time zone,
+    primary key (id),
+    constraint uk_customer_outbox_position unique (position)
+);
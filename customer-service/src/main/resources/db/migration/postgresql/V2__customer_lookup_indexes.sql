@@ -0,0 +1,11 @@
+-- case-insensitive email lookups compare lower(email); exact matches already use uk_customer_email
+create index ix_customer_email_lower on customer (lower(email));
+
+-- searchByKeyword matches lower(column) like '%keyword%', which only a trigram index can serve
+create extension if not exists pg_trgm;
+create index ix_customer_first_name_trgm on customer using gin (lower(first_name) gin_trgm_ops);
+create index ix_customer_last_name_trgm on customer using gin (lower(last_name) gin_trgm_ops);
+create index ix_customer_email_trgm on customer using gin (lower(email) gin_trgm_ops);
+
+-- the relay polls unpublished events in id order; published rows never match, so the index stays small
+create index ix_customer_outbox_unpublished on customer_outbox (id) where position is null;
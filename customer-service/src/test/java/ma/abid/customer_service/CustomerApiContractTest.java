@@ -0,0 +1,329 @@
+package ma.abid.customer_service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.abid.customer_service.dto.CustomerDTO;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.annotation.Rollback;
+
+import java.util.*;
+
+/**
+ * HTTP contract of {@code /api/customers}, shared by every stack that serves it (this servlet service and
+ * {@code customer-service-reactive}, which gets it through this module's test-jar). Subclasses boot the
+ * application on a random port, seeded with Jawad, Kamal and Bilal as ids 1 to 3.
+ * <p>
+ * Requests commit on the server, so the order is fixed: reads of the seed data first, then the requests that
+ * must not change anything, then the ones that do.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public abstract class CustomerApiContractTest {
+
+    @Autowired
+    protected TestRestTemplate testRestTemplate;
+
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    private List<CustomerDTO> customerDTOList;
+
+    @BeforeEach
+    public void setup() {
+        this.customerDTOList = new ArrayList<>();
+        this.customerDTOList.add(CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build());
+        this.customerDTOList.add(CustomerDTO.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").build());
+        this.customerDTOList.add(CustomerDTO.builder().id(3L).firstName("Bilal").lastName("ABID").email("bilal@abid.com").build());
+    }
+
+    /**
+     * Test for retrieving all Customers
+     */
+    @Test
+    @Order(1)
+    void shouldFetchAllCustomers() {
+        ResponseEntity<CustomerDTO[]> response = testRestTemplate.exchange(
+                "/api/customers",
+                HttpMethod.GET,
+                null,
+                CustomerDTO[].class);
+        List<CustomerDTO> content = Arrays.asList(Objects.requireNonNull(response.getBody()));
+
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        AssertionsForClassTypes.assertThat(content.size()).isEqualTo(customerDTOList.size());
+        AssertionsForClassTypes.assertThat(content).usingRecursiveComparison().ignoringFields("version").isEqualTo(customerDTOList);
+    }
+
+    /**
+     * Test to retrieving searched Customers by their firstName
+     */
+    @Test
+    @Order(2)
+    void shouldFetchSearchedCustomers() {
+        String keyword = "al";
+        ResponseEntity<CustomerDTO[]> response = testRestTemplate.exchange(
+                "/api/customers/search?keyword=" + keyword,
+                HttpMethod.GET,
+                null,
+                CustomerDTO[].class);
+        List<CustomerDTO> customers = Arrays.asList(Objects.requireNonNull(response.getBody()));
+
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        AssertionsForClassTypes.assertThat(customers.size()).isEqualTo(2);
+
+        List<CustomerDTO> expected = customerDTOList.stream().filter(c -> c.getFirstName().toUpperCase().contains(keyword.toUpperCase())).toList();
+        AssertionsForClassTypes.assertThat(expected).usingRecursiveComparison().ignoringFields("version").isEqualTo(customers);
+    }
+
+    /**
+     * Test to retrieving Customer by its id
+     */
+    @Test
+    @Order(3)
+    void shouldFetchCustomerById(){
+        Long id = 1L;
+        CustomerDTO expected = customerDTOList.get(0);
+        ResponseEntity<CustomerDTO> response = testRestTemplate.exchange(
+                "/api/customers/"+id,
+                HttpMethod.GET,
+                null,
+                CustomerDTO.class);
+        CustomerDTO content = Objects.requireNonNull(response.getBody());
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        AssertionsForClassTypes.assertThat(content).isNotNull();
+        AssertionsForClassTypes.assertThat(expected).usingRecursiveComparison().ignoringFields("version").isEqualTo(content);
+    }
+
+    /**
+     * Test to throwing exception if customer not found
+     */
+    @Test
+    @Order(4)
+    void shouldNotFetchCustomerByIdNotFound(){
+        Long invalidId = 9L;
+        ResponseEntity<String> response = testRestTemplate.exchange(
+                "/api/customers/"+invalidId,
+                HttpMethod.GET,
+                null,
+                String.class);
+        String content = response.getBody();
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        AssertionsForClassTypes.assertThat(content).isNotNull();
+        AssertionsForClassTypes.assertThat(content).isEqualTo("This Customer not found");
+    }
+    /**
+     * Test to updating given customer
+     */
+    @Test
+    @Order(10)
+    @Rollback
+    void shouldUpdateGivenCustomer() {
+        Long id = 1L;
+
+        CustomerDTO updatedCustomer = CustomerDTO.builder()
+                .firstName("UpdatedFirstName")
+                .lastName("UpdatedLastName")
+                .email("updated@example.com")
+                .build();
+        HttpEntity<CustomerDTO> requestEntity = new HttpEntity<>(updatedCustomer);
+
+        ResponseEntity<CustomerDTO> response = testRestTemplate.exchange(
+                "/api/customers/" + id,
+                HttpMethod.PUT,
+                requestEntity,
+                CustomerDTO.class
+        );
+
+        System.out.println("response: "+ response);
+
+        // Assertions
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        AssertionsForClassTypes.assertThat(response.getBody()).isNotNull();
+        AssertionsForClassTypes.assertThat(response.getBody()).usingRecursiveComparison().ignoringFields("id", "version").isEqualTo(updatedCustomer);
+        // an update without a version still answers with the stored one, usable in the next conditional update
+        CustomerDTO stored = testRestTemplate.getForObject("/api/customers/" + id, CustomerDTO.class);
+        AssertionsForClassTypes.assertThat(response.getBody().getVersion()).isNotNull();
+        AssertionsForClassTypes.assertThat(response.getBody().getVersion()).isEqualTo(stored.getVersion());
+    }
+
+    @Test
+    @Order(7)
+    void shouldNotUpdateGivenCustomer() {
+        Long id = 9L;
+
+        // Create an updated CustomerDTO object (This will not be used since the customer doesn't exist)
+        CustomerDTO updatedCustomer = CustomerDTO.builder()
+                .firstName("UpdatedFirstName")
+                .lastName("UpdatedLastName")
+                .email("updated@example.com")
+                .build();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        HttpEntity<CustomerDTO> requestEntity = new HttpEntity<>(updatedCustomer, headers);
+
+        ResponseEntity<String> response = testRestTemplate.exchange(
+                "/api/customers/" + id,
+                HttpMethod.PUT,
+                requestEntity,
+                String.class // Change the response body type to String to match the error message
+        );
+
+        // Assertions
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        AssertionsForClassTypes.assertThat(response.getBody()).isNotNull();
+        AssertionsForClassTypes.assertThat(response.getBody()).isEqualTo("This Customer not found");
+    }
+
+    /**
+     * Search ranks first-name hits above last-name and email hits rather than going by id, trims the keyword and
+     * matches LIKE wildcards literally
+     */
+    @Test
+    @Order(12)
+    void shouldRankSearchedCustomersAndMatchWildcardsLiterally() {
+        CustomerDTO lastNameHit = testRestTemplate.postForObject("/api/customers",
+                CustomerDTO.builder().firstName("Other").lastName("Ranked").email("ranked-last@abid.com").build(), CustomerDTO.class);
+        CustomerDTO firstNameHit = testRestTemplate.postForObject("/api/customers",
+                CustomerDTO.builder().firstName("Rank").lastName("Other").email("first@abid.com").build(), CustomerDTO.class);
+
+        CustomerDTO[] ranked = testRestTemplate.getForObject("/api/customers/search?keyword={keyword}", CustomerDTO[].class, " RANK ");
+        CustomerDTO[] underscore = testRestTemplate.getForObject("/api/customers/search?keyword={keyword}", CustomerDTO[].class, "r_nk");
+        CustomerDTO[] percent = testRestTemplate.getForObject("/api/customers/search?keyword={keyword}", CustomerDTO[].class, "%");
+
+        AssertionsForClassTypes.assertThat(Arrays.stream(ranked).map(CustomerDTO::getId).toList())
+                .isEqualTo(List.of(firstNameHit.getId(), lastNameHit.getId()));
+        AssertionsForClassTypes.assertThat(underscore.length).isEqualTo(0);
+        AssertionsForClassTypes.assertThat(percent.length).isEqualTo(0);
+    }
+
+    /**
+     * Test to delete customer
+     */
+    @Test
+    @Order(11)
+    @Rollback
+    void shouldDeleteCustomer() {
+        Long id = 2L;
+        ResponseEntity<Void> response = testRestTemplate.exchange(
+                "/api/customers/" + id,
+                HttpMethod.DELETE,
+                null,
+                Void.class);
+
+        // Assert DELETE response
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+
+    /**
+     * Test to not delete Customer dos not exist
+     */
+    @Test
+    @Order(8)
+    void shouldNotDeleteNonExistingCustomer() {
+        Long invalidId = 99L;
+
+        ResponseEntity<String> response = testRestTemplate.exchange(
+                "/api/customers/" + invalidId,
+                HttpMethod.DELETE,
+                null,
+                String.class
+        );
+
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        AssertionsForClassTypes.assertThat(response.getBody()).isEqualTo("This Customer not found");
+    }
+
+    /**
+     * Test to save valid customer
+     */
+    @Test
+    @Order(9)
+    @Rollback
+    void shouldSaveValidCustomer(){
+        CustomerDTO customerToSave = CustomerDTO.builder().firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build();
+
+        ResponseEntity<CustomerDTO> response = testRestTemplate.exchange(
+                "/api/customers",
+                HttpMethod.POST,
+                new HttpEntity<>(customerToSave),
+                CustomerDTO.class);
+        CustomerDTO content = response.getBody();
+
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        AssertionsForClassTypes.assertThat(content).usingRecursiveComparison().ignoringFields("id", "version").isEqualTo(customerToSave);
+    }
+
+    /**
+     * Test to not save invalid customer
+     */
+    @Test
+    @Order(5)
+    void shouldNotSaveInvalidCustomer() throws JsonProcessingException {
+        CustomerDTO invalidCustomer = CustomerDTO.builder()
+                .firstName("")
+                .lastName("")
+                .email("")
+                .build();
+
+        ResponseEntity<String> response = testRestTemplate.exchange(
+                "/api/customers",
+                HttpMethod.POST,
+                new HttpEntity<>(invalidCustomer),
+                String.class
+        );
+
+        // Debug: Print response body
+        System.out.println("Response Body: " + response.getBody());
+
+        // Assert response status is 400 BAD_REQUEST
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        // Deserialize response body into Map
+        Map<String, String> errors = objectMapper.readValue(response.getBody(), HashMap.class);
+
+        // Ensure that validation errors exist
+        AssertionsForClassTypes.assertThat(errors.containsKey("firstName")).isTrue();
+        AssertionsForClassTypes.assertThat(errors.containsKey("lastName")).isTrue();
+        AssertionsForClassTypes.assertThat(errors.containsKey("email")).isTrue();
+
+        // Ensure each field has an error message
+        AssertionsForClassTypes.assertThat(errors.get("firstName")).isNotEmpty();
+        AssertionsForClassTypes.assertThat(errors.get("lastName")).isNotEmpty();
+        AssertionsForClassTypes.assertThat(errors.get("email")).isNotEmpty();
+    }
+    /**
+     * Test for Not create a new customer with email exist
+     */
+    @Test
+    @Order(6)
+    void shouldNotSaveNewCustomerWithExsitedEmail(){
+        CustomerDTO customerDTO = CustomerDTO.builder()
+                .firstName("test")
+                .lastName("test")
+                .email("jawad@abid.com")
+                .build();
+
+        ResponseEntity<String> response = testRestTemplate.exchange(
+                "/api/customers",
+                HttpMethod.POST,
+                new HttpEntity<>(customerDTO),
+                String.class
+        );
+        String content = response.getBody();
+        AssertionsForClassTypes.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        AssertionsForClassTypes.assertThat(content).contains("Email already exists: "+customerDTO.getEmail());
+    }
+
+
+
+}
@@ -0,0 +1,73 @@
+package ma.abid.customer_service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.service.CustomerService;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+class CustomerExporterTest {
+    CustomerService customerService;
+    SimpleMeterRegistry meterRegistry;
+    CustomerExporter underTest;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        customerService = Mockito.mock(CustomerService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerExporter(customerService, new ObjectMapper(), meterRegistry);
+        List<CustomerDTO> customers = List.of(
+                CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build(),
+                CustomerDTO.builder().id(2L).firstName("Kamal, Jr").lastName("ABID").email("kamal@abid.com").version(3L).build(),
+                CustomerDTO.builder().id(3L).firstName("Bilal").lastName("ABID").email("bilal@abid.com").version(1L).build()
+        );
+        Mockito.doAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Consumer<CustomerDTO> consumer = invocation.getArgument(1);
+            customers.stream().filter(c -> c.getId() > afterId).forEach(consumer);
+            return null;
+        }).when(customerService).streamCustomersAfter(Mockito.anyLong(), Mockito.any(Consumer.class));
+    }
+
+    @Test
+    public void shouldExportNdjsonWithOneRecordPerLine() throws IOException {
+//        Arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+//        Act
+        long written = underTest.exportCustomers(0L, CustomerDataFormat.NDJSON, output);
+
+//        Assert
+        String content = output.toString(StandardCharsets.UTF_8);
+        AssertionsForClassTypes.assertThat(written).isEqualTo(3L);
+        AssertionsForClassTypes.assertThat(content).endsWith("}\n");
+        AssertionsForClassTypes.assertThat(content.split("\n").length).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.export.rows").count()).isEqualTo(3.0);
+    }
+
+    @Test
+    public void shouldResumeCsvExportAfterLastId() throws IOException {
+//        Arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+//        Act
+        long written = underTest.exportCustomers(1L, CustomerDataFormat.CSV, output);
+
+//        Assert
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        AssertionsForClassTypes.assertThat(written).isEqualTo(2L);
+        AssertionsForClassTypes.assertThat(lines[0]).isEqualTo("id,firstName,lastName,email,version");
+        AssertionsForClassTypes.assertThat(lines[1]).isEqualTo("2,\"Kamal, Jr\",ABID,kamal@abid.com,3");
+        AssertionsForClassTypes.assertThat(lines.length).isEqualTo(3);
+    }
+}
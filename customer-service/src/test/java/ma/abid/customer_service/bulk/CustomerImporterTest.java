@@ -0,0 +1,108 @@
+package ma.abid.customer_service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.ImportReportDTO;
+import ma.abid.customer_service.service.CustomerService;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class CustomerImporterTest {
+    CustomerService customerService;
+    SimpleMeterRegistry meterRegistry;
+    CustomerImporter underTest;
+    List<List<CustomerDTO>> chunks;
+
+    @BeforeEach
+    void setUp() {
+        customerService = Mockito.mock(CustomerService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerImporter(customerService, new ObjectMapper(), meterRegistry, 2);
+        chunks = new ArrayList<>();
+        // every customer is created except those whose email starts with "taken"
+        Mockito.when(customerService.saveNewCustomers(Mockito.anyList())).thenAnswer(invocation -> {
+            List<CustomerDTO> chunk = new ArrayList<>(invocation.<List<CustomerDTO>>getArgument(0));
+            chunks.add(chunk);
+            List<BatchItemResultDTO> results = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                boolean taken = chunk.get(i).getEmail().startsWith("taken");
+                results.add(BatchItemResultDTO.builder().index(i)
+                        .status(taken ? BatchItemResultDTO.Status.CONFLICT : BatchItemResultDTO.Status.CREATED)
+                        .message(taken ? "Email already exists: " + chunk.get(i).getEmail() : null)
+                        .build());
+            }
+            return results;
+        });
+    }
+
+    @Test
+    public void shouldImportCsvInChunks() throws IOException {
+//        Arrange
+        String csv = """
+                firstName,lastName,email
+                Jawad,ABID,jawad@abid.com
+                "Kamal, Jr",ABID,kamal@abid.com
+
+                Bilal,ABID,taken@abid.com
+                """;
+        List<ImportReportDTO> reports = new ArrayList<>();
+
+//        Act
+        ImportReportDTO summary = importAll(csv, CustomerDataFormat.CSV, reports);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(chunks.size()).isEqualTo(2);
+        AssertionsForClassTypes.assertThat(chunks.get(0).get(1).getFirstName()).isEqualTo("Kamal, Jr");
+        AssertionsForClassTypes.assertThat(summary.getType()).isEqualTo(ImportReportDTO.Type.COMPLETED);
+        AssertionsForClassTypes.assertThat(summary.getImported()).isEqualTo(2L);
+        AssertionsForClassTypes.assertThat(summary.getRejected()).isEqualTo(1L);
+        ImportReportDTO rejection = reports.stream().filter(r -> r.getType() == ImportReportDTO.Type.REJECTED).findFirst().orElseThrow();
+        AssertionsForClassTypes.assertThat(rejection.getRow()).isEqualTo(3L);
+        AssertionsForClassTypes.assertThat(rejection.getStatus()).isEqualTo(BatchItemResultDTO.Status.CONFLICT);
+        AssertionsForClassTypes.assertThat(reports.stream().filter(r -> r.getType() == ImportReportDTO.Type.PROGRESS).count()).isEqualTo(2L);
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.import.rows", "outcome", "imported").count()).isEqualTo(2.0);
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.import.rows", "outcome", "rejected").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void shouldRejectMalformedLinesAndKeepGoing() throws IOException {
+//        Arrange
+        String ndjson = """
+                {"firstName":"Jawad","lastName":"ABID","email":"jawad@abid.com"}
+                {"firstName":"Kamal",
+                {"firstName":"Bilal","lastName":"ABID","email":"bilal@abid.com"}
+                """;
+        List<ImportReportDTO> reports = new ArrayList<>();
+
+//        Act
+        ImportReportDTO summary = importAll(ndjson, CustomerDataFormat.NDJSON, reports);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(summary.getProcessed()).isEqualTo(3L);
+        AssertionsForClassTypes.assertThat(summary.getImported()).isEqualTo(2L);
+        AssertionsForClassTypes.assertThat(reports.get(0).getRow()).isEqualTo(2L);
+        AssertionsForClassTypes.assertThat(reports.get(0).getStatus()).isEqualTo(BatchItemResultDTO.Status.INVALID);
+        AssertionsForClassTypes.assertThat(reports.get(0).getMessage()).startsWith("Malformed record");
+    }
+
+    @Test
+    public void shouldTellFormatFromFileName(){
+        AssertionsForClassTypes.assertThat(CustomerDataFormat.fromFileName("customers.CSV")).isEqualTo(CustomerDataFormat.CSV);
+        AssertionsForClassTypes.assertThat(CustomerDataFormat.fromFileName("customers.ndjson.gz")).isEqualTo(CustomerDataFormat.NDJSON);
+        AssertionsForClassTypes.assertThatThrownBy(()->CustomerDataFormat.fromFileName("customers.xml")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ImportReportDTO importAll(String content, CustomerDataFormat format, List<ImportReportDTO> reports) throws IOException {
+        return underTest.importCustomers(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format, reports::add);
+    }
+}
@@ -0,0 +1,141 @@
+package ma.abid.customer_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.abid.customer_service.dto.CustomerDTO;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TwoTierCacheManagerTest {
+    SimpleMeterRegistry meterRegistryA;
+    SimpleMeterRegistry meterRegistryB;
+    Cache nodeA;
+    Cache nodeB;
+
+    private final CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+
+    @BeforeEach
+    void setUp() {
+        // two instances sharing one shared tier and one bus
+        CaffeineCacheManager shared = new CaffeineCacheManager();
+        LocalCacheInvalidationBus bus = new LocalCacheInvalidationBus();
+        meterRegistryA = new SimpleMeterRegistry();
+        meterRegistryB = new SimpleMeterRegistry();
+        nodeA = new TwoTierCacheManager(new CaffeineCacheManager("customers"), shared::getCache, bus, meterRegistryA).getCache("customers");
+        nodeB = new TwoTierCacheManager(new CaffeineCacheManager("customers"), shared::getCache, bus, meterRegistryB).getCache("customers");
+    }
+
+    @Test
+    public void shouldServeOtherInstancesFillsFromSharedTier(){
+//        Arrange
+        nodeA.get(1L, () -> customerDTO);
+
+//        Act
+        CustomerDTO result = nodeB.get(1L, CustomerDTO.class);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isSameAs(customerDTO);
+        AssertionsForClassTypes.assertThat(meterRegistryB.counter("customer.cache.gets", "cache", "customers", "tier", "shared", "result", "hit").count()).isEqualTo(1.0);
+        AssertionsForClassTypes.assertThat(meterRegistryA.counter("customer.cache.invalidations", "direction", "sent").count()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void shouldInvalidateOtherNearCachesOnWrite(){
+//        Arrange
+        CustomerDTO updated = CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(1L).build();
+        nodeA.get(1L, () -> customerDTO);
+        nodeB.get(1L, CustomerDTO.class);
+
+//        Act
+        nodeA.put(1L, updated);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(((TwoTierCache) nodeB).getNearCache().get(1L)).isNull();
+        AssertionsForClassTypes.assertThat(nodeB.get(1L, CustomerDTO.class).getFirstName()).isEqualTo("Jawadd");
+        AssertionsForClassTypes.assertThat(meterRegistryB.counter("customer.cache.invalidations", "direction", "received").count()).isEqualTo(1.0);
+        AssertionsForClassTypes.assertThat(meterRegistryB.timer("customer.cache.invalidation.lag").count()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldEvictEverywhereOnDelete(){
+//        Arrange
+        nodeA.get(1L, () -> customerDTO);
+        nodeB.get(1L, CustomerDTO.class);
+
+//        Act
+        nodeB.evict(1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(nodeA.get(1L)).isNull();
+        AssertionsForClassTypes.assertThat(nodeB.get(1L)).isNull();
+    }
+
+    @Test
+    public void shouldNotLetAStaleFillOverwriteAWriteMadeWhileLoading(){
+//        Arrange
+        CustomerDTO updated = CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(1L).build();
+
+//        Act
+        CustomerDTO loaded = nodeA.get(1L, () -> {
+            nodeB.put(1L, updated);
+            return customerDTO;
+        });
+
+//        Assert
+        AssertionsForClassTypes.assertThat(loaded).isSameAs(customerDTO);
+        AssertionsForClassTypes.assertThat(nodeA.get(1L, CustomerDTO.class)).isSameAs(updated);
+        AssertionsForClassTypes.assertThat(nodeB.get(1L, CustomerDTO.class)).isSameAs(updated);
+    }
+
+    @Test
+    public void shouldRemoveAFillThatLandedAfterARemoteDelete(){
+//        Arrange
+        nodeA.get(1L, () -> customerDTO);
+
+//        Act
+        // the delete's invalidation reaches nodeA after its fill went into the shared tier
+        ((TwoTierCache) nodeA).evictNear(1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(nodeB.get(1L)).isNull();
+        AssertionsForClassTypes.assertThat(nodeA.get(1L)).isNull();
+    }
+
+    @Test
+    public void shouldLoadAKeyOnceForConcurrentGets() throws Exception {
+//        Arrange
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<CustomerDTO>> results = new ArrayList<>();
+
+//        Act
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> nodeA.get(1L, () -> {
+                    loads.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return customerDTO;
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<CustomerDTO> result : results) {
+                AssertionsForClassTypes.assertThat(result.get()).isSameAs(customerDTO);
+            }
+        }
+
+//        Assert
+        AssertionsForClassTypes.assertThat(loads.get()).isEqualTo(1);
+    }
+}
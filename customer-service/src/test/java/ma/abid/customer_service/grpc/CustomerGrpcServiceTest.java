@@ -0,0 +1,236 @@
+package ma.abid.customer_service.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
+import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.GlobalExceptionHandler;
+import ma.abid.customer_service.grpc.v1.*;
+import ma.abid.customer_service.service.CustomerService;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+class CustomerGrpcServiceTest {
+    private static final Duration STREAM_STALL_TIMEOUT = Duration.ofMillis(300);
+
+    CustomerService customerService;
+    SimpleMeterRegistry meterRegistry;
+    Server server;
+    ManagedChannel channel;
+    CustomerServiceGrpc.CustomerServiceBlockingStub stub;
+
+    private final CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        customerService = Mockito.mock(CustomerService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        CustomerGrpcService customerGrpcService = new CustomerGrpcService(customerService,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new GrpcExceptionTranslator(new GlobalExceptionHandler(meterRegistry)), 50, 20, STREAM_STALL_TIMEOUT);
+        String name = InProcessServerBuilder.generateName();
+        // the server keeps its own executor: a streaming call waits for the client to read, which needs another thread
+        server = InProcessServerBuilder.forName(name).addService(customerGrpcService).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        stub = CustomerServiceGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void shouldGetCustomerById() {
+//        Arrange
+        Mockito.when(customerService.getCustomerById(1L)).thenReturn(customerDTO);
+
+//        Act
+        Customer customer = stub.getCustomer(CustomerIdRequest.newBuilder().setId(1L).build());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(CustomerProtoMapper.fromCustomer(customer)).usingRecursiveComparison().isEqualTo(customerDTO);
+    }
+
+    @Test
+    public void shouldMapNotFoundLikeTheRestApi() {
+//        Arrange
+        Mockito.when(customerService.getCustomerById(9L)).thenThrow(new CustomerNotFoundException("Customer with id 9 not found"));
+
+//        Act
+        Status status = statusOf(() -> stub.getCustomer(CustomerIdRequest.newBuilder().setId(9L).build()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(status.getCode()).isEqualTo(Status.Code.NOT_FOUND);
+        AssertionsForClassTypes.assertThat(status.getDescription()).isEqualTo("Customer with id 9 not found");
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.exceptions", "exception", "CustomerNotFoundException").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void shouldMapConflicts() {
+        Mockito.when(customerService.saveNewCustomer(ArgumentMatchers.any())).thenThrow(new EmailAlreadyExistException("Email already exists"));
+        Mockito.when(customerService.upDateCustomer(ArgumentMatchers.eq(1L), ArgumentMatchers.any())).thenThrow(new CustomerVersionConflictException("Stale version"));
+        Customer customer = CustomerProtoMapper.toCustomer(customerDTO);
+
+        AssertionsForClassTypes.assertThat(statusOf(() -> stub.saveNewCustomer(customer)).getCode()).isEqualTo(Status.Code.ALREADY_EXISTS);
+        AssertionsForClassTypes.assertThat(statusOf(() -> stub.updateCustomer(UpdateCustomerRequest.newBuilder().setId(1L).setCustomer(customer).build())).getCode())
+                .isEqualTo(Status.Code.ABORTED);
+    }
+
+    @Test
+    public void shouldRejectInvalidCustomerWithoutCallingTheService() {
+//        Arrange
+        Customer invalid = Customer.newBuilder().setFirstName("J").setLastName("ABID").setEmail("jawad@abid.com").build();
+
+//        Act
+        Status status = statusOf(() -> stub.saveNewCustomer(invalid));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(status.getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        AssertionsForClassTypes.assertThat(status.getDescription()).startsWith("firstName: ");
+        Mockito.verifyNoInteractions(customerService);
+    }
+
+    @Test
+    public void shouldHideUnexpectedFailures() {
+        Mockito.when(customerService.getCustomerById(1L)).thenThrow(new IllegalStateException("connection refused"));
+
+        Status status = statusOf(() -> stub.getCustomer(CustomerIdRequest.newBuilder().setId(1L).build()));
+
+        AssertionsForClassTypes.assertThat(status.getCode()).isEqualTo(Status.Code.INTERNAL);
+        AssertionsForClassTypes.assertThat(status.getDescription()).isEqualTo("Internal error");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldStreamCustomersAfterId() {
+//        Arrange
+        Mockito.doAnswer(invocation -> {
+            Consumer<CustomerDTO> consumer = invocation.getArgument(1);
+            for (long id = 6; id <= 8; id++) consumer.accept(CustomerDTO.builder().id(id).firstName("First").lastName("Last").email("c" + id + "@abid.com").build());
+            return null;
+        }).when(customerService).streamCustomersAfter(ArgumentMatchers.eq(5L), ArgumentMatchers.any(Consumer.class));
+
+//        Act
+        List<Long> ids = new ArrayList<>();
+        stub.listCustomers(ListCustomersRequest.newBuilder().setAfterId(5L).build()).forEachRemaining(customer -> ids.add(customer.getId()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(ids).isEqualTo(List.of(6L, 7L, 8L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldFailAStreamTheClientStoppedReading() throws Exception {
+//        Arrange
+        AtomicInteger sent = new AtomicInteger();
+        Mockito.doAnswer(invocation -> {
+            Consumer<CustomerDTO> consumer = invocation.getArgument(1);
+            for (long id = 1; id <= 10_000; id++) {
+                consumer.accept(CustomerDTO.builder().id(id).firstName("First").lastName("Last").email("c" + id + "@abid.com").build());
+                sent.incrementAndGet();
+            }
+            return null;
+        }).when(customerService).streamCustomersAfter(ArgumentMatchers.eq(0L), ArgumentMatchers.any(Consumer.class));
+
+//        Act
+        Iterator<Customer> customers = stub.listCustomers(ListCustomersRequest.newBuilder().build());
+        customers.next();
+        Thread.sleep(STREAM_STALL_TIMEOUT.multipliedBy(3).toMillis());
+
+//        Assert
+        AssertionsForClassTypes.assertThatThrownBy(() -> customers.forEachRemaining(customer -> { }))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        e -> AssertionsForClassTypes.assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED));
+        AssertionsForClassTypes.assertThat(sent.get()).isLessThan(10_000);
+    }
+
+    @Test
+    public void shouldStreamSearchResultsWithDefaultLimit() {
+//        Arrange
+        Mockito.when(customerService.searchCustomers("abid", 20)).thenReturn(List.of(customerDTO));
+
+//        Act
+        List<Customer> customers = new ArrayList<>();
+        stub.searchCustomers(SearchCustomersRequest.newBuilder().setKeyword("abid").build()).forEachRemaining(customers::add);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(customers.size()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(customers.get(0).getEmail()).isEqualTo("jawad@abid.com");
+    }
+
+    @Test
+    public void shouldStreamOneLookupResultPerKey() {
+//        Arrange
+        Map<Long, CustomerDTO> byId = new LinkedHashMap<>();
+        byId.put(1L, customerDTO);
+        byId.put(2L, null);
+        Map<String, CustomerDTO> byEmail = new LinkedHashMap<>();
+        byEmail.put("nobody@abid.com", null);
+        Mockito.when(customerService.lookupCustomers(List.of(1L, 2L), List.of("nobody@abid.com")))
+                .thenReturn(CustomerLookupDTO.builder().ids(byId).emails(byEmail).build());
+
+//        Act
+        List<LookupResult> results = new ArrayList<>();
+        stub.lookupCustomers(LookupCustomersRequest.newBuilder().addIds(1L).addIds(2L).addEmails("nobody@abid.com").build())
+                .forEachRemaining(results::add);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(results.size()).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(results.get(0).getCustomer().getEmail()).isEqualTo("jawad@abid.com");
+        AssertionsForClassTypes.assertThat(results.get(1).getId()).isEqualTo(2L);
+        AssertionsForClassTypes.assertThat(results.get(1).hasCustomer()).isFalse();
+        AssertionsForClassTypes.assertThat(results.get(2).getEmail()).isEqualTo("nobody@abid.com");
+        AssertionsForClassTypes.assertThat(results.get(2).hasCustomer()).isFalse();
+    }
+
+    @Test
+    public void shouldReturnBatchResults() {
+//        Arrange
+        Mockito.when(customerService.deleteCustomers(List.of(1L, 9L))).thenReturn(List.of(
+                BatchItemResultDTO.builder().index(0).id(1L).status(BatchItemResultDTO.Status.DELETED).build(),
+                BatchItemResultDTO.builder().index(1).id(9L).status(BatchItemResultDTO.Status.NOT_FOUND).message("Customer with id 9 not found").build()));
+
+//        Act
+        BatchResults results = stub.deleteCustomers(CustomerIdsBatch.newBuilder().addIds(1L).addIds(9L).build());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(results.getResults(0).getStatus()).isEqualTo(BatchItemResult.Status.DELETED);
+        AssertionsForClassTypes.assertThat(results.getResults(1).getStatus()).isEqualTo(BatchItemResult.Status.NOT_FOUND);
+        AssertionsForClassTypes.assertThat(results.getResults(1).getMessage()).isEqualTo("Customer with id 9 not found");
+    }
+
+    private static Status statusOf(Supplier<?> call) {
+        try {
+            call.get();
+        } catch (StatusRuntimeException e) {
+            return e.getStatus();
+        }
+        throw new AssertionError("Expected the call to fail");
+    }
+}
@@ -0,0 +1,95 @@
+package ma.abid.customer_service.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+import ma.abid.customer_service.dto.CustomerChangesDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import ma.abid.customer_service.exception.ChangesExpiredException;
+import ma.abid.customer_service.repository.CustomerOutboxRepository;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+
+@DataJpaTest(properties = {"customer.outbox.sink=memory", "customer.outbox.poll-interval=1h"})
+@ActiveProfiles("test")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({SimpleMeterRegistry.class, CustomerOutboxWriter.class, CustomerOutboxRelay.class,
+        InMemoryCustomerChangeSink.class, CustomerChangeFeed.class})
+class CustomerOutboxRelayTest {
+    @Autowired
+    CustomerOutboxWriter customerOutboxWriter;
+    @Autowired
+    CustomerOutboxRelay customerOutboxRelay;
+    @Autowired
+    InMemoryCustomerChangeSink sink;
+    @Autowired
+    CustomerChangeFeed customerChangeFeed;
+    @Autowired
+    CustomerOutboxRepository customerOutboxRepository;
+
+    @BeforeEach
+    public void setUp(){
+        sink.clear();
+        CustomerDTO customer = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+        customerOutboxWriter.onCustomerChanged(CustomerChangedEvent.created(customer));
+        customerOutboxWriter.onCustomerChanged(CustomerChangedEvent.updated(
+                CustomerDTO.builder().id(1L).firstName("Jawad").lastName("Abid").email("jawad@abid.com").version(1L).build()));
+        customerOutboxWriter.onCustomerChanged(CustomerChangedEvent.deleted(1L));
+    }
+
+    @Test
+    public void shouldPublishPendingEventsInOrder(){
+//        Act
+        int published = customerOutboxRelay.relayBatch();
+        int publishedAgain = customerOutboxRelay.relayBatch();
+
+//        Assert
+        List<CustomerChangeDTO> changes = sink.getPublished();
+        AssertionsForClassTypes.assertThat(published).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(publishedAgain).isEqualTo(0);
+        AssertionsForClassTypes.assertThat(changes.stream().map(CustomerChangeDTO::getPosition).toList()).isEqualTo(List.of(1L, 2L, 3L));
+        AssertionsForClassTypes.assertThat(changes.get(1).getCustomer()).contains("\"lastName\":\"Abid\"");
+        AssertionsForClassTypes.assertThat(changes.get(2).getType()).isEqualTo(CustomerChangedEvent.Type.DELETED);
+        AssertionsForClassTypes.assertThat(changes.get(2).getCustomer()).isNull();
+    }
+
+    @Test
+    public void shouldReturnChangesSincePosition(){
+//        Arrange
+        customerOutboxRelay.relayBatch();
+
+//        Act
+        CustomerChangesDTO result = customerChangeFeed.getChangesSince(1, 10);
+        CustomerChangesDTO upToDate = customerChangeFeed.getChangesSince(3, 10);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.getChanges().size()).isEqualTo(2);
+        AssertionsForClassTypes.assertThat(result.getNext()).isEqualTo(3L);
+        AssertionsForClassTypes.assertThat(upToDate.getChanges().size()).isEqualTo(0);
+        AssertionsForClassTypes.assertThat(upToDate.getNext()).isEqualTo(3L);
+    }
+
+    @Test
+    public void shouldKeepLastEventAndRejectExpiredPositions(){
+//        Arrange
+        customerOutboxRelay.relayBatch();
+
+//        Act
+        int deleted = customerOutboxRepository.deletePublishedBefore(Instant.now().plusSeconds(60));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(deleted).isEqualTo(2);
+        AssertionsForClassTypes.assertThatThrownBy(() -> customerChangeFeed.getChangesSince(1, 10)).isInstanceOf(ChangesExpiredException.class);
+        AssertionsForClassTypes.assertThat(customerChangeFeed.getChangesSince(2, 10).getChanges().size()).isEqualTo(1);
+    }
+}
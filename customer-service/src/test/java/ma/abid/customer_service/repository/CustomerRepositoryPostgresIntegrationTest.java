@@ -0,0 +1,78 @@
+package ma.abid.customer_service.repository;
+
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+/**
+ * Runs the PostgreSQL migrations and checks that the lookup and search predicates are planned on their indexes.
+ * The statements mirror the SQL Hibernate generates for the repository queries.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CustomerRepositoryPostgresIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    private static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:latest");
+
+    @Autowired
+    CustomerRepository customerRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp(){
+        // enough rows for the planner to prefer an index over a sequential scan
+        jdbcTemplate.update("insert into customer (id, version, email, first_name, last_name) "
+                + "select n, 0, 'Customer' || n || '@Example.com', 'First' || n, 'Last' || n from generate_series(1, 20000) n");
+        jdbcTemplate.execute("analyze customer");
+    }
+
+    @Test
+    public void shouldFindCustomerByEmailIgnoringCase(){
+//        Act
+        var result = customerRepository.findCustomerDTOsByLowerEmail("customer42@example.com");
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.size()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(result.get(0).getEmail()).isEqualTo("Customer42@Example.com");
+    }
+
+    @Test
+    public void shouldPlanEmailLookupOnLowerEmailIndex(){
+//        Act
+        String plan = explain("select c1_0.id from customer c1_0 where lower(c1_0.email)='customer42@example.com' order by c1_0.id");
+
+//        Assert
+        AssertionsForClassTypes.assertThat(plan).contains("ix_customer_email_lower");
+    }
+
+    @Test
+    public void shouldPlanKeywordSearchOnTrigramIndexes(){
+//        Act
+        String plan = explain("select c1_0.id from customer c1_0 where lower(c1_0.first_name) like ('%'||'first1234'||'%')"
+                + " or lower(c1_0.last_name) like ('%'||'first1234'||'%') or lower(c1_0.email) like ('%'||'first1234'||'%')");
+
+//        Assert
+        AssertionsForClassTypes.assertThat(plan).contains("ix_customer_first_name_trgm");
+        AssertionsForClassTypes.assertThat(plan).contains("ix_customer_last_name_trgm");
+        AssertionsForClassTypes.assertThat(plan).contains("ix_customer_email_trgm");
+    }
+
+    private String explain(String sql) {
+        List<String> lines = jdbcTemplate.queryForList("explain " + sql, String.class);
+        return String.join("\n", lines);
+    }
+}
@@ -1,21 +1,30 @@
 package ma.abid.customer_service.repository;
 
+import ma.abid.customer_service.dto.CustomerDTO;
 import ma.abid.customer_service.entities.Customer;
+import org.hibernate.Session;
 import org.assertj.core.api.AssertionsForClassTypes;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @DataJpaTest
 @ActiveProfiles("test")
 class CustomerRepositoryTest {
     @Autowired
     CustomerRepository customerRepository;
+    @Autowired
+    TestEntityManager testEntityManager;
 
     @BeforeEach
     public void setUp(){
@@ -77,7 +86,201 @@ class CustomerRepositoryTest {
 //        Assert
         AssertionsForClassTypes.assertThat(result).isNotNull();
         AssertionsForClassTypes.assertThat(result.size()).isEqualTo(expectedList.size());
-        AssertionsForClassTypes.assertThat(result).usingRecursiveComparison().ignoringFields("id").isEqualTo(expectedList);
+        AssertionsForClassTypes.assertThat(result).usingRecursiveComparison().ignoringFields("id", "version").isEqualTo(expectedList);
+    }
+
+    @Test
+    public void shouldFindNextKeysetPage(){
+//        Arrange
+        Long firstId = customerRepository.findByEmail("jawad@abid.com").orElseThrow().getId();
+
+//        Act
+        List<CustomerDTO> result = customerRepository.findCustomerDTOsAfter(firstId, Limit.of(1));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.size()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(result.get(0).getEmail()).isEqualTo("kamal@abid.com");
+    }
+
+    @Test
+    public void shouldSearchByKeywordAcrossNamesAndEmail(){
+//        Act
+        List<CustomerDTO> result = customerRepository.searchByKeyword("BILAL@", PageRequest.of(0, 10));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.size()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(result.get(0).getFirstName()).isEqualTo("Bilal");
+    }
+
+    @Test
+    public void shouldRankSearchResultsLikeTheSearchIndex(){
+//        Arrange
+        customerRepository.save(Customer.builder().firstName("Sara").lastName("Kamali").email("sara@abid.com").build());
+
+//        Act
+        List<CustomerDTO> result = customerRepository.searchByKeyword("kamal", PageRequest.of(0, 10));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.size()).isEqualTo(2);
+        AssertionsForClassTypes.assertThat(result.get(0).getFirstName()).isEqualTo("Kamal");
+        AssertionsForClassTypes.assertThat(result.get(1).getFirstName()).isEqualTo("Sara");
+    }
+
+    @Test
+    public void shouldMatchLikeWildcardsLiterally(){
+//        Arrange
+        customerRepository.save(Customer.builder().firstName("Percent").lastName("Sign").email("100%_off@abid.com").build());
+
+//        Act & Assert
+        AssertionsForClassTypes.assertThat(customerRepository.searchByKeyword("%", PageRequest.of(0, 10)).size()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(customerRepository.searchByKeyword("%_o", PageRequest.of(0, 10)).size()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(customerRepository.searchByKeyword("j_wad", PageRequest.of(0, 10)).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldFindOnlyExistingEmails(){
+//        Act
+        List<String> result = customerRepository.findExistingEmails(List.of("jawad@abid.com", "nobody@abid.com"));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isEqualTo(List.of("jawad@abid.com"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldUpdateInOneStatementAndBumpVersion(){
+//        Arrange
+        Customer customer = customerRepository.findByEmail("jawad@abid.com").orElseThrow();
+
+//        Act
+        int updated = customerRepository.updateCustomer(customer.getId(), "Jawadd", "ABID", "jawad@abid.com");
+
+//        Assert
+        Customer result = customerRepository.findById(customer.getId()).orElseThrow();
+        AssertionsForClassTypes.assertThat(updated).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(result.getFirstName()).isEqualTo("Jawadd");
+        AssertionsForClassTypes.assertThat(result.getVersion()).isEqualTo(customer.getVersion() + 1);
+    }
+
+    @Test
+    public void shouldNotUpdateAtStaleVersion(){
+//        Arrange
+        Customer customer = customerRepository.findByEmail("jawad@abid.com").orElseThrow();
+
+//        Act
+        int updated = customerRepository.updateCustomerIfVersion(customer.getId(), customer.getVersion() + 1, "Jawadd", "ABID", "jawad@abid.com");
+
+//        Assert
+        AssertionsForClassTypes.assertThat(updated).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReportAffectedRowsOnDelete(){
+//        Arrange
+        Long id = customerRepository.findByEmail("jawad@abid.com").orElseThrow().getId();
+
+//        Act
+        int deleted = customerRepository.deleteCustomerById(id);
+        int deletedAgain = customerRepository.deleteCustomerById(id);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(deleted).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(deletedAgain).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRejectDuplicateEmail(){
+//        Arrange
+        Customer duplicate = Customer.builder().firstName("Other").lastName("ABID").email("jawad@abid.com").build();
+
+//        Assert
+        AssertionsForClassTypes.assertThatThrownBy(()->customerRepository.saveAndFlush(duplicate))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining(Customer.EMAIL_UNIQUE_CONSTRAINT.toUpperCase());
+    }
+
+    @Test
+    public void shouldFindVersionWithoutLoadingCustomer(){
+//        Arrange
+        Customer customer = customerRepository.findByEmail("jawad@abid.com").orElseThrow();
+
+//        Act
+        Optional<Long> version = customerRepository.findVersionById(customer.getId());
+        Optional<Long> missing = customerRepository.findVersionById(-1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(version).contains(customer.getVersion());
+        AssertionsForClassTypes.assertThat(missing).isEmpty();
+    }
+
+    @Test
+    public void shouldChangeFingerprintOnEveryWrite(){
+//        Arrange
+        Customer customer = customerRepository.findByEmail("jawad@abid.com").orElseThrow();
+        String initial = customerRepository.tableFingerprint();
+
+//        Act
+        customerRepository.updateCustomer(customer.getId(), "Jawadd", "ABID", "jawad@abid.com");
+        String afterUpdate = customerRepository.tableFingerprint();
+        customerRepository.deleteCustomerById(customer.getId());
+        String afterDelete = customerRepository.tableFingerprint();
+
+//        Assert
+        AssertionsForClassTypes.assertThat(initial).startsWith("3-");
+        AssertionsForClassTypes.assertThat(afterUpdate).isNotEqualTo(initial);
+        AssertionsForClassTypes.assertThat(afterDelete).isNotEqualTo(afterUpdate);
+        AssertionsForClassTypes.assertThat(afterDelete).startsWith("2-");
+    }
+
+    @Test
+    public void shouldStreamCustomersAfterIdInOrder(){
+//        Arrange
+        Long firstId = customerRepository.findByEmail("jawad@abid.com").orElseThrow().getId();
+
+//        Act
+        List<String> result;
+        try (Stream<CustomerDTO> customers = customerRepository.streamCustomerDTOsAfter(firstId)) {
+            result = customers.map(CustomerDTO::getEmail).toList();
+        }
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isEqualTo(List.of("kamal@abid.com", "bilal@abid.com"));
+    }
+
+    @Test
+    public void shouldProjectWithoutManagingEntities(){
+//        Arrange
+        Customer customer = customerRepository.findByEmail("jawad@abid.com").orElseThrow();
+        testEntityManager.clear();
+
+//        Act
+        CustomerDTO result = customerRepository.findCustomerDTOById(customer.getId()).orElseThrow();
+        List<CustomerDTO> all = customerRepository.findAllCustomerDTOs();
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).usingRecursiveComparison().isEqualTo(
+                new CustomerDTO(customer.getId(), "Jawad", "ABID", "jawad@abid.com", customer.getVersion()));
+        AssertionsForClassTypes.assertThat(all.size()).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(testEntityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void shouldProjectCustomersByEmailIn(){
+//        Act
+        List<CustomerDTO> result = customerRepository.findCustomerDTOsByEmailIn(List.of("kamal@abid.com", "bilal@abid.com", "nobody@abid.com"));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.size()).isEqualTo(2);
+        AssertionsForClassTypes.assertThat(result.stream().map(CustomerDTO::getFirstName).sorted().toList()).isEqualTo(List.of("Bilal", "Kamal"));
+    }
+
+    @Test
+    public void shouldFindCustomerDTOsByLowerEmail(){
+//        Act
+        List<CustomerDTO> result = customerRepository.findCustomerDTOsByLowerEmail("kamal@abid.com");
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.size()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(result.get(0).getFirstName()).isEqualTo("Kamal");
+        AssertionsForClassTypes.assertThat(customerRepository.findCustomerDTOsByLowerEmail("nobody@abid.com").isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,54 @@
+package ma.abid.customer_service.routing;
+
+import jakarta.servlet.http.Cookie;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class ReadYourWritesFilterTest {
+    ReadYourWritesFilter underTest = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+    @Test
+    public void shouldPinWritesAndSetCookie() throws Exception {
+//        Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+//        Act
+        boolean pinned = filter(new MockHttpServletRequest("PUT", "/api/customers/1"), response);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(pinned).isTrue();
+        AssertionsForClassTypes.assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).startsWith(ReadYourWritesFilter.COOKIE + "=");
+        AssertionsForClassTypes.assertThat(ReplicaRoutingDataSource.isPinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    public void shouldPinReadsOnlyWithinStickyWindow() throws Exception {
+//        Arrange
+        MockHttpServletRequest recent = new MockHttpServletRequest("GET", "/api/customers/1");
+        recent.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() - 1000)));
+        MockHttpServletRequest old = new MockHttpServletRequest("GET", "/api/customers/1");
+        old.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() - 10_000)));
+
+//        Act
+        boolean recentPinned = filter(recent, new MockHttpServletResponse());
+        boolean oldPinned = filter(old, new MockHttpServletResponse());
+        boolean anonymousPinned = filter(new MockHttpServletRequest("GET", "/api/customers"), new MockHttpServletResponse());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(recentPinned).isTrue();
+        AssertionsForClassTypes.assertThat(oldPinned).isFalse();
+        AssertionsForClassTypes.assertThat(anonymousPinned).isFalse();
+    }
+
+    private boolean filter(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        AtomicBoolean pinned = new AtomicBoolean();
+        underTest.doFilter(request, response, (req, res) -> pinned.set(ReplicaRoutingDataSource.isPinnedToPrimary()));
+        return pinned.get();
+    }
+}
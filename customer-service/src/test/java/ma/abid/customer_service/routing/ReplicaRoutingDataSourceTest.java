@@ -0,0 +1,108 @@
+package ma.abid.customer_service.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+class ReplicaRoutingDataSourceTest {
+    SimpleMeterRegistry meterRegistry;
+    DriverManagerDataSource replica;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DriverManagerDataSource primary = h2("primary");
+        replica = h2("replica");
+        // the lag the "replica" reports is whatever the test stores in it
+        new JdbcTemplate(replica).execute("create table lag(seconds double)");
+        new JdbcTemplate(replica).execute("insert into lag values (0)");
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(
+                primary, replica, monitor(), meterRegistry));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    @Test
+    public void shouldSendReadOnlyTransactionsToReplica(){
+//        Act
+        String read = readOnly.execute(status -> database());
+        String written = readWrite.execute(status -> database());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(read).isEqualTo("replica");
+        AssertionsForClassTypes.assertThat(written).isEqualTo("primary");
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.datasource.routing", "target", "replica", "reason", "read-only").count()).isEqualTo(1.0);
+        AssertionsForClassTypes.assertThat(meterRegistry.get("customer.datasource.replica.lag").gauge().value()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhenPinned(){
+//        Arrange
+        ReplicaRoutingDataSource.pinToPrimary();
+
+//        Act
+        String read = readOnly.execute(status -> database());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(read).isEqualTo("primary");
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhileReplicaLags(){
+//        Arrange
+        new JdbcTemplate(replica).update("update lag set seconds = 10");
+        ReplicaLagMonitor monitor = monitor();
+        jdbcTemplate = new JdbcTemplate(new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(
+                h2("primary"), replica, monitor, meterRegistry)));
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        readOnly.setReadOnly(true);
+
+//        Act
+        String lagging = readOnly.execute(status -> database());
+        new JdbcTemplate(replica).update("update lag set seconds = 1");
+        monitor.check();
+        String caughtUp = readOnly.execute(status -> database());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(lagging).isEqualTo("primary");
+        AssertionsForClassTypes.assertThat(caughtUp).isEqualTo("replica");
+        AssertionsForClassTypes.assertThat(monitor.isReplicaUsable()).isTrue();
+    }
+
+    private ReplicaLagMonitor monitor() {
+        return new ReplicaLagMonitor(replica, "select seconds from lag", Duration.ofSeconds(2), Duration.ofHours(1), meterRegistry);
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("select name from db", String.class);
+    }
+
+    private static DriverManagerDataSource h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table db(name varchar(20))");
+        jdbcTemplate.update("insert into db values (?)", name);
+        return dataSource;
+    }
+}
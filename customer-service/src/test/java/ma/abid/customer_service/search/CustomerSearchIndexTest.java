@@ -0,0 +1,102 @@
+package ma.abid.customer_service.search;
+
+import ma.abid.customer_service.dto.CustomerDTO;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CustomerSearchIndexTest {
+    CustomerSearchIndex underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerSearchIndex();
+        underTest.index(CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build());
+        underTest.index(CustomerDTO.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").build());
+        underTest.index(CustomerDTO.builder().id(3L).firstName("Bilal").lastName("ABID").email("bilal@abid.com").build());
+        underTest.index(CustomerDTO.builder().id(4L).firstName("Sara").lastName("Kamali").email("sara@abid.com").build());
+    }
+
+    @Test
+    public void shouldRankFirstNameMatchesAboveLastNameMatches(){
+//        Act
+        List<Long> result = underTest.search("kamal", 10);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isEqualTo(List.of(2L, 4L));
+    }
+
+    @Test
+    public void shouldSearchAcrossEmailCaseInsensitively(){
+        AssertionsForClassTypes.assertThat(underTest.search("BILAL@", 10)).isEqualTo(List.of(3L));
+    }
+
+    @Test
+    public void shouldAnswerShortKeywordsAndBreakTiesById(){
+        AssertionsForClassTypes.assertThat(underTest.search("al", 10)).isEqualTo(List.of(2L, 3L, 4L));
+    }
+
+    @Test
+    public void shouldLimitResults(){
+        AssertionsForClassTypes.assertThat(underTest.search("abid", 2)).isEqualTo(List.of(1L, 2L));
+    }
+
+    @Test
+    public void shouldNotReturnTrigramFalsePositives(){
+//        "jaw" and "wad" both occur in "jawad" but "jawwad" does not
+        AssertionsForClassTypes.assertThat(underTest.search("jawwad", 10)).isEqualTo(List.of());
+    }
+
+    @Test
+    public void shouldReindexUpdatedAndForgetRemovedCustomers(){
+//        Act
+        underTest.index(CustomerDTO.builder().id(1L).firstName("Youssef").lastName("ABID").email("youssef@abid.com").build());
+        underTest.remove(3L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(underTest.search("jawad", 10)).isEqualTo(List.of());
+        AssertionsForClassTypes.assertThat(underTest.search("youss", 10)).isEqualTo(List.of(1L));
+        AssertionsForClassTypes.assertThat(underTest.search("bilal", 10)).isEqualTo(List.of());
+        AssertionsForClassTypes.assertThat(underTest.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldAnswerOneCharacterKeywordsFromTheirPostings(){
+        AssertionsForClassTypes.assertThat(underTest.search("k", 10)).isEqualTo(List.of(2L, 4L));
+        AssertionsForClassTypes.assertThat(underTest.search("z", 10)).isEqualTo(List.of());
+    }
+
+    @Test
+    public void shouldNotReplaceANewerVersion(){
+//        Arrange
+        underTest.index(CustomerDTO.builder().id(5L).firstName("Nadia").lastName("ABID").email("nadia@abid.com").version(3L).build());
+
+//        Act
+        underTest.index(CustomerDTO.builder().id(5L).firstName("Nora").lastName("ABID").email("nadia@abid.com").version(2L).build());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(underTest.search("nadia", 10)).isEqualTo(List.of(5L));
+        AssertionsForClassTypes.assertThat(underTest.search("nora", 10)).isEqualTo(List.of());
+    }
+
+    @Test
+    public void shouldNotLetTheStartupSnapshotOverwriteCommittedWrites(){
+//        Arrange
+        CustomerSearchIndex loading = new CustomerSearchIndex();
+        loading.index(CustomerDTO.builder().id(1L).firstName("Youssef").lastName("ABID").email("jawad@abid.com").build());
+        loading.remove(2L);
+
+//        Act
+        loading.load(CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build());
+        loading.load(CustomerDTO.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").build());
+        loading.load(CustomerDTO.builder().id(3L).firstName("Bilal").lastName("ABID").email("bilal@abid.com").build());
+        loading.markReady();
+
+//        Assert
+        AssertionsForClassTypes.assertThat(loading.search("youssef", 10)).isEqualTo(List.of(1L));
+        AssertionsForClassTypes.assertThat(loading.search("kamal", 10)).isEqualTo(List.of());
+        AssertionsForClassTypes.assertThat(loading.size()).isEqualTo(2);
+    }
+}
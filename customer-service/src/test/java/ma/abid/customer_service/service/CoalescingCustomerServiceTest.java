@@ -0,0 +1,154 @@
+package ma.abid.customer_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.routing.ReplicaRoutingDataSource;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class CoalescingCustomerServiceTest {
+    private static final int CALLERS = 8;
+
+    CustomerService delegate;
+    SimpleMeterRegistry meterRegistry;
+    CoalescingCustomerService underTest;
+    ExecutorService executor;
+    CountDownLatch release;
+    CountDownLatch entered;
+
+    private final CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+
+    @BeforeEach
+    void setUp() {
+        delegate = Mockito.mock(CustomerService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CoalescingCustomerService(delegate, meterRegistry);
+        executor = Executors.newFixedThreadPool(CALLERS);
+        release = new CountDownLatch(1);
+        entered = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    @Test
+    public void shouldShareOneCallBetweenConcurrentIdenticalReads() throws Exception {
+//        Arrange
+        Mockito.when(delegate.getCustomerById(1L)).thenAnswer(invocation -> block(customerDTO));
+
+//        Act
+        List<Future<CustomerDTO>> results = callConcurrently(() -> underTest.getCustomerById(1L));
+
+//        Assert
+        for (Future<CustomerDTO> result : results) {
+            AssertionsForClassTypes.assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(customerDTO);
+        }
+        Mockito.verify(delegate, Mockito.times(1)).getCustomerById(1L);
+        AssertionsForClassTypes.assertThat(count("executed")).isEqualTo(1.0);
+        AssertionsForClassTypes.assertThat(count("coalesced")).isEqualTo(CALLERS - 1.0);
+    }
+
+    @Test
+    public void shouldShareTheLeadersException() throws Exception {
+//        Arrange
+        Mockito.when(delegate.getCustomerById(1L)).thenAnswer(invocation -> {
+            block(null);
+            throw new CustomerNotFoundException("This Customer not found");
+        });
+
+//        Act
+        List<Future<CustomerDTO>> results = callConcurrently(() -> underTest.getCustomerById(1L));
+
+//        Assert
+        for (Future<CustomerDTO> result : results) {
+            AssertionsForClassTypes.assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(CustomerNotFoundException.class);
+        }
+        Mockito.verify(delegate, Mockito.times(1)).getCustomerById(1L);
+    }
+
+    @Test
+    public void shouldRunAgainOnceTheCallCompleted(){
+//        Arrange
+        Mockito.when(delegate.getCustomerById(1L)).thenReturn(customerDTO);
+
+//        Act
+        underTest.getCustomerById(1L);
+        underTest.getCustomerById(1L);
+
+//        Assert
+        Mockito.verify(delegate, Mockito.times(2)).getCustomerById(1L);
+        AssertionsForClassTypes.assertThat(count("coalesced")).isEqualTo(0.0);
+    }
+
+    @Test
+    public void shouldNotCoalesceReadsPinnedToPrimary(){
+//        Arrange
+        Mockito.when(delegate.getCustomerById(1L)).thenReturn(customerDTO);
+        ReplicaRoutingDataSource.pinToPrimary();
+
+//        Act
+        underTest.getCustomerById(1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(count("bypassed")).isEqualTo(1.0);
+        AssertionsForClassTypes.assertThat(count("executed")).isEqualTo(0.0);
+    }
+
+    @Test
+    public void shouldNotJoinAReadThatStartedBeforeAWrite() throws Exception {
+//        Arrange
+        CustomerDTO updated = CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(1L).build();
+        Mockito.when(delegate.getCustomerById(1L)).thenAnswer(invocation -> block(customerDTO)).thenReturn(updated);
+        Future<CustomerDTO> before = executor.submit(() -> underTest.getCustomerById(1L));
+        AssertionsForClassTypes.assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+//        Act
+        underTest.upDateCustomer(1L, updated);
+        CustomerDTO after = underTest.getCustomerById(1L);
+        release.countDown();
+
+//        Assert
+        AssertionsForClassTypes.assertThat(after).isSameAs(updated);
+        AssertionsForClassTypes.assertThat(before.get(5, TimeUnit.SECONDS)).isSameAs(customerDTO);
+        AssertionsForClassTypes.assertThat(count("coalesced")).isEqualTo(0.0);
+    }
+
+    private <V> List<Future<V>> callConcurrently(Callable<V> call) throws InterruptedException {
+        List<Future<V>> results = new ArrayList<>();
+        results.add(executor.submit(call));
+        // the followers arrive while the leader is blocked inside the delegate
+        AssertionsForClassTypes.assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < CALLERS; i++) results.add(executor.submit(call));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("coalesced") < CALLERS - 1 && System.nanoTime() < deadline) Thread.sleep(1);
+        release.countDown();
+        return results;
+    }
+
+    private <V> V block(V value) throws InterruptedException {
+        entered.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        return value;
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("customer.service.coalescing", "operation", "getCustomerById", "outcome", outcome).count();
+    }
+}
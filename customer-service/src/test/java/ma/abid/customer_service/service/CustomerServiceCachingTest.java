@@ -0,0 +1,153 @@
+package ma.abid.customer_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import ma.abid.customer_service.config.CacheConfig;
+import ma.abid.customer_service.config.CustomerCacheSynchronizer;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.entities.Customer;
+import ma.abid.customer_service.mapper.CustomerMapper;
+import ma.abid.customer_service.repository.CustomerRepository;
+import ma.abid.customer_service.search.CustomerSearchIndex;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.List;
+import java.util.Optional;
+
+@SpringJUnitConfig
+@Import({CacheConfig.class, CustomerCacheSynchronizer.class, CustomerServiceImpl.class, CustomerMapper.class, CustomerSearchIndex.class,
+        LocalValidatorFactoryBean.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = "customer.cache.spec=maximumSize=100,recordStats")
+class CustomerServiceCachingTest {
+    @MockBean
+    CustomerRepository customerRepository;
+    @MockBean
+    EntityManager entityManager;
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    CustomerService underTest;
+    @Autowired
+    CacheManager cacheManager;
+
+    private final Customer customer = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+    private final CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE).clear();
+    }
+
+    @Test
+    public void shouldServeRepeatedReadsFromCache(){
+//        Arrange
+        Mockito.when(customerRepository.findCustomerDTOById(1L)).thenReturn(Optional.of(customerDTO));
+        CacheStats before = nativeCache().stats();
+
+//        Act
+        underTest.getCustomerById(1L);
+        CustomerDTO result = underTest.getCustomerById(1L);
+
+//        Assert
+        CacheStats stats = nativeCache().stats().minus(before);
+        AssertionsForClassTypes.assertThat(result.getFirstName()).isEqualTo("Jawad");
+        Mockito.verify(customerRepository, Mockito.times(1)).findCustomerDTOById(1L);
+        AssertionsForClassTypes.assertThat(stats.hitCount()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(stats.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRefreshCacheOnUpdate(){
+//        Arrange
+        Mockito.when(customerRepository.findCustomerDTOById(1L)).thenReturn(Optional.of(customerDTO));
+        Mockito.when(customerRepository.updateCustomerIfVersion(1L, 0L, "Jawadd", "ABID", "jawad@abid.com")).thenReturn(1);
+        underTest.getCustomerById(1L);
+
+//        Act
+        underTest.upDateCustomer(1L, CustomerDTO.builder().firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(0L).build());
+        CustomerDTO result = underTest.getCustomerById(1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.getFirstName()).isEqualTo("Jawadd");
+        AssertionsForClassTypes.assertThat(result.getVersion()).isEqualTo(1L);
+        Mockito.verify(customerRepository, Mockito.times(1)).findCustomerDTOById(1L);
+    }
+
+    @Test
+    public void shouldEvictCacheOnUnversionedUpdate(){
+//        Arrange
+        Mockito.when(customerRepository.findCustomerDTOById(1L)).thenReturn(Optional.of(customerDTO));
+        Mockito.when(customerRepository.updateCustomer(1L, "Jawadd", "ABID", "jawad@abid.com")).thenReturn(1);
+        underTest.getCustomerById(1L);
+
+//        Act
+        underTest.upDateCustomer(1L, CustomerDTO.builder().firstName("Jawadd").lastName("ABID").email("jawad@abid.com").build());
+
+//        Assert
+        AssertionsForClassTypes.assertThat(nativeCache().getIfPresent(1L)).isNull();
+    }
+
+    @Test
+    public void shouldEvictCacheOnDelete(){
+//        Arrange
+        Mockito.when(customerRepository.findCustomerDTOById(1L)).thenReturn(Optional.of(customerDTO));
+        Mockito.when(customerRepository.deleteCustomerById(1L)).thenReturn(1);
+        underTest.getCustomerById(1L);
+
+//        Act
+        underTest.deleteCustomer(1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(nativeCache().getIfPresent(1L)).isNull();
+    }
+
+    @Test
+    public void shouldCacheNewlySavedCustomer(){
+//        Arrange
+        Mockito.when(customerRepository.saveAndFlush(Mockito.any())).thenReturn(customer);
+
+//        Act
+        underTest.saveNewCustomer(CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build());
+        underTest.getCustomerById(1L);
+
+//        Assert
+        Mockito.verify(customerRepository, Mockito.never()).findCustomerDTOById(1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache() {
+        TransactionAwareCacheDecorator cache = (TransactionAwareCacheDecorator) cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE);
+        // the near tier
+        return (Cache<Object, Object>) cache.getTargetCache().getNativeCache();
+    }
+
+    @Test
+    public void shouldRefreshCacheOnBatchUpdate(){
+//        Arrange
+        Customer managed = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+        Mockito.when(customerRepository.findCustomerDTOById(1L)).thenReturn(Optional.of(customerDTO));
+        Mockito.when(customerRepository.findAllByIdForUpdate(Mockito.any())).thenReturn(List.of(managed));
+        underTest.getCustomerById(1L);
+
+//        Act
+        underTest.upDateCustomers(List.of(CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").build()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(underTest.getCustomerById(1L).getFirstName()).isEqualTo("Jawadd");
+    }
+}
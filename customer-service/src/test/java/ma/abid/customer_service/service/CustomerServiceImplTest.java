@@ -1,21 +1,46 @@
 package ma.abid.customer_service.service;
 
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
 import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
 import ma.abid.customer_service.entities.Customer;
+import ma.abid.customer_service.exception.BatchSizeExceededException;
 import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
 import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
 import ma.abid.customer_service.mapper.CustomerMapper;
+import ma.abid.customer_service.event.CustomerChangedEvent;
 import ma.abid.customer_service.repository.CustomerRepository;
+import ma.abid.customer_service.search.CustomerSearchIndex;
 import org.assertj.core.api.AssertionsForClassTypes;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,6 +50,16 @@ class CustomerServiceImplTest {
     CustomerMapper customerMapper;
     @Mock
     CustomerRepository customerRepository;
+    @Mock
+    CustomerSearchIndex customerSearchIndex;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+    @Mock
+    CacheManager cacheManager;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Spy
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
 
     @InjectMocks
     CustomerServiceImpl underTest;
@@ -36,9 +71,8 @@ class CustomerServiceImplTest {
         Customer customer = Customer.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
         Customer savedCustomer = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
         CustomerDTO expected = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
-        Mockito.when(customerRepository.findByEmail(customerDTO.getEmail())).thenReturn(Optional.empty());
         Mockito.when(customerMapper.fromCustomerDTO(customerDTO)).thenReturn(customer);
-        Mockito.when(customerRepository.save(customer)).thenReturn(savedCustomer);
+        Mockito.when(customerRepository.saveAndFlush(customer)).thenReturn(savedCustomer);
         Mockito.when(customerMapper.fromCustomer(savedCustomer)).thenReturn(expected);
 
 //        Act
@@ -47,6 +81,9 @@ class CustomerServiceImplTest {
 //        Assert
         AssertionsForClassTypes.assertThat(result).isNotNull();
         AssertionsForClassTypes.assertThat(expected).usingRecursiveComparison().isEqualTo(result);
+        Mockito.verify(eventPublisher).publishEvent(Mockito.argThat((CustomerChangedEvent e) ->
+                e.getType() == CustomerChangedEvent.Type.CREATED && e.getCustomer() == expected));
+        Mockito.verify(customerRepository, Mockito.never()).findByEmail(Mockito.any());
     }
 
     @Test
@@ -54,11 +91,44 @@ class CustomerServiceImplTest {
 //        Arrange
         CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("xxx@abid.com").build();
         Customer customer = Customer.builder().firstName("Jawad").lastName("ABID").email("xxx@abid.com").build();
-        Mockito.when(customerRepository.findByEmail(customerDTO.getEmail())).thenReturn(Optional.of(customer));
+        Mockito.when(customerMapper.fromCustomerDTO(customerDTO)).thenReturn(customer);
+        Mockito.when(customerRepository.saveAndFlush(customer)).thenThrow(emailViolation());
 
 //        Assert
         AssertionsForClassTypes.assertThatThrownBy(()->underTest.saveNewCustomer(customerDTO)).isInstanceOf(EmailAlreadyExistException.class)
                 .hasMessage("Email already exists: "+customerDTO.getEmail());
+        Mockito.verify(eventPublisher, Mockito.never()).publishEvent(Mockito.any());
+    }
+
+    @Test
+    public void shouldPropagateOtherIntegrityViolations(){
+//        Arrange
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("xxx@abid.com").build();
+        Customer customer = Customer.builder().firstName("Jawad").lastName("ABID").email("xxx@abid.com").build();
+        DataIntegrityViolationException other = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException("not null"), "first_name"));
+        Mockito.when(customerMapper.fromCustomerDTO(customerDTO)).thenReturn(customer);
+        Mockito.when(customerRepository.saveAndFlush(customer)).thenThrow(other);
+
+//        Assert
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.saveNewCustomer(customerDTO)).isSameAs(other);
+    }
+
+    @Test
+    public void shouldNotUpdateCustomerToTakenEmail(){
+//        Arrange
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("kamal@abid.com").build();
+        Mockito.when(customerRepository.updateCustomer(1L, "Jawad", "ABID", "kamal@abid.com")).thenThrow(emailViolation());
+
+//        Assert
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.upDateCustomer(1L, customerDTO)).isInstanceOf(EmailAlreadyExistException.class)
+                .hasMessage("Email already exists: kamal@abid.com");
+    }
+
+    private static DataIntegrityViolationException emailViolation() {
+        // H2 and PostgreSQL report the constraint name with different casing and decoration
+        return new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException("duplicate"), "PUBLIC.UK_CUSTOMER_EMAIL_INDEX_5"));
     }
 
     @Test
@@ -68,29 +138,79 @@ class CustomerServiceImplTest {
                 CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build(),
                 CustomerDTO.builder().firstName("Kamal").lastName("ABID").email("kamal@abid.com").build()
         );
-        List<Customer> customersList = List.of(
-                Customer.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build(),
-                Customer.builder().firstName("Kamal").lastName("ABID").email("kamal@abid.com").build()
-        );
-        Mockito.when(customerRepository.findAll()).thenReturn(customersList);
-        Mockito.when(customerMapper.customerDTOList(customersList)).thenReturn(expected);
+        Mockito.when(customerRepository.findAllCustomerDTOs()).thenReturn(expected);
 
 //        Act
         List<CustomerDTO> result = underTest.getAllCustomers();
 
 //        Assert
-        AssertionsForClassTypes.assertThat(result).isNotNull();
-        AssertionsForClassTypes.assertThat(customersList).usingRecursiveComparison().isEqualTo(result);
+        AssertionsForClassTypes.assertThat(result).isEqualTo(expected);
+        Mockito.verifyNoInteractions(customerMapper);
+    }
+
+    @Test
+    public void shouldGetFirstCustomersPageWithNextCursor(){
+//        Arrange
+        List<CustomerDTO> customersList = List.of(
+                CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build(),
+                CustomerDTO.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").build(),
+                CustomerDTO.builder().id(3L).firstName("Bilal").lastName("ABID").email("bilal@abid.com").build()
+        );
+        List<CustomerDTO> expected = customersList.subList(0, 2);
+        Mockito.when(customerRepository.findCustomerDTOsAfter(0L, Limit.of(3))).thenReturn(customersList);
+
+//        Act
+        CustomerPageDTO result = underTest.getCustomersPage(null, 2);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.getSize()).isEqualTo(2);
+        AssertionsForClassTypes.assertThat(result.getContent()).isEqualTo(expected);
+        AssertionsForClassTypes.assertThat(CustomerServiceImpl.decodeCursor(result.getNextCursor())).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldGetLastCustomersPageWithoutNextCursor(){
+//        Arrange
+        String cursor = CustomerServiceImpl.encodeCursor(2L);
+        List<CustomerDTO> customersList = List.of(
+                CustomerDTO.builder().id(3L).firstName("Bilal").lastName("ABID").email("bilal@abid.com").build()
+        );
+        Mockito.when(customerRepository.findCustomerDTOsAfter(2L, Limit.of(3))).thenReturn(customersList);
+
+//        Act
+        CustomerPageDTO result = underTest.getCustomersPage(cursor, 2);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.getSize()).isEqualTo(1);
+        AssertionsForClassTypes.assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void shouldNotGetCustomersPageWithInvalidCursor(){
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.getCustomersPage("not-a-cursor", 10)).isInstanceOf(InvalidCursorException.class)
+                .hasMessage("Invalid cursor: not-a-cursor");
+    }
+
+    @Test
+    public void shouldStreamAllCustomers(){
+//        Arrange
+        CustomerDTO expected = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        Mockito.when(customerRepository.streamAllCustomerDTOs()).thenReturn(Stream.of(expected));
+        List<CustomerDTO> result = new ArrayList<>();
+
+//        Act
+        underTest.streamAllCustomers(result::add);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isEqualTo(List.of(expected));
     }
 
     @Test
     public void shouldGetCustomerById(){
 //        Arrange
         Long id = 1L;
-        Customer customer = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
         CustomerDTO expected = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
-        Mockito.when(customerRepository.findById(id)).thenReturn(Optional.of(customer));
-        Mockito.when(customerMapper.fromCustomer(customer)).thenReturn(expected);
+        Mockito.when(customerRepository.findCustomerDTOById(id)).thenReturn(Optional.of(expected));
 
 //        Act
         CustomerDTO result = underTest.getCustomerById(id);
@@ -105,7 +225,7 @@ class CustomerServiceImplTest {
     public void shouldNotGetCustomerById(){
 //        Arrange
         Long id = 8L;
-        Mockito.when(customerRepository.findById(id)).thenReturn(Optional.empty());
+        Mockito.when(customerRepository.findCustomerDTOById(id)).thenReturn(Optional.empty());
 
         AssertionsForClassTypes.assertThatThrownBy(()->underTest.getCustomerById(id)).isInstanceOf(CustomerNotFoundException.class)
                 .hasMessage("This Customer not found");
@@ -116,20 +236,35 @@ class CustomerServiceImplTest {
     public void shouldSearchCustomerByKeyWord(){
 //        Arrange
         String keyword = "jaw";
-        List<Customer> customerList = List.of(
-                Customer.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build()
-        );
+        CustomerDTO first = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        CustomerDTO second = CustomerDTO.builder().id(2L).firstName("Jawadd").lastName("ABID").email("jawadd@abid.com").build();
+        Mockito.when(customerSearchIndex.isReady()).thenReturn(true);
+        Mockito.when(customerSearchIndex.search(keyword, 10)).thenReturn(List.of(1L, 2L));
+        // the database returns the rows in its own order; the ranking must survive
+        Mockito.when(customerRepository.findCustomerDTOsByIdIn(List.of(1L, 2L))).thenReturn(List.of(second, first));
+
+//        Act
+        List<CustomerDTO> result = underTest.searchCustomers(keyword, 10);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isNotNull();
+        AssertionsForClassTypes.assertThat(result).isEqualTo(List.of(first, second));
+    }
+
+    @Test
+    public void shouldSearchCustomerByKeyWordInDatabaseUntilIndexIsReady(){
+//        Arrange
+        String keyword = "jaw";
         List<CustomerDTO> expected = List.of(
                 CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build()
         );
-        Mockito.when(customerRepository.findByFirstNameContainsIgnoreCase(keyword)).thenReturn(customerList);
-        Mockito.when(customerMapper.customerDTOList(customerList)).thenReturn(expected);
+        Mockito.when(customerSearchIndex.isReady()).thenReturn(false);
+        Mockito.when(customerRepository.searchByKeyword(keyword, PageRequest.of(0, CustomerServiceImpl.MAX_SEARCH_RESULTS))).thenReturn(expected);
 
 //        Act
-        List<CustomerDTO> result = underTest.searchCustomers(keyword);
+        List<CustomerDTO> result = underTest.searchCustomers(keyword, 5000);
 
 //        Assert
-        AssertionsForClassTypes.assertThat(result).isNotNull();
         AssertionsForClassTypes.assertThat(expected).usingRecursiveComparison().isEqualTo(result);
     }
 
@@ -138,13 +273,9 @@ class CustomerServiceImplTest {
 //        Arrange
         Long id = 1L;
         CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawadd").lastName("ABID").email("jawad@abid.com").build();
-        Customer customer = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
-        Customer updatedCustomer = Customer.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").build();
-        CustomerDTO expected = CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").build();
-        Mockito.when(customerRepository.findById(id)).thenReturn(Optional.of(customer));
-        Mockito.when(customerMapper.fromCustomerDTO(customerDTO)).thenReturn(updatedCustomer);
-        Mockito.when(customerRepository.save(updatedCustomer)).thenReturn(updatedCustomer);
-        Mockito.when(customerMapper.fromCustomer(updatedCustomer)).thenReturn(expected);
+        CustomerDTO expected = CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(5L).build();
+        Mockito.when(customerRepository.updateCustomer(id, "Jawadd", "ABID", "jawad@abid.com")).thenReturn(1);
+        Mockito.when(customerRepository.findVersionById(id)).thenReturn(Optional.of(5L));
 
 //        Act
         CustomerDTO result = underTest.upDateCustomer(id, customerDTO);
@@ -152,6 +283,22 @@ class CustomerServiceImplTest {
 //        Assert
         AssertionsForClassTypes.assertThat(result).isNotNull();
         AssertionsForClassTypes.assertThat(expected).usingRecursiveComparison().isEqualTo(result);
+        Mockito.verify(customerRepository, Mockito.never()).findById(id);
+        Mockito.verify(customerRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void shouldUpdateCustomerAtExpectedVersion(){
+//        Arrange
+        Long id = 1L;
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(3L).build();
+        Mockito.when(customerRepository.updateCustomerIfVersion(id, 3L, "Jawadd", "ABID", "jawad@abid.com")).thenReturn(1);
+
+//        Act
+        CustomerDTO result = underTest.upDateCustomer(id, customerDTO);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.getVersion()).isEqualTo(4L);
     }
 
     @Test
@@ -159,33 +306,329 @@ class CustomerServiceImplTest {
 //        Arrange
         CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
         Long id = 9L;
-        Mockito.when(customerRepository.findById(id)).thenReturn(Optional.empty());
+        Mockito.when(customerRepository.updateCustomer(id, "Jawad", "ABID", "jawad@abid.com")).thenReturn(0);
 
 //        Assertion
         AssertionsForClassTypes.assertThatThrownBy(()->underTest.upDateCustomer(id, customerDTO)).isInstanceOf(CustomerNotFoundException.class)
                 .hasMessage("This Customer not found");
+        Mockito.verify(eventPublisher, Mockito.never()).publishEvent(Mockito.any());
+    }
+
+    @Test
+    public void shouldNotUpdateCustomerAtStaleVersion(){
+//        Arrange
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(1L).build();
+        Long id = 1L;
+        Mockito.when(customerRepository.updateCustomerIfVersion(id, 1L, "Jawad", "ABID", "jawad@abid.com")).thenReturn(0);
+        Mockito.when(customerRepository.existsById(id)).thenReturn(true);
+
+//        Assertion
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.upDateCustomer(id, customerDTO)).isInstanceOf(CustomerVersionConflictException.class)
+                .hasMessage("This Customer was modified concurrently");
     }
 
     @Test
     public void shouldDeleteCustomer(){
 //        Arrange
         Long id = 1L;
-        Customer customer = Customer.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
-        Mockito.when(customerRepository.findById(id)).thenReturn(Optional.of(customer));
+        Mockito.when(customerRepository.deleteCustomerById(id)).thenReturn(1);
 
 //        Act
         underTest.deleteCustomer(id);
-        Mockito.verify(customerRepository).deleteById(id);
+        Mockito.verify(customerRepository, Mockito.never()).findById(id);
+        Mockito.verify(eventPublisher).publishEvent(Mockito.argThat((CustomerChangedEvent e) ->
+                e.getType() == CustomerChangedEvent.Type.DELETED && e.getCustomerId().equals(id)));
 
     }
 
     @Test
     public void shouldNotDeleteCustomerNotExist(){
         Long id = 9L;
-        Mockito.when(customerRepository.findById(id)).thenReturn(Optional.empty());
+        Mockito.when(customerRepository.deleteCustomerById(id)).thenReturn(0);
 
         AssertionsForClassTypes.assertThatThrownBy(()->underTest.deleteCustomer(id)).isInstanceOf(CustomerNotFoundException.class)
                 .hasMessage("This Customer not found");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldSaveCustomersBatchWithPerItemResults(){
+//        Arrange
+        List<CustomerDTO> customerDTOs = List.of(
+                CustomerDTO.builder().firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build(),
+                CustomerDTO.builder().firstName("J").lastName("ABID").email("j@abid.com").build(),
+                CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build(),
+                CustomerDTO.builder().firstName("Mohamed").lastName("Again").email("mohamed@abid.com").build()
+        );
+        Customer toSave = Customer.builder().firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build();
+        Customer saved = Customer.builder().id(10L).firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build();
+        CustomerDTO savedDTO = CustomerDTO.builder().id(10L).firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build();
+        Mockito.when(customerRepository.findExistingEmails(Set.of("mohamed@abid.com", "jawad@abid.com"))).thenReturn(List.of("jawad@abid.com"));
+        Mockito.when(customerMapper.fromCustomerDTO(customerDTOs.get(0))).thenReturn(toSave);
+        Mockito.when(customerRepository.saveAllAndFlush(List.of(toSave))).thenReturn(List.of(saved));
+        Mockito.when(customerMapper.fromCustomer(saved)).thenReturn(savedDTO);
+
+//        Act
+        List<BatchItemResultDTO> result = underTest.saveNewCustomers(customerDTOs);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.stream().map(BatchItemResultDTO::getStatus).toList()).isEqualTo(List.of(
+                BatchItemResultDTO.Status.CREATED, BatchItemResultDTO.Status.INVALID,
+                BatchItemResultDTO.Status.CONFLICT, BatchItemResultDTO.Status.CONFLICT));
+        AssertionsForClassTypes.assertThat(result.get(0).getId()).isEqualTo(10L);
+        AssertionsForClassTypes.assertThat(result.get(1).getMessage()).contains("firstName");
+        AssertionsForClassTypes.assertThat(result.get(2).getMessage()).isEqualTo("Email already exists: jawad@abid.com");
+        Mockito.verify(customerRepository, Mockito.never()).findByEmail(Mockito.any());
+    }
+
+    @Test
+    public void shouldReportConflictForEmailTakenConcurrentlyInBatchSave(){
+//        Arrange
+        List<CustomerDTO> customerDTOs = List.of(
+                CustomerDTO.builder().firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build(),
+                CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build()
+        );
+        Customer mohamed = Customer.builder().firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build();
+        Customer jawad = Customer.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        Customer saved = Customer.builder().id(10L).firstName("Mohamed").lastName("ABID").email("mohamed@abid.com").build();
+        Mockito.when(customerRepository.findExistingEmails(Set.of("mohamed@abid.com", "jawad@abid.com")))
+                .thenReturn(List.of()).thenReturn(List.of("jawad@abid.com"));
+        Mockito.when(customerMapper.fromCustomerDTO(customerDTOs.get(0))).thenReturn(mohamed);
+        Mockito.when(customerMapper.fromCustomerDTO(customerDTOs.get(1))).thenReturn(jawad);
+        Mockito.when(customerRepository.saveAllAndFlush(List.of(mohamed, jawad))).thenThrow(emailViolation());
+        Mockito.when(customerRepository.saveAllAndFlush(List.of(mohamed))).thenReturn(List.of(saved));
+        Mockito.when(customerMapper.fromCustomer(saved)).thenReturn(CustomerDTO.builder().id(10L).build());
+
+//        Act
+        List<BatchItemResultDTO> result = underTest.saveNewCustomers(customerDTOs);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.stream().map(BatchItemResultDTO::getStatus).toList()).isEqualTo(List.of(
+                BatchItemResultDTO.Status.CREATED, BatchItemResultDTO.Status.CONFLICT));
+        AssertionsForClassTypes.assertThat(result.get(1).getMessage()).isEqualTo("Email already exists: jawad@abid.com");
+        Mockito.verify(eventPublisher, Mockito.times(1)).publishEvent(Mockito.any(CustomerChangedEvent.class));
+    }
+
+    @Test
+    public void shouldReportConflictForEmailTakenConcurrentlyInBatchUpdate(){
+//        Arrange
+        Customer jawad = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build();
+        Customer kamal = Customer.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").version(0L).build();
+        Mockito.when(customerRepository.findAllByIdForUpdate(Set.of(1L, 2L)))
+                .thenReturn(List.of(
+                        Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(0L).build(),
+                        Customer.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").version(0L).build()))
+                .thenReturn(List.of(jawad, kamal));
+        Mockito.when(customerRepository.findExistingEmails(Set.of("taken@abid.com")))
+                .thenReturn(List.of()).thenReturn(List.of("taken@abid.com"));
+        Mockito.doThrow(emailViolation()).doNothing().when(customerRepository).flush();
+        Mockito.when(customerMapper.fromCustomer(kamal)).thenReturn(CustomerDTO.builder().id(2L).build());
+
+//        Act
+        List<BatchItemResultDTO> result = underTest.upDateCustomers(List.of(
+                CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("taken@abid.com").build(),
+                CustomerDTO.builder().id(2L).firstName("Kamall").lastName("ABID").email("kamal@abid.com").build()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.stream().map(BatchItemResultDTO::getStatus).toList()).isEqualTo(List.of(
+                BatchItemResultDTO.Status.CONFLICT, BatchItemResultDTO.Status.UPDATED));
+        AssertionsForClassTypes.assertThat(jawad.getEmail()).isEqualTo("jawad@abid.com");
+        AssertionsForClassTypes.assertThat(kamal.getFirstName()).isEqualTo("Kamall");
+    }
+
+    @Test
+    public void shouldGiveUpOnABatchThatKeepsLosingEmailsToConcurrentWrites(){
+//        Arrange
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        Customer jawad = Customer.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        Mockito.when(customerMapper.fromCustomerDTO(customerDTO)).thenReturn(jawad);
+        Mockito.when(customerRepository.saveAllAndFlush(List.of(jawad))).thenThrow(emailViolation());
+
+//        Act & Assert
+        AssertionsForClassTypes.assertThatThrownBy(() -> underTest.saveNewCustomers(List.of(customerDTO)))
+                .isInstanceOf(EmailAlreadyExistException.class);
+        Mockito.verify(customerRepository, Mockito.times(CustomerServiceImpl.MAX_BATCH_ATTEMPTS)).saveAllAndFlush(Mockito.any());
+    }
+
+    @Test
+    public void shouldUpdateCustomersBatchWithPerItemResults(){
+//        Arrange
+        List<CustomerDTO> customerDTOs = List.of(
+                CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").build(),
+                CustomerDTO.builder().id(9L).firstName("Nobody").lastName("ABID").email("nobody@abid.com").build(),
+                CustomerDTO.builder().firstName("NoId").lastName("ABID").email("noid@abid.com").build()
+        );
+        Customer managed = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        CustomerDTO updatedDTO = CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").build();
+        Mockito.when(customerRepository.findAllByIdForUpdate(Set.of(1L, 9L))).thenReturn(List.of(managed));
+        Mockito.when(customerMapper.fromCustomer(managed)).thenReturn(updatedDTO);
+
+//        Act
+        List<BatchItemResultDTO> result = underTest.upDateCustomers(customerDTOs);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.stream().map(BatchItemResultDTO::getStatus).toList()).isEqualTo(List.of(
+                BatchItemResultDTO.Status.UPDATED, BatchItemResultDTO.Status.NOT_FOUND, BatchItemResultDTO.Status.INVALID));
+        AssertionsForClassTypes.assertThat(managed.getFirstName()).isEqualTo("Jawadd");
+        AssertionsForClassTypes.assertThat(result.get(1).getId()).isEqualTo(9L);
+        Mockito.verify(customerRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(customerRepository).flush();
+    }
+
+    @Test
+    public void shouldReportConflictForStaleVersionInBatchUpdate(){
+//        Arrange
+        Customer managed = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+        Mockito.when(customerRepository.findAllByIdForUpdate(Set.of(1L))).thenReturn(List.of(managed));
+
+//        Act
+        List<BatchItemResultDTO> result = underTest.upDateCustomers(List.of(
+                CustomerDTO.builder().id(1L).firstName("Jawadd").lastName("ABID").email("jawad@abid.com").version(1L).build()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.get(0).getStatus()).isEqualTo(BatchItemResultDTO.Status.CONFLICT);
+        AssertionsForClassTypes.assertThat(managed.getFirstName()).isEqualTo("Jawad");
+    }
+
+    @Test
+    public void shouldReportConflictForTakenEmailsInBatchUpdate(){
+//        Arrange
+        Customer jawad = Customer.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+        Customer kamal = Customer.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").version(0L).build();
+        Customer bilal = Customer.builder().id(3L).firstName("Bilal").lastName("ABID").email("bilal@abid.com").version(0L).build();
+        Mockito.when(customerRepository.findAllByIdForUpdate(Set.of(1L, 2L, 3L))).thenReturn(List.of(jawad, kamal, bilal));
+        Mockito.when(customerRepository.findExistingEmails(Set.of("kamal@abid.com", "new@abid.com"))).thenReturn(List.of("kamal@abid.com"));
+        Mockito.when(customerMapper.fromCustomer(jawad)).thenReturn(CustomerDTO.builder().id(1L).build());
+        Mockito.when(customerMapper.fromCustomer(kamal)).thenReturn(CustomerDTO.builder().id(2L).build());
+
+//        Act
+        List<BatchItemResultDTO> result = underTest.upDateCustomers(List.of(
+                CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build(),
+                CustomerDTO.builder().id(3L).firstName("Bilal").lastName("ABID").email("kamal@abid.com").build(),
+                CustomerDTO.builder().id(2L).firstName("Kamal").lastName("ABID").email("new@abid.com").build(),
+                CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("new@abid.com").build()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.stream().map(BatchItemResultDTO::getStatus).toList()).isEqualTo(List.of(
+                BatchItemResultDTO.Status.UPDATED, BatchItemResultDTO.Status.CONFLICT, BatchItemResultDTO.Status.UPDATED, BatchItemResultDTO.Status.INVALID));
+        AssertionsForClassTypes.assertThat(result.get(1).getMessage()).isEqualTo("Email already exists: kamal@abid.com");
+        AssertionsForClassTypes.assertThat(bilal.getEmail()).isEqualTo("bilal@abid.com");
+        AssertionsForClassTypes.assertThat(kamal.getEmail()).isEqualTo("new@abid.com");
+    }
+
+    @Test
+    public void shouldDeleteCustomersBatchInOneStatement(){
+//        Arrange
+        Mockito.when(customerRepository.findExistingIds(Set.of(1L, 9L))).thenReturn(List.of(1L));
+
+//        Act
+        List<BatchItemResultDTO> result = underTest.deleteCustomers(List.of(1L, 9L));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result.stream().map(BatchItemResultDTO::getStatus).toList()).isEqualTo(List.of(
+                BatchItemResultDTO.Status.DELETED, BatchItemResultDTO.Status.NOT_FOUND));
+        Mockito.verify(customerRepository).deleteAllByIdInBatch(Set.of(1L));
+        Mockito.verify(eventPublisher).publishEvent(Mockito.argThat((CustomerChangedEvent e) ->
+                e.getType() == CustomerChangedEvent.Type.DELETED && e.getCustomerId().equals(1L)));
+    }
+
+    @Test
+    public void shouldRejectOversizedBatch(){
+        List<Long> ids = Collections.nCopies(CustomerServiceImpl.MAX_BATCH_SIZE + 1, 1L);
+
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.deleteCustomers(ids)).isInstanceOf(BatchSizeExceededException.class);
+    }
+
+    @Test
+    public void shouldAnswerVersionFromCache(){
+//        Arrange
+        ConcurrentMapCache customersCache = new ConcurrentMapCache("customers");
+        customersCache.put(1L, CustomerDTO.builder().id(1L).version(4L).build());
+        Mockito.when(cacheManager.getCache("customers")).thenReturn(customersCache);
+
+//        Act
+        Long result = underTest.getCustomerVersion(1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isEqualTo(4L);
+        Mockito.verifyNoInteractions(customerRepository);
+    }
+
+    @Test
+    public void shouldLookUpVersionOnCacheMiss(){
+//        Arrange
+        Mockito.when(cacheManager.getCache("customers")).thenReturn(new ConcurrentMapCache("customers"));
+        Mockito.when(customerRepository.findVersionById(1L)).thenReturn(Optional.of(2L));
+        Mockito.when(customerRepository.findVersionById(9L)).thenReturn(Optional.empty());
+
+//        Act
+        Long result = underTest.getCustomerVersion(1L);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(result).isEqualTo(2L);
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.getCustomerVersion(9L)).isInstanceOf(CustomerNotFoundException.class);
+        Mockito.verify(customerRepository, Mockito.never()).findById(Mockito.any());
+    }
+
+    @Test
+    public void shouldLookUpCustomersInChunks(){
+//        Arrange
+        ConcurrentMapCache customersCache = new ConcurrentMapCache("customers");
+        customersCache.put(1L, CustomerDTO.builder().id(1L).firstName("Cached").build());
+        Mockito.when(cacheManager.getCache("customers")).thenReturn(customersCache);
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 997; id++) ids.add(id);
+        ids.add(2L);
+        List<Integer> chunkSizes = new ArrayList<>();
+        // every id exists except 997
+        Mockito.when(customerRepository.findCustomerDTOsByIdIn(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            return chunk.stream().filter(id -> id != 997L).map(id -> CustomerDTO.builder().id(id).build()).toList();
+        });
+        Mockito.when(customerRepository.findCustomerDTOsByEmailIn(List.of("jawad@abid.com", "nobody@abid.com")))
+                .thenReturn(List.of(CustomerDTO.builder().id(5L).email("jawad@abid.com").build()));
+
+//        Act
+        CustomerLookupDTO result = underTest.lookupCustomers(ids, List.of("jawad@abid.com", "nobody@abid.com"));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(chunkSizes).isEqualTo(List.of(500, 496));
+        AssertionsForClassTypes.assertThat(result.getIds().size()).isEqualTo(997);
+        AssertionsForClassTypes.assertThat(result.getIds().get(1L).getFirstName()).isEqualTo("Cached");
+        AssertionsForClassTypes.assertThat(result.getIds().get(997L)).isNull();
+        AssertionsForClassTypes.assertThat(result.getIds().containsKey(997L)).isTrue();
+        AssertionsForClassTypes.assertThat(result.getEmails().get("jawad@abid.com").getId()).isEqualTo(5L);
+        AssertionsForClassTypes.assertThat(result.getEmails().containsKey("nobody@abid.com")).isTrue();
+        AssertionsForClassTypes.assertThat(result.getEmails().get("nobody@abid.com")).isNull();
+    }
+
+    @Test
+    public void shouldNotLookUpMoreThanMaxBatchSize(){
+        List<Long> ids = Collections.nCopies(CustomerServiceImpl.MAX_BATCH_SIZE, 1L);
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.lookupCustomers(ids, List.of("jawad@abid.com")))
+                .isInstanceOf(BatchSizeExceededException.class);
+        Mockito.verifyNoInteractions(customerRepository);
+    }
+
+    @Test
+    public void shouldGetCustomerByEmailIgnoringCase(){
+//        Arrange
+        CustomerDTO lowerCase = CustomerDTO.builder().id(1L).email("jawad@abid.com").build();
+        CustomerDTO mixedCase = CustomerDTO.builder().id(2L).email("Jawad@Abid.com").build();
+        Mockito.when(customerRepository.findCustomerDTOsByLowerEmail("jawad@abid.com")).thenReturn(List.of(lowerCase, mixedCase));
+
+//        Act
+        CustomerDTO exact = underTest.getCustomerByEmail(" Jawad@Abid.com ");
+        CustomerDTO other = underTest.getCustomerByEmail("JAWAD@ABID.COM");
+
+//        Assert
+        AssertionsForClassTypes.assertThat(exact).isEqualTo(mixedCase);
+        AssertionsForClassTypes.assertThat(other).isEqualTo(lowerCase);
+    }
+
+    @Test
+    public void shouldNotGetCustomerByUnknownEmail(){
+        Mockito.when(customerRepository.findCustomerDTOsByLowerEmail("nobody@abid.com")).thenReturn(List.of());
+        AssertionsForClassTypes.assertThatThrownBy(()->underTest.getCustomerByEmail("nobody@abid.com")).isInstanceOf(CustomerNotFoundException.class);
+    }
+}
@@ -0,0 +1,260 @@
+package ma.abid.customer_service.service;
+
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.exception.ChangesUnavailableException;
+import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.outbox.CustomerChangeFeed;
+import ma.abid.customer_service.sharding.CustomerEmailDirectory;
+import ma.abid.customer_service.sharding.CustomerEmailDirectoryReaper;
+import ma.abid.customer_service.sharding.CustomerShards;
+import ma.abid.customer_service.sharding.ShardRoutingDataSource;
+import ma.abid.customer_service.sharding.SnowflakeIdGenerator;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The sharded store end to end, over three in-memory H2 databases.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:sharded-customer-shard-0",
+        "customer.sharding.enabled=true",
+        "customer.id.worker-id=0",
+        "customer.sharding.urls=jdbc:h2:mem:sharded-customer-shard-1,jdbc:h2:mem:sharded-customer-shard-2",
+        "customer.grpc.enabled=false",
+        "customer.outbox.poll-interval=1h"})
+@ActiveProfiles("test")
+class ShardedCustomerServiceTest {
+    @Autowired
+    CustomerService underTest;
+    @Autowired
+    CustomerShards customerShards;
+    @Autowired
+    ShardRoutingDataSource dataSource;
+    @Autowired
+    CustomerChangeFeed customerChangeFeed;
+    @Autowired
+    CustomerEmailDirectory customerEmailDirectory;
+    @Autowired
+    CustomerEmailDirectoryReaper customerEmailDirectoryReaper;
+
+    @BeforeEach
+    void setUp() {
+        for (DataSource shard : dataSource.getShards()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+            jdbcTemplate.update("delete from customer_email_index");
+            jdbcTemplate.update("delete from customer_outbox");
+            jdbcTemplate.update("delete from customer");
+        }
+    }
+
+    @Test
+    public void shouldSpreadCustomersOverShardsAndFindThemById() {
+//        Act
+        List<CustomerDTO> customers = createCustomers("spread", 30);
+
+//        Assert
+        Set<Integer> usedShards = new HashSet<>();
+        for (CustomerDTO customer : customers) {
+            int shard = customerShards.shardOf(customer.getId());
+            usedShards.add(shard);
+            AssertionsForClassTypes.assertThat(shard).isEqualTo(customerShards.shardFor(customer.getEmail()));
+            AssertionsForClassTypes.assertThat(countOn(shard, customer.getId())).isEqualTo(1);
+            AssertionsForClassTypes.assertThat(underTest.getCustomerById(customer.getId()).getEmail()).isEqualTo(customer.getEmail());
+        }
+        AssertionsForClassTypes.assertThat(usedShards.size()).isEqualTo(3);
+        AssertionsForClassTypes.assertThatThrownBy(() -> underTest.getCustomerById(new SnowflakeIdGenerator(0).nextId(9)))
+                .isInstanceOf(CustomerNotFoundException.class);
+    }
+
+    @Test
+    public void shouldKeepEmailsUniqueAcrossShards() {
+//        Arrange
+        List<CustomerDTO> customers = createCustomers("unique", 10);
+        CustomerDTO first = customers.get(0);
+        CustomerDTO other = customers.stream()
+                .filter(customer -> customerShards.shardOf(customer.getId()) != customerShards.shardOf(first.getId()))
+                .findFirst().orElseThrow();
+        CustomerDTO takingFirstEmail = CustomerDTO.builder().firstName("Other").lastName("Customer").email(first.getEmail()).build();
+
+//        Act & Assert
+        AssertionsForClassTypes.assertThatThrownBy(() -> underTest.saveNewCustomer(takingFirstEmail)).isInstanceOf(EmailAlreadyExistException.class);
+        AssertionsForClassTypes.assertThatThrownBy(() -> underTest.upDateCustomer(other.getId(), takingFirstEmail)).isInstanceOf(EmailAlreadyExistException.class);
+        AssertionsForClassTypes.assertThat(underTest.getCustomerById(other.getId()).getEmail()).isEqualTo(other.getEmail());
+
+        underTest.upDateCustomer(first.getId(), CustomerDTO.builder().firstName("First").lastName("Renamed").email("renamed@abid.com").build());
+        CustomerDTO reused = underTest.saveNewCustomer(takingFirstEmail);
+        AssertionsForClassTypes.assertThat(reused.getEmail()).isEqualTo(first.getEmail());
+        AssertionsForClassTypes.assertThatThrownBy(() -> underTest.saveNewCustomer(CustomerDTO.builder().firstName("Third").lastName("Customer").email("renamed@abid.com").build()))
+                .isInstanceOf(EmailAlreadyExistException.class);
+
+        underTest.deleteCustomer(first.getId());
+        AssertionsForClassTypes.assertThat(underTest.saveNewCustomer(CustomerDTO.builder().firstName("Third").lastName("Customer").email("renamed@abid.com").build())
+                .getEmail()).isEqualTo("renamed@abid.com");
+    }
+
+    @Test
+    public void shouldMergeShardsInIdOrder() {
+//        Arrange
+        List<Long> ids = new ArrayList<>(createCustomers("merge", 25).stream().map(CustomerDTO::getId).toList());
+        ids.sort(null);
+
+//        Act
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CustomerPageDTO page = underTest.getCustomersPage(cursor, 7);
+            page.getContent().forEach(customer -> paged.add(customer.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        List<Long> streamed = new ArrayList<>();
+        underTest.streamAllCustomers(customer -> streamed.add(customer.getId()));
+        List<Long> streamedAfter = new ArrayList<>();
+        underTest.streamCustomersAfter(ids.get(9), customer -> streamedAfter.add(customer.getId()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(paged).isEqualTo(ids);
+        AssertionsForClassTypes.assertThat(streamed).isEqualTo(ids);
+        AssertionsForClassTypes.assertThat(streamedAfter).isEqualTo(ids.subList(10, ids.size()));
+        AssertionsForClassTypes.assertThat(underTest.getAllCustomers().stream().map(CustomerDTO::getId).toList()).isEqualTo(ids);
+    }
+
+    @Test
+    public void shouldLookUpCustomersOnTheirShards() {
+//        Arrange
+        List<CustomerDTO> customers = createCustomers("lookup", 6);
+        long unknownId = new SnowflakeIdGenerator(0).nextId(1);
+
+//        Act
+        CustomerDTO byEmail = underTest.getCustomerByEmail(" " + customers.get(4).getEmail().toUpperCase() + " ");
+        CustomerLookupDTO lookup = underTest.lookupCustomers(
+                List.of(customers.get(0).getId(), unknownId, customers.get(1).getId()),
+                List.of(customers.get(2).getEmail(), "nobody@abid.com", customers.get(3).getEmail()));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(byEmail.getId()).isEqualTo(customers.get(4).getId());
+        AssertionsForClassTypes.assertThat(new ArrayList<>(lookup.getIds().keySet()))
+                .isEqualTo(List.of(customers.get(0).getId(), unknownId, customers.get(1).getId()));
+        AssertionsForClassTypes.assertThat(lookup.getIds().get(customers.get(1).getId()).getEmail()).isEqualTo(customers.get(1).getEmail());
+        AssertionsForClassTypes.assertThat(lookup.getIds().get(unknownId)).isNull();
+        AssertionsForClassTypes.assertThat(lookup.getEmails().get(customers.get(3).getEmail()).getId()).isEqualTo(customers.get(3).getId());
+        AssertionsForClassTypes.assertThat(lookup.getEmails().get("nobody@abid.com")).isNull();
+        AssertionsForClassTypes.assertThat(underTest.searchCustomers("lookup-customer-3", 10).get(0).getId()).isEqualTo(customers.get(3).getId());
+    }
+
+    @Test
+    public void shouldReportBatchResultsInRequestOrder() {
+//        Arrange
+        CustomerDTO existing = createCustomers("batch", 1).get(0);
+        List<CustomerDTO> toCreate = new ArrayList<>();
+        for (int i = 0; i < 6; i++) toCreate.add(customer("batch-new", i));
+        toCreate.add(customer("batch-new", 0));
+        toCreate.add(CustomerDTO.builder().firstName("Existing").lastName("Email").email(existing.getEmail()).build());
+
+//        Act
+        List<BatchItemResultDTO> created = underTest.saveNewCustomers(toCreate);
+        List<BatchItemResultDTO> updated = underTest.upDateCustomers(List.of(
+                CustomerDTO.builder().id(created.get(0).getId()).firstName("Updated").lastName("Customer").email("batch-updated@abid.com").build(),
+                CustomerDTO.builder().id(created.get(1).getId()).firstName("Updated").lastName("Customer").email(existing.getEmail()).build()));
+        List<BatchItemResultDTO> deleted = underTest.deleteCustomers(List.of(created.get(2).getId(), new SnowflakeIdGenerator(0).nextId(9), created.get(3).getId()));
+
+//        Assert
+        for (int i = 0; i < 6; i++) {
+            AssertionsForClassTypes.assertThat(created.get(i).getIndex()).isEqualTo(i);
+            AssertionsForClassTypes.assertThat(created.get(i).getStatus()).isEqualTo(BatchItemResultDTO.Status.CREATED);
+        }
+        AssertionsForClassTypes.assertThat(created.get(6).getStatus()).isEqualTo(BatchItemResultDTO.Status.CONFLICT);
+        AssertionsForClassTypes.assertThat(created.get(7).getStatus()).isEqualTo(BatchItemResultDTO.Status.CONFLICT);
+        AssertionsForClassTypes.assertThat(updated.get(0).getStatus()).isEqualTo(BatchItemResultDTO.Status.UPDATED);
+        AssertionsForClassTypes.assertThat(updated.get(1).getStatus()).isEqualTo(BatchItemResultDTO.Status.CONFLICT);
+        AssertionsForClassTypes.assertThat(deleted.stream().map(BatchItemResultDTO::getStatus).toList()).isEqualTo(List.of(
+                BatchItemResultDTO.Status.DELETED, BatchItemResultDTO.Status.NOT_FOUND, BatchItemResultDTO.Status.DELETED));
+        // the old email of the updated customer and the emails of the deleted ones are free again
+        AssertionsForClassTypes.assertThat(underTest.saveNewCustomers(List.of(customer("batch-new", 0), customer("batch-new", 2), customer("batch-new", 3)))
+                .stream().map(BatchItemResultDTO::getStatus).distinct().toList()).isEqualTo(List.of(BatchItemResultDTO.Status.CREATED));
+    }
+
+    @Test
+    public void shouldRepairClaimsLeftByACrash() {
+//        Arrange
+        List<CustomerDTO> customers = createCustomers("crash", 2);
+        JdbcTemplate directory = new JdbcTemplate(dataSource.getShards().get(0));
+        // a create that crashed before writing, one that crashed before attaching its id, and an email change
+        // that crashed before releasing the previous email
+        customerEmailDirectory.claim("never-written@abid.com", 1, null);
+        directory.update("update customer_email_index set customer_id = null where email = ?", customers.get(0).getEmail());
+        customerEmailDirectory.claim("previous@abid.com", customerShards.shardOf(customers.get(1).getId()), customers.get(1).getId());
+        directory.update("update customer_email_index set claimed_at = timestamp with time zone '2000-01-01 00:00:00+00'");
+        customerEmailDirectory.claim("in-flight@abid.com", 2, null);
+
+//        Act
+        int repaired = customerEmailDirectoryReaper.reap();
+
+//        Assert
+        AssertionsForClassTypes.assertThat(repaired).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(customerEmailDirectory.findShards(List.of("never-written@abid.com", "previous@abid.com")).isEmpty()).isTrue();
+        AssertionsForClassTypes.assertThat(directory.queryForObject("select customer_id from customer_email_index where email = ?", Long.class,
+                customers.get(0).getEmail())).isEqualTo(customers.get(0).getId());
+        AssertionsForClassTypes.assertThat(customerEmailDirectory.findShards(List.of("in-flight@abid.com")).get("in-flight@abid.com")).isEqualTo(2);
+        AssertionsForClassTypes.assertThat(customerEmailDirectoryReaper.reap()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRefuseTheChangeFeed() {
+        AssertionsForClassTypes.assertThatThrownBy(() -> customerChangeFeed.getChangesSince(0, 10))
+                .isInstanceOf(ChangesUnavailableException.class);
+    }
+
+    /** Searches answered by the shards' databases, as on PostgreSQL. */
+    @Nested
+    @TestPropertySource(properties = "customer.search.in-memory-index=false")
+    class WithoutSearchIndex {
+        @Test
+        public void shouldMergeShardSearchesByRank() {
+//            Arrange
+            List<CustomerDTO> emailOnly = createCustomers("rank", 6);
+            List<CustomerDTO> byFirstName = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                byFirstName.add(underTest.saveNewCustomer(CustomerDTO.builder().firstName("Rank").lastName("first-name-" + i).email("first" + i + "@abid.com").build()));
+            }
+
+//            Act
+            List<CustomerDTO> result = underTest.searchCustomers(" RANK ", 4);
+
+//            Assert
+            AssertionsForClassTypes.assertThat(result.stream().map(CustomerDTO::getId).toList()).isEqualTo(List.of(
+                    byFirstName.get(0).getId(), byFirstName.get(1).getId(), byFirstName.get(2).getId(),
+                    emailOnly.stream().map(CustomerDTO::getId).min(Long::compare).orElseThrow()));
+        }
+    }
+
+    private List<CustomerDTO> createCustomers(String prefix, int count) {
+        List<CustomerDTO> customers = new ArrayList<>();
+        for (int i = 0; i < count; i++) customers.add(underTest.saveNewCustomer(customer(prefix, i)));
+        return customers;
+    }
+
+    private static CustomerDTO customer(String prefix, int i) {
+        return CustomerDTO.builder().firstName("First" + i).lastName(prefix + "-customer-" + i).email(prefix + i + "@abid.com").build();
+    }
+
+    private int countOn(int shard, long id) {
+        return new JdbcTemplate(dataSource.getShards().get(shard)).queryForObject("select count(*) from customer where id = ?", Integer.class, id);
+    }
+}
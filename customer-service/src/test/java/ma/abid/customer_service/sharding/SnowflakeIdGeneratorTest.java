@@ -0,0 +1,90 @@
+package ma.abid.customer_service.sharding;
+
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    public void shouldGenerateIncreasingIdsCarryingTheirShard() {
+//        Arrange
+        SnowflakeIdGenerator underTest = new SnowflakeIdGenerator(3);
+
+//        Act
+        long first = underTest.nextId(0);
+        long second = underTest.nextId(5);
+        long third = underTest.nextId(63);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(second).isGreaterThan(first);
+        AssertionsForClassTypes.assertThat(third).isGreaterThan(second);
+        AssertionsForClassTypes.assertThat(SnowflakeIdGenerator.shardOf(first)).isEqualTo(0);
+        AssertionsForClassTypes.assertThat(SnowflakeIdGenerator.shardOf(second)).isEqualTo(5);
+        AssertionsForClassTypes.assertThat(SnowflakeIdGenerator.shardOf(third)).isEqualTo(63);
+    }
+
+    @Test
+    public void shouldBorrowFromTheNextMillisecondWhenTheSequenceRunsOutOrTheClockStops() {
+//        Arrange
+        Clock stoppedClock = Clock.fixed(Instant.parse("2026-06-01T00:00:00Z"), ZoneOffset.UTC);
+        SnowflakeIdGenerator underTest = new SnowflakeIdGenerator(0, stoppedClock);
+
+//        Act
+        Set<Long> ids = new HashSet<>();
+        long last = 0;
+        boolean increasing = true;
+        for (int i = 0; i < 5000; i++) {
+            long id = underTest.nextId(1);
+            increasing &= id > last;
+            last = id;
+            ids.add(id);
+        }
+
+//        Assert
+        AssertionsForClassTypes.assertThat(ids.size()).isEqualTo(5000);
+        AssertionsForClassTypes.assertThat(increasing).isTrue();
+        AssertionsForClassTypes.assertThat(SnowflakeIdGenerator.shardOf(last)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRepeatIdsAcrossThreads() throws Exception {
+//        Arrange
+        SnowflakeIdGenerator underTest = new SnowflakeIdGenerator(0);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+//        Act
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int thread = 0; thread < 8; thread++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) ids.add(underTest.nextId(2));
+                });
+            }
+        }
+
+//        Assert
+        AssertionsForClassTypes.assertThat(ids.size()).isEqualTo(80_000);
+    }
+
+    @Test
+    public void shouldPlaceSequenceIdsOnShardZero() {
+        for (long legacyId : List.of(1L, 50L, 1_000_000L)) {
+            AssertionsForClassTypes.assertThat(SnowflakeIdGenerator.shardOf(legacyId)).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void shouldRejectWorkersAndShardsOutOfRange() {
+        AssertionsForClassTypes.assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKERS)).isInstanceOf(IllegalArgumentException.class);
+        AssertionsForClassTypes.assertThatThrownBy(() -> new SnowflakeIdGenerator(0).nextId(SnowflakeIdGenerator.MAX_SHARDS)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,85 @@
+package ma.abid.customer_service.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+class CustomerResponseCacheTest {
+    ObjectMapper objectMapper;
+    SimpleMeterRegistry meterRegistry;
+    CustomerResponseCache underTest;
+    CustomerDTO customerDTO;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerResponseCache(objectMapper, meterRegistry, true, "maximumSize=100", 1024);
+        customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+    }
+
+    @Test
+    public void shouldServeBodyOnlyForItsVersion() throws IOException {
+//        Act
+        CustomerResponseCache.CachedResponse stored = underTest.put(customerDTO);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(objectMapper.readValue(stored.json(), CustomerDTO.class))
+                .usingRecursiveComparison().isEqualTo(customerDTO);
+        AssertionsForClassTypes.assertThat(stored.gzip()).isNull();
+        AssertionsForClassTypes.assertThat(underTest.get(1L, 2L)).isSameAs(stored);
+        AssertionsForClassTypes.assertThat(underTest.get(1L, 3L)).isNull();
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.response.cache", "result", "hit").count()).isEqualTo(1.0);
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.response.cache", "result", "miss").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void shouldEvictOnWrite(){
+//        Arrange
+        underTest.put(customerDTO);
+
+//        Act
+        underTest.onCustomerChanged(CustomerChangedEvent.deleted(1L));
+
+//        Assert
+        AssertionsForClassTypes.assertThat(underTest.get(1L, 2L)).isNull();
+    }
+
+    @Test
+    public void shouldNotKeepBodiesWithoutVersionOrWhenDisabled(){
+//        Arrange
+        CustomerResponseCache disabled = new CustomerResponseCache(objectMapper, meterRegistry, false, "maximumSize=100", 0);
+
+//        Act
+        underTest.put(CustomerDTO.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").build());
+        CustomerResponseCache.CachedResponse uncached = disabled.put(customerDTO);
+
+//        Assert
+        AssertionsForClassTypes.assertThat(underTest.get(2L, null)).isNull();
+        AssertionsForClassTypes.assertThat(uncached.json().length).isPositive();
+        AssertionsForClassTypes.assertThat(uncached.gzip()).isNull();
+        AssertionsForClassTypes.assertThat(disabled.get(1L, 2L)).isNull();
+    }
+
+    @Test
+    public void shouldKeepLargeBodiesGzipped() throws IOException {
+//        Arrange
+        CustomerResponseCache gzipping = new CustomerResponseCache(objectMapper, meterRegistry, true, "maximumSize=100", 16);
+
+//        Act
+        CustomerResponseCache.CachedResponse stored = gzipping.put(customerDTO);
+
+//        Assert
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(stored.gzip()))) {
+            AssertionsForClassTypes.assertThat(input.readAllBytes()).isEqualTo(stored.json());
+        }
+    }
+}
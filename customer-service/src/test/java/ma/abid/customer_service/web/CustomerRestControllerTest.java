@@ -1,11 +1,34 @@
 package ma.abid.customer_service.web;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.sun.source.tree.ModuleTree;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.abid.customer_service.bulk.CustomerDataFormat;
+import ma.abid.customer_service.bulk.CustomerExporter;
+import ma.abid.customer_service.bulk.CustomerImporter;
+import ma.abid.customer_service.config.BinaryFormatConfig;
+import ma.abid.customer_service.config.MetricsConfig;
+import ma.abid.customer_service.dto.BatchItemResultDTO;
+import ma.abid.customer_service.dto.CustomerChangeDTO;
+import ma.abid.customer_service.dto.CustomerChangesDTO;
 import ma.abid.customer_service.dto.CustomerDTO;
+import ma.abid.customer_service.dto.CustomerLookupDTO;
+import ma.abid.customer_service.dto.CustomerPageDTO;
+import ma.abid.customer_service.dto.ImportReportDTO;
+import ma.abid.customer_service.event.CustomerChangedEvent;
+import ma.abid.customer_service.exception.BatchSizeExceededException;
+import ma.abid.customer_service.exception.ChangesExpiredException;
 import ma.abid.customer_service.exception.CustomerNotFoundException;
+import ma.abid.customer_service.exception.CustomerVersionConflictException;
 import ma.abid.customer_service.exception.EmailAlreadyExistException;
+import ma.abid.customer_service.exception.InvalidCursorException;
+import ma.abid.customer_service.outbox.CustomerChangeFeed;
 import ma.abid.customer_service.service.CustomerService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,31 +36,58 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.hamcrest.Matchers;
+import org.assertj.core.api.AssertionsForClassTypes;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 @WebMvcTest(CustomerRestController.class)
 @ActiveProfiles("test")
+@Import({SimpleMeterRegistry.class, MetricsConfig.class, BinaryFormatConfig.class, CustomerResponseCache.class})
 class CustomerRestControllerTest {
     @MockBean
     private CustomerService customerService;
 
+    @MockBean
+    private CustomerImporter customerImporter;
+
+    @MockBean
+    private CustomerExporter customerExporter;
+
+    @MockBean
+    private CustomerChangeFeed customerChangeFeed;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CustomerResponseCache customerResponseCache;
+
     private List<CustomerDTO> customerDTOList;
 
     @BeforeEach
     void setUp() {
+        customerResponseCache.clear();
         this.customerDTOList = List.of(
                 CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").build(),
                 CustomerDTO.builder().id(2L).firstName("Kamal").lastName("ABID").email("kamal@abid.com").build(),
@@ -55,6 +105,146 @@ class CustomerRestControllerTest {
                 .andExpect(MockMvcResultMatchers.content().json(objectMapper.writeValueAsString(customerDTOList)));
     }
 
+    @Test
+    void shouldGetAllCustomersAsCbor() throws Exception {
+        Mockito.when(customerService.getAllCustomers()).thenReturn(customerDTOList);
+
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders.get("/api/customers").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<CustomerDTO> customers = new CBORMapper().readValue(body, new TypeReference<>() {});
+        AssertionsForClassTypes.assertThat(customers.size()).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(customers.get(2).getEmail()).isEqualTo("bilal@abid.com");
+        AssertionsForClassTypes.assertThat(body.length).isLessThan(objectMapper.writeValueAsBytes(customerDTOList).length);
+    }
+
+    @Test
+    void shouldGetCustomerByIdAsSmile() throws Exception {
+        CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+        Mockito.when(customerService.getCustomerVersion(1L)).thenReturn(2L);
+        Mockito.when(customerService.getCustomerById(1L)).thenReturn(customerDTO);
+
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L).accept(CustomerRestController.APPLICATION_SMILE_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(CustomerRestController.APPLICATION_SMILE_VALUE))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-2+smile\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        AssertionsForClassTypes.assertThat(new SmileMapper().readValue(body, CustomerDTO.class)).usingRecursiveComparison().isEqualTo(customerDTO);
+    }
+
+    @Test
+    void shouldSaveNewCustomerFromCborBody() throws Exception {
+        CustomerDTO customerDTO = CustomerDTO.builder().firstName("Jawad").lastName("ABID").email("jawad@abid.com").build();
+        Mockito.when(customerService.saveNewCustomer(Mockito.any())).thenReturn(customerDTOList.get(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customers")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(new CBORMapper().writeValueAsBytes(customerDTO)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id", Matchers.is(1)));
+    }
+
+    @Test
+    void shouldNotAnswerABinaryRequestWithTheJsonETag() throws Exception {
+        CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+        Mockito.when(customerService.getCustomerVersion(1L)).thenReturn(2L);
+        Mockito.when(customerService.getCustomerById(1L)).thenReturn(customerDTO);
+        Mockito.when(customerService.getCustomersFingerprint()).thenReturn("3-3-0");
+        Mockito.when(customerService.getAllCustomers()).thenReturn(customerDTOList);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"1-2\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-2+cbor\""));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"1-2+cbor\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"customers-3-3-0\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"customers-3-3-0+cbor\""));
+    }
+
+    @Test
+    void shouldAnswerUnchangedListWithNotModified() throws Exception {
+        Mockito.when(customerService.getCustomersFingerprint()).thenReturn("3-3-0");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers").header("If-None-Match", "\"customers-3-3-0\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"customers-3-3-0\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        Mockito.verify(customerService, Mockito.never()).getAllCustomers();
+    }
+
+    @Test
+    void shouldGetCustomersPage() throws Exception {
+        CustomerPageDTO page = CustomerPageDTO.builder().content(customerDTOList.subList(0, 2)).size(2).nextCursor("Mg").build();
+        Mockito.when(customerService.getCustomersPage(null, 2)).thenReturn(page);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/page?size=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.size()", Matchers.is(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor", Matchers.is("Mg")));
+    }
+
+    @Test
+    void shouldNotGetCustomersPageWithInvalidCursor() throws Exception {
+        Mockito.when(customerService.getCustomersPage(Mockito.eq("bad"), Mockito.anyInt()))
+                .thenThrow(new InvalidCursorException("Invalid cursor: bad"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/page?cursor=bad"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().string("Invalid cursor: bad"));
+    }
+
+    @Test
+    void shouldGetCustomerChangesSincePosition() throws Exception {
+        CustomerChangesDTO changes = CustomerChangesDTO.builder()
+                .changes(List.of(CustomerChangeDTO.builder().position(8).type(CustomerChangedEvent.Type.UPDATED).customerId(1L)
+                        .customer("{\"id\":1,\"firstName\":\"Jawad\"}").build()))
+                .next(8)
+                .build();
+        Mockito.when(customerChangeFeed.getChangesSince(7, 500)).thenReturn(changes);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/changes?since=7"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes[0].customer.firstName", Matchers.is("Jawad")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next", Matchers.is(8)));
+    }
+
+    @Test
+    void shouldAnswerGoneForExpiredChanges() throws Exception {
+        Mockito.when(customerChangeFeed.getChangesSince(Mockito.eq(1L), Mockito.anyInt()))
+                .thenThrow(new ChangesExpiredException("Changes after position 1 are no longer retained"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/changes?since=1"))
+                .andExpect(MockMvcResultMatchers.status().isGone());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamAllCustomersAsNdjson() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Consumer<CustomerDTO> consumer = invocation.getArgument(0);
+            customerDTOList.forEach(consumer);
+            return null;
+        }).when(customerService).streamAllCustomers(Mockito.any(Consumer.class));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/stream"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(CustomerRestController.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        AssertionsForClassTypes.assertThat(lines.length).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(objectMapper.readValue(lines[2], CustomerDTO.class))
+                .usingRecursiveComparison().isEqualTo(customerDTOList.get(2));
+    }
+
     @Test
     public void shouldGetCustomerById() throws Exception{
         Long id = 1L;
@@ -65,10 +255,75 @@ class CustomerRestControllerTest {
                  .andExpect(MockMvcResultMatchers.content().json(objectMapper.writeValueAsString(customerDTOList.get(0))));
     }
 
+    @Test
+    public void shouldTagCustomerWithItsVersion() throws Exception {
+        CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+        Mockito.when(customerService.getCustomerVersion(1L)).thenReturn(2L);
+        Mockito.when(customerService.getCustomerById(1L)).thenReturn(customerDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L).header("If-None-Match", "\"1-1\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().stringValues("ETag", "\"1-2\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.version", Matchers.is(2)));
+    }
+
+    @Test
+    public void shouldServeUnchangedCustomerFromSerializedBody() throws Exception {
+        CustomerDTO customerDTO = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build();
+        Mockito.when(customerService.getCustomerVersion(1L)).thenReturn(2L);
+        Mockito.when(customerService.getCustomerById(1L)).thenReturn(customerDTO);
+        String expected = objectMapper.writeValueAsString(customerDTO);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-2\""))
+                    .andExpect(MockMvcResultMatchers.content().string(expected));
+        }
+
+        Mockito.verify(customerService, Mockito.times(1)).getCustomerById(1L);
+    }
+
+    @Test
+    public void shouldReserializeCustomerAfterVersionChange() throws Exception {
+        Mockito.when(customerService.getCustomerVersion(1L)).thenReturn(2L).thenReturn(3L);
+        Mockito.when(customerService.getCustomerById(1L))
+                .thenReturn(CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(2L).build())
+                .thenReturn(CustomerDTO.builder().id(1L).firstName("Kamal").lastName("ABID").email("jawad@abid.com").version(3L).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.firstName", Matchers.is("Jawad")));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-3\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.firstName", Matchers.is("Kamal")));
+    }
+
+    @Test
+    public void shouldTellWhetherGzipIsAccepted(){
+        AssertionsForClassTypes.assertThat(CustomerRestController.acceptsGzip("gzip, deflate, br")).isTrue();
+        AssertionsForClassTypes.assertThat(CustomerRestController.acceptsGzip("br;q=1.0, *;q=0.5")).isTrue();
+        AssertionsForClassTypes.assertThat(CustomerRestController.acceptsGzip("gzip;q=0")).isFalse();
+        AssertionsForClassTypes.assertThat(CustomerRestController.acceptsGzip("identity")).isFalse();
+        AssertionsForClassTypes.assertThat(CustomerRestController.acceptsGzip(null)).isFalse();
+    }
+
+    @Test
+    public void shouldAnswerUnchangedCustomerWithNotModified() throws Exception {
+        Mockito.when(customerService.getCustomerVersion(1L)).thenReturn(2L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 1L).header("If-None-Match", "\"1-2\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-2\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        Mockito.verify(customerService, Mockito.never()).getCustomerById(Mockito.any());
+    }
+
     @Test
     public void shouldNotGteCustomerByInvalidId() throws Exception {
         Long id = 9L;
-        Mockito.when(customerService.getCustomerById(id)).thenThrow(CustomerNotFoundException.class);
+        Mockito.when(customerService.getCustomerVersion(id)).thenThrow(CustomerNotFoundException.class);
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", id))
                 .andExpect(MockMvcResultMatchers.status().isNotFound())
@@ -79,7 +334,7 @@ class CustomerRestControllerTest {
     @Test
     public void shouldSearchCustomers() throws Exception {
         String keyword = "a";
-        Mockito.when(customerService.searchCustomers(keyword)).thenReturn(customerDTOList);
+        Mockito.when(customerService.searchCustomers(keyword, 20)).thenReturn(customerDTOList);
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/search?keyword="+keyword))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.size()", Matchers.is(3)))
@@ -128,6 +383,47 @@ class CustomerRestControllerTest {
                 .andExpect(MockMvcResultMatchers.content().json(objectMapper.writeValueAsString(customerDTO)));
 
     }
+    @Test
+    public void shouldUpdateConditionallyOnIfMatch() throws Exception {
+        CustomerDTO customerDTO = customerDTOList.get(0);
+        CustomerDTO updated = CustomerDTO.builder().id(1L).firstName("Jawad").lastName("ABID").email("jawad@abid.com").version(3L).build();
+        Mockito.when(customerService.upDateCustomer(Mockito.eq(1L), Mockito.argThat(dto -> Long.valueOf(2L).equals(dto.getVersion()))))
+                .thenReturn(updated);
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customers/{id}", 1L)
+                        .header("If-Match", "\"1-2\"")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(customerDTO)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1-3\""));
+        // the tag of a binary representation names the same version
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customers/{id}", 1L)
+                        .header("If-Match", "\"1-2+cbor\"")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(customerDTO)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    @Test
+    public void shouldFailPreconditionOnStaleIfMatch() throws Exception {
+        Mockito.when(customerService.upDateCustomer(Mockito.eq(1L), Mockito.any()))
+                .thenThrow(new CustomerVersionConflictException("This Customer was modified concurrently"));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customers/{id}", 1L)
+                        .header("If-Match", "\"1-1\"")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(customerDTOList.get(0))))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+
+        // a weak or foreign tag can never match, so no write is attempted
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customers/{id}", 2L)
+                        .header("If-Match", "W/\"2-1\", \"1-1\"")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(customerDTOList.get(1))))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+        Mockito.verify(customerService, Mockito.never()).upDateCustomer(Mockito.eq(2L), Mockito.any());
+    }
+
     @Test
     public void shouldNotUpdateCustomerGivenByInvalidId() throws Exception {
         Long id = 9L;
@@ -168,4 +464,153 @@ class CustomerRestControllerTest {
                 .andExpect(MockMvcResultMatchers.content().string("This customer not found"));
     }
 
+    @Test
+    void shouldSaveCustomersBatch() throws Exception {
+        List<BatchItemResultDTO> results = List.of(
+                BatchItemResultDTO.builder().index(0).id(1L).status(BatchItemResultDTO.Status.CREATED).customer(customerDTOList.get(0)).build(),
+                BatchItemResultDTO.builder().index(1).status(BatchItemResultDTO.Status.CONFLICT).message("Email already exists: kamal@abid.com").build()
+        );
+        Mockito.when(customerService.saveNewCustomers(Mockito.anyList())).thenReturn(results);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(customerDTOList.subList(0, 2))))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status", Matchers.is("CREATED")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status", Matchers.is("CONFLICT")));
+    }
+
+    @Test
+    void shouldDeleteCustomersBatch() throws Exception {
+        List<BatchItemResultDTO> results = List.of(
+                BatchItemResultDTO.builder().index(0).id(1L).status(BatchItemResultDTO.Status.DELETED).build()
+        );
+        Mockito.when(customerService.deleteCustomers(List.of(1L))).thenReturn(results);
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/customers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1]"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status", Matchers.is("DELETED")));
+    }
+
+    @Test
+    void shouldGetCustomerByEmail() throws Exception {
+        Mockito.when(customerService.getCustomerByEmail("Kamal@abid.com")).thenReturn(customerDTOList.get(1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/by-email").param("email", "Kamal@abid.com"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id", Matchers.is(2)));
+    }
+
+    @Test
+    void shouldLookUpCustomersByIdsAndEmails() throws Exception {
+        Map<Long, CustomerDTO> byId = new LinkedHashMap<>();
+        byId.put(1L, customerDTOList.get(0));
+        byId.put(9L, null);
+        Map<String, CustomerDTO> byEmail = new LinkedHashMap<>();
+        byEmail.put("kamal@abid.com", customerDTOList.get(1));
+        Mockito.when(customerService.lookupCustomers(List.of(1L, 9L), List.of("kamal@abid.com")))
+                .thenReturn(CustomerLookupDTO.builder().ids(byId).emails(byEmail).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/customers/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1,9],\"emails\":[\"kamal@abid.com\"]}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ids.1.firstName", Matchers.is("Jawad")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ids.9").value(Matchers.nullValue()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ids", Matchers.hasKey("9")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.emails['kamal@abid.com'].id", Matchers.is(2)));
+    }
+
+    @Test
+    void shouldLookUpCustomersFromQueryParameters() throws Exception {
+        Mockito.when(customerService.lookupCustomers(List.of(2L, 3L), null))
+                .thenReturn(CustomerLookupDTO.builder().ids(Map.of(2L, customerDTOList.get(1), 3L, customerDTOList.get(2))).emails(Map.of()).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/lookup?ids=2,3"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ids.size()", Matchers.is(2)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamImportProgress() throws Exception {
+        Mockito.when(customerImporter.importCustomers(Mockito.any(), Mockito.eq(CustomerDataFormat.CSV), Mockito.any(Consumer.class)))
+                .thenAnswer(invocation -> {
+                    Consumer<ImportReportDTO> listener = invocation.getArgument(2);
+                    listener.accept(ImportReportDTO.builder().type(ImportReportDTO.Type.REJECTED).row(2L)
+                            .status(BatchItemResultDTO.Status.INVALID).message("email: size must be between 8 and 2147483647").build());
+                    listener.accept(ImportReportDTO.builder().type(ImportReportDTO.Type.PROGRESS).processed(2L).imported(1L).rejected(1L).rowsPerSecond(100L).build());
+                    return ImportReportDTO.builder().type(ImportReportDTO.Type.COMPLETED).processed(2L).imported(1L).rejected(1L).rowsPerSecond(100L).build();
+                });
+
+        String[] lines = mockMvc.perform(MockMvcRequestBuilders.post("/api/customers/import")
+                        .contentType("text/csv")
+                        .content("firstName,lastName,email\nJawad,ABID,jawad@abid.com\nKamal,ABID,k@a\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(CustomerRestController.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        AssertionsForClassTypes.assertThat(lines.length).isEqualTo(3);
+        AssertionsForClassTypes.assertThat(objectMapper.readValue(lines[0], ImportReportDTO.class).getRow()).isEqualTo(2L);
+        AssertionsForClassTypes.assertThat(objectMapper.readValue(lines[2], ImportReportDTO.class).getType()).isEqualTo(ImportReportDTO.Type.COMPLETED);
+    }
+
+    @Test
+    void shouldExportGzippedCsvFromLastId() throws Exception {
+        Mockito.when(customerExporter.exportCustomers(Mockito.eq(2L), Mockito.eq(CustomerDataFormat.CSV), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    invocation.<OutputStream>getArgument(2).write("id,firstName,lastName,email,version\n3,Bilal,ABID,bilal@abid.com,0\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/export?format=CSV&afterId=2&gzip=true"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/gzip"))
+                .andExpect(MockMvcResultMatchers.header().string("Content-Disposition", Matchers.containsString("customers-after-2.csv.gz")))
+                .andReturn();
+
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray()))) {
+            String csv = new String(gzipInputStream.readAllBytes(), StandardCharsets.UTF_8);
+            AssertionsForClassTypes.assertThat(csv).endsWith("3,Bilal,ABID,bilal@abid.com,0\n");
+        }
+    }
+
+    @Test
+    void shouldNotUpdateOversizedCustomersBatch() throws Exception {
+        Mockito.when(customerService.upDateCustomers(Mockito.anyList()))
+                .thenThrow(new BatchSizeExceededException("Batch size 1001 exceeds the maximum of 1000"));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/customers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(MockMvcResultMatchers.status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void shouldCountDomainExceptions() throws Exception {
+        Mockito.when(customerService.getCustomerVersion(9L)).thenThrow(new CustomerNotFoundException("This Customer not found"));
+        double before = meterRegistry.counter("customer.exceptions", "exception", "CustomerNotFoundException").count();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/{id}", 9L))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        AssertionsForClassTypes.assertThat(meterRegistry.counter("customer.exceptions", "exception", "CustomerNotFoundException").count())
+                .isEqualTo(before + 1);
+    }
+
+    @Test
+    public void shouldTimeSerializationPerEndpoint() throws Exception {
+        // GET /customers/{id} writes pre-serialized bytes, so the converter is timed on another endpoint
+        Mockito.when(customerService.searchCustomers("jaw", 20)).thenReturn(customerDTOList.subList(0, 1));
+        Timer timer = meterRegistry.timer("customer.serialization", "uri", "/api/customers/search");
+        long before = timer.count();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/customers/search?keyword=jaw"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].firstName", Matchers.is("Jawad")));
+
+        AssertionsForClassTypes.assertThat(timer.count()).isEqualTo(before + 1);
+    }
 }